@@ -24,6 +24,7 @@ import com.datastax.driver.core.Host;
 import com.datastax.driver.core.HostDistance;
 import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SimpleStatement;
@@ -31,11 +32,15 @@ import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
-import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StatusFuture;
 
 import java.nio.ByteBuffer;
 import java.util.HashMap;
@@ -47,11 +52,15 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Cassandra 2.x CQL client.
  *
+ * Statements are executed with the driver's asynchronous API, so the client
+ * can keep several operations in flight per thread (see
+ * {@link AsyncDB#INFLIGHT_PROPERTY}).
+ *
  * See {@code cassandra2/README.md} for details.
  *
  * @author cmatser
  */
-public class CassandraCQLClient extends DB {
+public class CassandraCQLClient extends AsyncDB {
 
   private static Cluster cluster = null;
   private static Session session = null;
@@ -60,6 +69,7 @@ public class CassandraCQLClient extends DB {
   
   private static ConsistencyLevel readConsistencyLevel = ConsistencyLevel.ONE;
   private static ConsistencyLevel writeConsistencyLevel = ConsistencyLevel.ONE;
+  private static int scanFetchSize = 0;
 
   public static final String YCSB_KEY = "y_id";
   public static final String KEYSPACE_PROPERTY = "cassandra.keyspace";
@@ -79,6 +89,13 @@ public class CassandraCQLClient extends DB {
 
   public static final String SCAN_SIZE_PROPERTY = "cassandra.scan_size";
 
+  /**
+   * The number of rows a scan fetches per page, 0 for the driver's default.
+   */
+  public static final String SCAN_FETCH_SIZE_PROPERTY =
+      "cassandra.scan_fetchsize";
+  public static final String SCAN_FETCH_SIZE_PROPERTY_DEFAULT = "0";
+
   /**
    * Count the number of times initialized to teardown on the last
    * {@link #cleanup()}.
@@ -141,6 +158,9 @@ public class CassandraCQLClient extends DB {
         String sscanSize = 
             getProperties().getProperty(SCAN_SIZE_PROPERTY, "-1");
         scanSize = Integer.parseInt(sscanSize);
+        scanFetchSize = Integer.parseInt(
+            getProperties().getProperty(SCAN_FETCH_SIZE_PROPERTY,
+                SCAN_FETCH_SIZE_PROPERTY_DEFAULT));
         
         // public void connect(String node) {}
         if ((username != null) && !username.isEmpty()) {
@@ -216,11 +236,12 @@ public class CassandraCQLClient extends DB {
    *          The list of fields to read, or null for all of them
    * @param result
    *          A HashMap of field/value pairs for the result
-   * @return Zero on success, a non-zero error code on error
+   * @return The pending result of the operation.
    */
   @Override
-  public Status read(String table, String key, Set<String> fields,
-      HashMap<String, ByteIterator> result) {
+  public StatusFuture readAsync(String table, final String key,
+      Set<String> fields, final HashMap<String, ByteIterator> result) {
+    final StatusFuture future = new StatusFuture();
     try {
       Statement stmt;
       Select.Builder selectBuilder;
@@ -242,33 +263,25 @@ public class CassandraCQLClient extends DB {
         System.out.println(stmt.toString());
       }
 
-      ResultSet rs = session.execute(stmt);
-
-      if (rs.isExhausted()) {
-        return Status.NOT_FOUND;
-      }
-
-      // Should be only 1 row
-      Row row = rs.one();
-      ColumnDefinitions cd = row.getColumnDefinitions();
-
-      for (ColumnDefinitions.Definition def : cd) {
-        ByteBuffer val = row.getBytesUnsafe(def.getName());
-        if (val != null) {
-          result.put(def.getName(), new ByteArrayByteIterator(val.array()));
-        } else {
-          result.put(def.getName(), null);
-        }
-      }
-
-      return Status.OK;
-
+      execute(stmt, future, "Error reading key: " + key,
+          new RowHandler() {
+            @Override
+            public Status handle(ResultSet rs) {
+              if (rs.isExhausted()) {
+                return Status.NOT_FOUND;
+              }
+
+              // Should be only 1 row
+              readRow(rs.one(), result);
+              return Status.OK;
+            }
+          });
     } catch (Exception e) {
       e.printStackTrace();
       System.out.println("Error reading key: " + key);
-      return Status.ERROR;
+      future.complete(Status.ERROR);
     }
-
+    return future;
   }
 
   /**
@@ -278,6 +291,11 @@ public class CassandraCQLClient extends DB {
    * Cassandra CQL uses "token" method for range scan which doesn't always yield
    * intuitive results.
    *
+   * Scans longer than the fetch size span several result pages. Each further
+   * page is fetched asynchronously once the previous one is read, so the
+   * driver's I/O thread never blocks, and the operation completes with the
+   * last page.
+   *
    * @param table
    *          The name of the table
    * @param startkey
@@ -289,12 +307,13 @@ public class CassandraCQLClient extends DB {
    * @param result
    *          A Vector of HashMaps, where each HashMap is a set field/value
    *          pairs for one record
-   * @return Zero on success, a non-zero error code on error
+   * @return The pending result of the operation.
    */
   @Override
-  public Status scan(String table, String startkey, int recordcount,
-      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
-
+  public StatusFuture scanAsync(String table, final String startkey,
+      int recordcount, Set<String> fields,
+      final Vector<HashMap<String, ByteIterator>> result) {
+    final StatusFuture future = new StatusFuture();
     try {
       Statement stmt;
       Select.Builder selectBuilder;
@@ -316,7 +335,7 @@ public class CassandraCQLClient extends DB {
       } else {
         limitCount = scanSize;
       }
-      
+
       // The statement builder is not setup right for tokens.
       // So, we need to build it manually.
       String initialStmt = stmt.toString();
@@ -333,40 +352,22 @@ public class CassandraCQLClient extends DB {
 
       stmt = new SimpleStatement(scanStmt.toString());
       stmt.setConsistencyLevel(readConsistencyLevel);
+      if (scanFetchSize > 0) {
+        stmt.setFetchSize(scanFetchSize);
+      }
 
       if (debug) {
         System.out.println(stmt.toString());
       }
 
-      ResultSet rs = session.execute(stmt);
-
-      HashMap<String, ByteIterator> tuple;
-      while (!rs.isExhausted()) {
-        Row row = rs.one();
-        tuple = new HashMap<String, ByteIterator>();
-
-        ColumnDefinitions cd = row.getColumnDefinitions();
-
-        for (ColumnDefinitions.Definition def : cd) {
-          ByteBuffer val = row.getBytesUnsafe(def.getName());
-          if (val != null) {
-            tuple.put(def.getName(), new ByteArrayByteIterator(val.array()));
-          } else {
-            tuple.put(def.getName(), null);
-          }
-        }
-
-        result.add(tuple);
-      }
-
-      return Status.OK;
-
+      Futures.addCallback(session.executeAsync(stmt), new PageReader(future,
+          "Error scanning with startkey: " + startkey, result));
     } catch (Exception e) {
       e.printStackTrace();
       System.out.println("Error scanning with startkey: " + startkey);
-      return Status.ERROR;
+      future.complete(Status.ERROR);
     }
-
+    return future;
   }
 
   /**
@@ -380,13 +381,13 @@ public class CassandraCQLClient extends DB {
    *          The record key of the record to write.
    * @param values
    *          A HashMap of field/value pairs to update in the record
-   * @return Zero on success, a non-zero error code on error
+   * @return The pending result of the operation.
    */
   @Override
-  public Status update(String table, String key,
+  public StatusFuture updateAsync(String table, String key,
       HashMap<String, ByteIterator> values) {
     // Insert and updates provide the same functionality
-    return insert(table, key, values);
+    return insertAsync(table, key, values);
   }
 
   /**
@@ -400,12 +401,12 @@ public class CassandraCQLClient extends DB {
    *          The record key of the record to insert.
    * @param values
    *          A HashMap of field/value pairs to insert in the record
-   * @return Zero on success, a non-zero error code on error
+   * @return The pending result of the operation.
    */
   @Override
-  public Status insert(String table, String key,
+  public StatusFuture insertAsync(String table, String key,
       HashMap<String, ByteIterator> values) {
-
+    final StatusFuture future = new StatusFuture();
     try {
       Insert insertStmt = QueryBuilder.insertInto(table);
 
@@ -427,14 +428,12 @@ public class CassandraCQLClient extends DB {
         System.out.println(insertStmt.toString());
       }
 
-      ResultSet rs = session.execute(insertStmt);
-
-      return Status.OK;
+      execute(insertStmt, future, "Error inserting key: " + key, null);
     } catch (Exception e) {
       e.printStackTrace();
+      future.complete(Status.ERROR);
     }
-
-    return Status.ERROR;
+    return future;
   }
 
   /**
@@ -444,11 +443,11 @@ public class CassandraCQLClient extends DB {
    *          The name of the table
    * @param key
    *          The record key of the record to delete.
-   * @return Zero on success, a non-zero error code on error
+   * @return The pending result of the operation.
    */
   @Override
-  public Status delete(String table, String key) {
-
+  public StatusFuture deleteAsync(String table, String key) {
+    final StatusFuture future = new StatusFuture();
     try {
       Statement stmt;
 
@@ -460,15 +459,127 @@ public class CassandraCQLClient extends DB {
         System.out.println(stmt.toString());
       }
 
-      ResultSet rs = session.execute(stmt);
-
-      return Status.OK;
+      execute(stmt, future, "Error deleting key: " + key, null);
     } catch (Exception e) {
       e.printStackTrace();
       System.out.println("Error deleting key: " + key);
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  /**
+   * Turns a result set into the status of an operation. Runs on the driver's
+   * I/O thread, so it must not block.
+   */
+  private interface RowHandler {
+    Status handle(ResultSet rs);
+  }
+
+  /**
+   * Executes a statement and completes the future from the driver callback.
+   *
+   * @param stmt The statement to execute.
+   * @param future The future to complete.
+   * @param errorMessage Printed if the statement fails.
+   * @param handler Converts the result, or null if success is all that counts.
+   */
+  private static void execute(Statement stmt, final StatusFuture future,
+      final String errorMessage, final RowHandler handler) {
+    ResultSetFuture rsf = session.executeAsync(stmt);
+    Futures.addCallback(rsf, new FutureCallback<ResultSet>() {
+      @Override
+      public void onSuccess(ResultSet rs) {
+        if (handler == null) {
+          future.complete(Status.OK);
+          return;
+        }
+        try {
+          future.complete(handler.handle(rs));
+        } catch (Exception e) {
+          onFailure(e);
+        }
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        t.printStackTrace();
+        System.out.println(errorMessage);
+        future.complete(Status.ERROR);
+      }
+    });
+  }
+
+  /**
+   * Reads the rows of a scan a page at a time, fetching the next page from
+   * the callback of the previous one, and completes the future after the
+   * last page.
+   */
+  private static final class PageReader implements FutureCallback<ResultSet> {
+    private final StatusFuture future;
+    private final String errorMessage;
+    private final Vector<HashMap<String, ByteIterator>> result;
+
+    PageReader(StatusFuture future, String errorMessage,
+        Vector<HashMap<String, ByteIterator>> result) {
+      this.future = future;
+      this.errorMessage = errorMessage;
+      this.result = result;
     }
 
-    return Status.ERROR;
+    @Override
+    public void onSuccess(final ResultSet rs) {
+      try {
+        while (rs.getAvailableWithoutFetching() > 0) {
+          HashMap<String, ByteIterator> tuple =
+              new HashMap<String, ByteIterator>();
+          readRow(rs.one(), tuple);
+          result.add(tuple);
+        }
+        if (rs.isFullyFetched()) {
+          future.complete(Status.OK);
+        } else {
+          // the next page is appended to the same result set
+          ListenableFuture<Void> more = rs.fetchMoreResults();
+          Futures.addCallback(more, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void fetched) {
+              PageReader.this.onSuccess(rs);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              PageReader.this.onFailure(t);
+            }
+          });
+        }
+      } catch (Exception e) {
+        onFailure(e);
+      }
+    }
+
+    @Override
+    public void onFailure(Throwable t) {
+      t.printStackTrace();
+      System.out.println(errorMessage);
+      future.complete(Status.ERROR);
+    }
+  }
+
+  /**
+   * Copies the columns of a row into a field/value map.
+   */
+  private static void readRow(Row row, HashMap<String, ByteIterator> result) {
+    ColumnDefinitions cd = row.getColumnDefinitions();
+
+    for (ColumnDefinitions.Definition def : cd) {
+      ByteBuffer val = row.getBytesUnsafe(def.getName());
+      if (val != null) {
+        result.put(def.getName(), new ByteArrayByteIterator(val.array()));
+      } else {
+        result.put(def.getName(), null);
+      }
+    }
   }
 
 }
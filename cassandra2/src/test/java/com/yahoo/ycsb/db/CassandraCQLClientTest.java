@@ -46,9 +46,11 @@ import org.junit.ClassRule;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.Vector;
 
 /**
  * Integration tests for the Cassandra client
@@ -58,6 +60,7 @@ public class CassandraCQLClientTest {
   private final static String HOST = "localhost";
   private final static int PORT = 9142;
   private final static String DEFAULT_ROW_KEY = "user1";
+  private final static int SCAN_FETCH_SIZE = 10;
 
   private CassandraCQLClient client;
   private Session session;
@@ -72,6 +75,7 @@ public class CassandraCQLClientTest {
     p.setProperty("hosts", HOST);
     p.setProperty("port", Integer.toString(PORT));
     p.setProperty("table", TABLE);
+    p.setProperty(CassandraCQLClient.SCAN_FETCH_SIZE_PROPERTY, Integer.toString(SCAN_FETCH_SIZE));
 
     Measurements.setProperties(p);
     final CoreWorkload workload = new CoreWorkload();
@@ -150,6 +154,29 @@ public class CassandraCQLClientTest {
     assertThat(strResult, hasEntry("field1", "value2"));
   }
 
+  @Test
+  public void testScanSpanningPages() throws Exception {
+    final int rows = 3 * SCAN_FETCH_SIZE + 5;
+    for (int i = 0; i < rows; i++) {
+      Insert insertStmt = QueryBuilder.insertInto(TABLE);
+      insertStmt.value(CassandraCQLClient.YCSB_KEY, "user" + i);
+      insertStmt.value("field0", "value" + i);
+      session.execute(insertStmt);
+    }
+    // rows are scanned in token order, so start from the row with the lowest token
+    final Row first = session.execute(QueryBuilder.select(CassandraCQLClient.YCSB_KEY).from(TABLE).limit(1)).one();
+
+    final Vector<HashMap<String, ByteIterator>> result = new Vector<HashMap<String, ByteIterator>>();
+    final Status status = client.scan(TABLE, first.getString(CassandraCQLClient.YCSB_KEY), rows, null, result);
+    assertThat(status, is(Status.OK));
+    assertThat(result, hasSize(rows));
+    final Set<String> keys = new HashSet<String>();
+    for (final HashMap<String, ByteIterator> row : result) {
+      keys.add(row.get(CassandraCQLClient.YCSB_KEY).toString());
+    }
+    assertThat(keys, hasSize(rows));
+  }
+
   @Test
   public void testUpdate() throws Exception {
     final String key = "key";
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * A DB layer for data stores with a native asynchronous API. Bindings implement the *Async methods
+ * and complete the returned {@link StatusFuture} from their driver's callback instead of blocking the
+ * client thread.
+ * <p>
+ * The synchronous methods block on the corresponding future, so an AsyncDB behaves exactly like any
+ * other DB by default. Setting the "asyncdb.inflight" property to N &gt; 0 lets each client thread keep
+ * up to N operations outstanding: the operations return {@link Status#QUEUED} as soon as they are
+ * issued and the latency is recorded when the future completes. The result maps passed to reads and
+ * scans are filled in asynchronously in that mode, so workloads must not inspect them.
+ * </p><p>
+ * Implementations should not throw from the *Async methods; report failures by completing the future
+ * with an error status instead.
+ * </p>
+ */
+public abstract class AsyncDB extends DB
+{
+	/**
+	 * The number of operations each client thread may have outstanding. 0 (the default) issues
+	 * operations synchronously.
+	 */
+	public static final String INFLIGHT_PROPERTY="asyncdb.inflight";
+	public static final String INFLIGHT_PROPERTY_DEFAULT="0";
+
+	/**
+	 * Start reading a record from the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A HashMap the field/value pairs are stored into before the future completes
+	 * @return The pending result of the operation.
+	 */
+	public abstract StatusFuture readAsync(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result);
+
+	/**
+	 * Start a range scan for a set of records in the database.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector the records are added to before the future completes
+	 * @return The pending result of the operation.
+	 */
+	public abstract StatusFuture scanAsync(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result);
+
+	/**
+	 * Start updating a record in the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @return The pending result of the operation.
+	 */
+	public abstract StatusFuture updateAsync(String table, String key, HashMap<String,ByteIterator> values);
+
+	/**
+	 * Start inserting a record in the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @return The pending result of the operation.
+	 */
+	public abstract StatusFuture insertAsync(String table, String key, HashMap<String,ByteIterator> values);
+
+	/**
+	 * Start deleting a record from the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to delete.
+	 * @return The pending result of the operation.
+	 */
+	public abstract StatusFuture deleteAsync(String table, String key);
+
+	@Override
+	public Status read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		return readAsync(table,key,fields,result).get();
+	}
+
+	@Override
+	public Status scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		return scanAsync(table,startkey,recordcount,fields,result).get();
+	}
+
+	@Override
+	public Status update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return updateAsync(table,key,values).get();
+	}
+
+	@Override
+	public Status insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return insertAsync(table,key,values).get();
+	}
+
+	@Override
+	public Status delete(String table, String key)
+	{
+		return deleteAsync(table,key).get();
+	}
+}
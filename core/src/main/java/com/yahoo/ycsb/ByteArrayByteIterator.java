@@ -16,10 +16,18 @@
  */
 package com.yahoo.ycsb;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
 public class ByteArrayByteIterator extends ByteIterator {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
 	byte[] str;
 	int off;
-	final int len;
+	int len;
 	public ByteArrayByteIterator(byte[] s) {
 		this.str = s;
 		this.off = 0;
@@ -32,6 +40,19 @@ public class ByteArrayByteIterator extends ByteIterator {
 		this.len = off + len;
 	}
 
+	/**
+	 * Points this iterator at a new range, so that workloads can reuse it for the next value instead
+	 * of allocating a new one.
+	 *
+	 * @return this iterator
+	 */
+	public ByteArrayByteIterator reset(byte[] s, int off, int len) {
+		this.str = s;
+		this.off = off;
+		this.len = off + len;
+		return this;
+	}
+
 	@Override
 	public boolean hasNext() {
 		return off < len;
@@ -51,7 +72,28 @@ public class ByteArrayByteIterator extends ByteIterator {
 
     @Override
     public byte[] toArray() {
-        return str;
+        // the whole backing array is returned as is, without consuming it, as this always did
+        return (off == 0 && len == str.length) ? str : Arrays.copyOfRange(str, off, len);
+    }
+
+    @Override
+    public String toString() {
+        String ret = new String(str, off, len - off, UTF8);
+        off = len;
+        return ret;
+    }
+
+    @Override
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer ret = ByteBuffer.wrap(str, off, len - off);
+        off = len;
+        return ret;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(str, off, len - off);
+        off = len;
     }
 
 }
@@ -16,6 +16,8 @@
  */
 package com.yahoo.ycsb;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
@@ -92,4 +94,25 @@ public abstract class ByteIterator implements Iterator<Byte> {
 	    return ret;
 	}
 
+	/**
+	 * Consumes remaining contents of this object, and returns them as a byte buffer positioned at the
+	 * first byte. Iterators backed by an array return a view of it instead of a copy; the buffer must
+	 * not be modified.
+	 */
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(toArray());
+	}
+
+	/**
+	 * Consumes remaining contents of this object, writing them to the stream. Iterators backed by an
+	 * array write it directly, without copying.
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		byte[] buf = new byte[(int) Math.min(Math.max(bytesLeft(), 1), 8192)];
+		while (hasNext()) {
+			int len = nextBuf(buf, 0);
+			out.write(buf, 0, len);
+		}
+	}
+
 }
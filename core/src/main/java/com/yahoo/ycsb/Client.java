@@ -31,9 +31,9 @@ import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.LockSupport;
 
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurement;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 
@@ -53,6 +53,9 @@ class StatusThread extends Thread
   private final String _label;
   private final boolean _standardstatus;
 
+  /** The load profile the clients follow, or null. */
+  private final LoadProfile _profile;
+
   /** The interval for reporting status. */
   private long _sleeptimeNs;
 
@@ -64,15 +67,17 @@ class StatusThread extends Thread
    * @param label The label for the status.
    * @param standardstatus If true the status is printed to stdout in addition to stderr.
    * @param statusIntervalSeconds The number of seconds between status updates.
+   * @param profile The load profile the clients follow, to report the current phase, or null.
    */
   public StatusThread(CountDownLatch completeLatch, List<ClientThread> clients,
-      String label, boolean standardstatus, int statusIntervalSeconds)
+      String label, boolean standardstatus, int statusIntervalSeconds, LoadProfile profile)
   {
     _completeLatch=completeLatch;
     _clients=clients;
     _label=label;
     _standardstatus=standardstatus;
     _sleeptimeNs=TimeUnit.SECONDS.toNanos(statusIntervalSeconds);
+    _profile=profile;
   }
 
   /**
@@ -149,6 +154,14 @@ class StatusThread extends Thread
     if (todoops != 0) {
         msg.append("est completion in ").append(RemainingFormatter.format(estremaining));
     }
+    if (_profile != null && _profile.isStarted()) {
+      long now = System.nanoTime();
+      LoadProfile.Phase phase = _profile.phaseAt(now);
+      if (phase != null) {
+        msg.append("[").append(phase.getName()).append(": target ").append(d.format(_profile.rateAt(now)))
+            .append(" ops/sec] ");
+      }
+    }
 
     msg.append(Measurements.getMeasurements().getSummary());
 
@@ -222,191 +235,6 @@ class RemainingFormatter {
 	}
 }
 
-/**
- * A thread for executing transactions or data inserts to the database.
- *
- * @author cooperb
- *
- */
-class ClientThread extends Thread
-{
-  /** Counts down each of the clients completing. */
-  private final CountDownLatch _completeLatch;
-
-  private static boolean _spinSleep;
-  DB _db;
-  boolean _dotransactions;
-  Workload _workload;
-  int _opcount;
-  double _targetOpsPerMs;
-
-  int _opsdone;
-  int _threadid;
-  int _threadcount;
-  Object _workloadstate;
-  Properties _props;
-  long _targetOpsTickNs;
-  final Measurements _measurements;
-
-  /**
-   * Constructor.
-   *
-   * @param db the DB implementation to use
-   * @param dotransactions true to do transactions, false to insert data
-   * @param workload the workload to use
-   * @param props the properties defining the experiment
-   * @param opcount the number of operations (transactions or inserts) to do
-   * @param targetperthreadperms target number of operations per thread per ms
-   * @param completeLatch The latch tracking the completion of all clients.
-   */
-  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount, double targetperthreadperms, CountDownLatch completeLatch)
-  {
-    _db=db;
-    _dotransactions=dotransactions;
-    _workload=workload;
-    _opcount=opcount;
-    _opsdone=0;
-    if(targetperthreadperms > 0){
-      _targetOpsPerMs=targetperthreadperms;
-      _targetOpsTickNs=(long)(1000000/_targetOpsPerMs);
-    }
-    _props=props;
-    _measurements = Measurements.getMeasurements();
-    _spinSleep = Boolean.valueOf(_props.getProperty("spin.sleep", "false"));
-    _completeLatch=completeLatch;
-  }
-
-  public int getOpsDone()
-  {
-    return _opsdone;
-  }
-
-  @Override
-  public void run()
-  {
-    try
-    {
-      _db.init();
-    }
-    catch (DBException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    try
-    {
-      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
-    }
-    catch (WorkloadException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    //NOTE: Switching to using nanoTime and parkNanos for time management here such that the measurements
-    // and the client thread have the same view on time.
-
-    //spread the thread operations out so they don't all hit the DB at the same time
-    // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
-    // and the sleep() doesn't make sense for granularities < 1 ms anyway
-    if ((_targetOpsPerMs > 0) && (_targetOpsPerMs <= 1.0))
-    {
-      long randomMinorDelay = Utils.random().nextInt((int) _targetOpsTickNs);
-      sleepUntil(System.nanoTime() + randomMinorDelay);
-    }
-    try
-    {
-      if (_dotransactions)
-      {
-        long startTimeNanos = System.nanoTime();
-
-        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-        {
-
-          if (!_workload.doTransaction(_db,_workloadstate))
-          {
-            break;
-          }
-
-          _opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      }
-      else
-      {
-        long startTimeNanos = System.nanoTime();
-
-        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-        {
-
-          if (!_workload.doInsert(_db,_workloadstate))
-          {
-            break;
-          }
-
-          _opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      }
-    }
-    catch (Exception e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      System.exit(0);
-    }
-
-    try
-    {
-      _measurements.setIntendedStartTimeNs(0);
-      _db.cleanup();
-    }
-    catch (DBException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-    finally
-    {
-      _completeLatch.countDown();
-    }
-  }
-
-  static void sleepUntil(long deadline) {
-    long now = System.nanoTime();
-    while((now = System.nanoTime()) < deadline) {
-      if (!_spinSleep) {
-        LockSupport.parkNanos(deadline - now);
-      }
-    }
-  }
-  private void throttleNanos(long startTimeNanos) {
-    //throttle the operations
-    if (_targetOpsPerMs > 0)
-    {
-      // delay until next tick
-      long deadline = startTimeNanos + _opsdone*_targetOpsTickNs;
-      sleepUntil(deadline);
-      _measurements.setIntendedStartTimeNs(deadline);
-    }
-  }
-  
-  /**
-   * the total amount of work this thread is still expected to do
-   */
-  public int getOpsTodo()
-  {
-    int todo = _opcount - _opsdone;
-    return todo < 0 ? 0 : todo;
-  }
-}
-
 /**
  * Main class for executing YCSB.
  */
@@ -464,11 +292,76 @@ public class Client
    */
   public static final String TARGET_PROPERTY="target";
 
+  /**
+   * Whether the run phase (-t) rather than the load phase (-load) is running, set by the client for
+   * the workload and the DB.
+   */
+  public static final String DO_TRANSACTIONS_PROPERTY="dotransactions";
+
   /**
    * The maximum amount of time (in seconds) for which the benchmark will be run.
    */
   public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
+  /**
+   * How operations are paced: "closed" (default) lets each thread issue its next operation once the
+   * previous one completed (throttled to the target, if any); "open" issues operations from a
+   * dedicated scheduler at the target rate regardless of how quickly they complete.
+   */
+  public static final String SCHEDULER_PROPERTY = "scheduler";
+  public static final String SCHEDULER_PROPERTY_DEFAULT = "closed";
+
+  /**
+   * The arrival process of the open loop scheduler: "fixed" (evenly spaced) or "poisson".
+   */
+  public static final String OPENLOOP_ARRIVALS_PROPERTY = "openloop.arrivals";
+  public static final String OPENLOOP_ARRIVALS_PROPERTY_DEFAULT = "fixed";
+
+  /**
+   * The number of operations the open loop scheduler may issue ahead of the worker threads.
+   */
+  public static final String OPENLOOP_QUEUE_SIZE_PROPERTY = "openloop.queuesize";
+  public static final String OPENLOOP_QUEUE_SIZE_PROPERTY_DEFAULT = "100000";
+
+  /**
+   * The schedule of target throughputs to follow instead of a fixed target, see {@link LoadProfile}.
+   */
+  public static final String LOAD_PROFILE_PROPERTY = LoadProfile.LOAD_PROFILE_PROPERTY;
+
+  /**
+   * How closed loop clients are paced to the target: "global" (default) has them take the send times
+   * of one shared schedule, so that clients stalled on slow operations do not lower the aggregate rate;
+   * "perthread" gives each client an equal share of the target to keep on its own.
+   */
+  public static final String RATE_LIMITER_PROPERTY = "ratelimiter";
+  public static final String RATE_LIMITER_PROPERTY_DEFAULT = "global";
+
+  /**
+   * The most operations the global rate limiter lets the clients be behind the schedule, which they
+   * would issue back to back; older ones are skipped. 0 means no limit.
+   */
+  public static final String RATE_LIMITER_BURST_PROPERTY = "ratelimiter.burst";
+  public static final String RATE_LIMITER_BURST_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The seconds the run warms up for before it is measured. The warm-up counts toward the
+   * operationcount and the maxexecutiontime of the run.
+   */
+  public static final String WARMUP_TIME_PROPERTY = "warmup.time";
+  public static final String WARMUP_TIME_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The operations the run warms up with before it is measured. If a warm-up time is specified as well,
+   * the warm-up lasts until both are reached.
+   */
+  public static final String WARMUP_OPS_PROPERTY = "warmup.ops";
+  public static final String WARMUP_OPS_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The port to serve live metrics on over HTTP, see {@link MetricsServer}. Not set means no server.
+   */
+  public static final String METRICS_PORT_PROPERTY = MetricsServer.PORT_PROPERTY;
+
 
   public static void usageMessage()
   {
@@ -489,6 +382,22 @@ public class Client
     System.out.println("          values in the propertyfile");
     System.out.println("  -s:  show status during run (default: no status)");
     System.out.println("  -l label:  use label for status (e.g. to label one experiment out of a whole batch)");
+    System.out.println("  -p executor=pool|virtual:  run the client threads as tasks on a carrier pool or as");
+    System.out.println("          virtual threads (default: one platform thread per client); with -p scheduler=open");
+    System.out.println("          the pool runs at most executor.poolsize operations at a time");
+    System.out.println("  -p scheduler=open:  issue operations at the target rate independent of their completion");
+    System.out.println("          (requires -target; latencies are measured from the scheduled arrival time)");
+    System.out.println("  -p loadprofile=phase,...:  vary the target over the run, e.g. ramp:60:0:5000,step:30:1000:5000:5");
+    System.out.println("          (phases are constant, ramp, step, spike and sine; each is measured separately)");
+    System.out.println("  -p ratelimiter=perthread:  pace each thread to its share of the target, instead of sharing");
+    System.out.println("          one schedule; -p ratelimiter.burst=n bounds the operations the shared one catches up on");
+    System.out.println("  -p search.slo=READ:99:5000,...:  search for the highest target at which each operation's");
+    System.out.println("          percentile latency stays within the bound (see also search.min, search.max,");
+    System.out.println("          search.trialtime, search.precision and search.tolerance)");
+    System.out.println("  -p warmup.time=n, -p warmup.ops=n:  warm up for n seconds or n operations before");
+    System.out.println("          measuring (warm-up latencies are discarded unless warmup.export=true)");
+    System.out.println("  -p metrics.port=n:  serve live metrics at http://host:n/metrics (Prometheus) and");
+    System.out.println("          /metrics.json, updated every metrics.interval seconds (default: 10)");
     System.out.println("");
     System.out.println("Required properties:");
     System.out.println("  "+WORKLOAD_PROPERTY+": the name of the workload class to use (e.g. com.yahoo.ycsb.workloads.CoreWorkload)");
@@ -515,8 +424,8 @@ public class Client
    * loaded from conf.
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
-      throws IOException
+  private static void exportMeasurements(Properties props, long opcount, long runtime,
+      ThroughputSearch search, RateLimiter limiter) throws IOException
   {
     MeasurementsExporter exporter = null;
     try
@@ -549,6 +458,16 @@ public class Client
       double throughput = 1000.0 * (opcount) / (runtime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
 
+      if (limiter != null)
+      {
+        OneMeasurement.writeLong(exporter, "OVERALL", "SkippedByRateLimiter(ops)", limiter.getSkipped());
+      }
+
+      if (search != null)
+      {
+        search.exportResults(exporter);
+      }
+
       Measurements.getMeasurements().exportMeasurements(exporter);
     } finally
     {
@@ -728,6 +647,7 @@ public class Client
     }
 
     props=fileprops;
+    props.setProperty(DO_TRANSACTIONS_PROPERTY,String.valueOf(dotransactions));
 
     if (!checkRequiredProperties(props))
     {
@@ -749,6 +669,91 @@ public class Client
       targetperthreadperms=targetperthread/1000.0;
     }
 
+    LoadProfile profile=null;
+    String profilespec=props.getProperty(LOAD_PROFILE_PROPERTY);
+    if (profilespec!=null)
+    {
+      if (target>0)
+      {
+        System.out.println("Specify either a target throughput (-target) or a "+LOAD_PROFILE_PROPERTY+", not both");
+        System.exit(0);
+      }
+      try
+      {
+        profile=LoadProfile.parse(profilespec);
+      }
+      catch (IllegalArgumentException e)
+      {
+        System.out.println(e.getMessage());
+        System.exit(0);
+      }
+    }
+
+    ThroughputSearch search=null;
+    if (props.getProperty(ThroughputSearch.SLO_PROPERTY)!=null)
+    {
+      if (target>0 || profile!=null || !dotransactions)
+      {
+        System.out.println("The throughput search runs transactions at targets of its own; do not use it with -load, -target or a "+LOAD_PROFILE_PROPERTY);
+        System.exit(0);
+      }
+      if (!props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY,"hdrhistogram").startsWith("hdrhistogram"))
+      {
+        System.out.println("The throughput search needs a measurement type with an HdrHistogram");
+        System.exit(0);
+      }
+      try
+      {
+        search=new ThroughputSearch(props);
+      }
+      catch (IllegalArgumentException e)
+      {
+        System.out.println(e.getMessage());
+        System.exit(0);
+      }
+      profile=search.getProfile();
+    }
+
+    double warmupTime=Double.parseDouble(props.getProperty(WARMUP_TIME_PROPERTY,WARMUP_TIME_PROPERTY_DEFAULT));
+    long warmupOps=Long.parseLong(props.getProperty(WARMUP_OPS_PROPERTY,WARMUP_OPS_PROPERTY_DEFAULT));
+    if (warmupTime<0 || warmupOps<0)
+    {
+      System.out.println("The "+WARMUP_TIME_PROPERTY+" and "+WARMUP_OPS_PROPERTY+" must not be negative");
+      System.exit(0);
+    }
+    if ((warmupTime>0 || warmupOps>0) && search!=null)
+    {
+      System.out.println("The throughput search settles at each target itself; do not use it with a warm-up");
+      System.exit(0);
+    }
+
+    String scheduler=props.getProperty(SCHEDULER_PROPERTY,SCHEDULER_PROPERTY_DEFAULT);
+    boolean openloop;
+    if (scheduler.equals("open"))
+    {
+      if (target<=0 && profile==null)
+      {
+        System.out.println("The open loop scheduler requires a target throughput (-target) or a "+LOAD_PROFILE_PROPERTY);
+        System.exit(0);
+      }
+      openloop=true;
+      // latencies are only meaningful from the scheduled arrival time, so measure those unless told otherwise
+      if (props.getProperty(Measurements.MEASUREMENT_INTERVAL)==null)
+      {
+        props.setProperty(Measurements.MEASUREMENT_INTERVAL,"intended");
+      }
+    }
+    else if (scheduler.equals("closed"))
+    {
+      openloop=false;
+    }
+    else
+    {
+      System.out.println("Unknown "+SCHEDULER_PROPERTY+" \""+scheduler+"\"");
+      System.exit(0);
+      return;
+    }
+
     System.out.println("YCSB Client 0.1");
     System.out.print("Command line:");
     for (int i=0; i<args.length; i++)
@@ -818,23 +823,60 @@ public class Client
 
     System.err.println("Starting test.");
 
-    int opcount;
-    if (dotransactions)
+    long opcount;
+    if (search!=null)
     {
-      opcount=Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
+      // the search decides when the run is over
+      opcount=0;
+    }
+    else if (dotransactions)
+    {
+      opcount=Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
     }
     else
     {
       if (props.containsKey(INSERT_COUNT_PROPERTY))
       {
-        opcount=Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
+        opcount=Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
       }
       else
       {
-        opcount=Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
+        opcount=Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
       }
     }
 
+    OpenLoopScheduler openloopscheduler=null;
+    if (openloop)
+    {
+      boolean poisson=props.getProperty(OPENLOOP_ARRIVALS_PROPERTY,OPENLOOP_ARRIVALS_PROPERTY_DEFAULT).equals("poisson");
+      int queuesize=Integer.parseInt(props.getProperty(OPENLOOP_QUEUE_SIZE_PROPERTY,OPENLOOP_QUEUE_SIZE_PROPERTY_DEFAULT));
+      openloopscheduler=new OpenLoopScheduler(workload,opcount,threadcount,profile!=null ? profile : LoadProfile.constant(target),poisson,queuesize);
+    }
+
+    RateLimiter limiter=null;
+    String ratelimiter=props.getProperty(RATE_LIMITER_PROPERTY,RATE_LIMITER_PROPERTY_DEFAULT);
+    if (!ratelimiter.equals("global") && !ratelimiter.equals("perthread"))
+    {
+      System.out.println("Unknown "+RATE_LIMITER_PROPERTY+" \""+ratelimiter+"\"");
+      System.exit(0);
+    }
+    if (!openloop && ratelimiter.equals("global") && (target>0 || profile!=null))
+    {
+      long burst=Long.parseLong(props.getProperty(RATE_LIMITER_BURST_PROPERTY,RATE_LIMITER_BURST_PROPERTY_DEFAULT));
+      limiter=new RateLimiter(profile!=null ? profile : LoadProfile.constant(target),burst);
+    }
+
+    ClientExecutor executor=null;
+    try
+    {
+      executor=ClientExecutor.create(props);
+    }
+    catch (IllegalArgumentException e)
+    {
+      System.out.println(e.getMessage());
+      System.exit(0);
+    }
+
     CountDownLatch completeLatch=new CountDownLatch(threadcount);
     final List<ClientThread> clients=new ArrayList<ClientThread>(threadcount);
     for (int threadid=0; threadid<threadcount; threadid++)
@@ -851,7 +893,7 @@ public class Client
       }
 
 
-      int threadopcount = opcount/threadcount;
+      long threadopcount = opcount/threadcount;
 
       // ensure correct number of operations, in case opcount is not a multiple of threadcount
       if (threadid<opcount%threadcount)
@@ -859,11 +901,25 @@ public class Client
         ++threadopcount;
       }
 
-      ClientThread t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch);
+      ClientThread t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch, openloopscheduler, profile, limiter, threadid, threadcount);
 
       clients.add(t);
     }
 
+    if (search!=null)
+    {
+      // the workload and the DBs have resolved the names of the operations they measure by now
+      try
+      {
+        search.checkOperations(Measurements.getMeasurements().getOpNames());
+      }
+      catch (IllegalArgumentException e)
+      {
+        System.out.println(e.getMessage());
+        System.exit(0);
+      }
+    }
+
     StatusThread statusthread=null;
 
     if (status)
@@ -874,40 +930,108 @@ public class Client
         standardstatus=true;
       }
       int statusIntervalSeconds = Integer.parseInt(props.getProperty("status.interval","10"));
-      statusthread=new StatusThread(completeLatch,clients,label,standardstatus,statusIntervalSeconds);
+      statusthread=new StatusThread(completeLatch,clients,label,standardstatus,statusIntervalSeconds,profile);
       statusthread.start();
     }
 
+    MetricsServer metrics=null;
+    if (props.getProperty(METRICS_PORT_PROPERTY)!=null)
+    {
+      try
+      {
+        metrics=new MetricsServer(props,clients);
+      }
+      catch (IllegalArgumentException e)
+      {
+        System.out.println(e.getMessage());
+        System.exit(0);
+      }
+      catch (IOException e)
+      {
+        System.out.println("Could not serve metrics on port "+props.getProperty(METRICS_PORT_PROPERTY)+": "+e.getMessage());
+        System.exit(0);
+      }
+    }
+
+    WarmupThread warmup=null;
+    if (warmupTime>0 || warmupOps>0)
+    {
+      Measurements.getMeasurements().startWarmup();
+      warmup=new WarmupThread(warmupTime,warmupOps,completeLatch,clients);
+    }
+
     long st=System.currentTimeMillis();
 
-    for (Thread t : clients)
+    if (metrics != null)
+    {
+      metrics.start();
+    }
+
+    executor.start(clients);
+
+    if (warmup != null)
+    {
+      warmup.start();
+    }
+
+    if (openloopscheduler != null)
     {
-      t.start();
+      openloopscheduler.start();
     }
 
     Thread terminator = null;
 
     if (maxExecutionTime > 0) {
-      terminator = new TerminatorThread(maxExecutionTime, clients, workload);
+      terminator = new TerminatorThread(maxExecutionTime, completeLatch, workload);
       terminator.start();
     }
 
-    int opsDone = 0;
+    long opsDone = 0;
+
+    try
+    {
+      if (search != null)
+      {
+        search.run(clients, completeLatch);
+        workload.requestStop();
+      }
+      completeLatch.await();
+    }
+    catch (InterruptedException e)
+    {
+    }
+    executor.shutdown();
+
+    for (ClientThread t : clients)
+    {
+      opsDone += t.getOpsDone();
+    }
+
+    long en=System.currentTimeMillis();
 
-    for (Thread t : clients)
+    if (warmup != null)
     {
       try
       {
-        t.join();
-        opsDone += ((ClientThread)t).getOpsDone();
+        // it returns as soon as it sees the clients completed
+        warmup.join();
       }
       catch (InterruptedException e)
       {
       }
+      if (warmup.isEnded())
+      {
+        // the run is measured from the end of the warm-up
+        st=warmup.getEndMillis();
+        opsDone-=warmup.getOpsAtEnd();
+      }
+      else
+      {
+        Measurements.getMeasurements().setExportWarmup(true);
+        System.err.println("The run ended during the warm-up; exporting the WARMUP measurements");
+      }
     }
 
-    long en=System.currentTimeMillis();
-
     if (terminator != null && !terminator.isInterrupted()) {
       terminator.interrupt();
     }
@@ -923,6 +1047,11 @@ public class Client
       }
     }
 
+    if (metrics != null)
+    {
+      metrics.stop();
+    }
+
     try
     {
       workload.cleanup();
@@ -936,7 +1065,7 @@ public class Client
 
     try
     {
-      exportMeasurements(props, opsDone, en - st);
+      exportMeasurements(props, opsDone, en - st, search, limiter);
     } catch (IOException e)
     {
       System.err.println("Could not export measurements, error: " + e.getMessage());
@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which threads the {@link ClientThread}s run on.
+ * <ul>
+ * <li>"platform" (default): one operating system thread per client.</li>
+ * <li>"pool": the clients are lightweight tasks multiplexed over a fixed pool of carrier threads. A
+ * client occupies a carrier only while it executes an operation; between throttled operations it is
+ * rescheduled instead of parking a thread, so tens of thousands of mostly idle clients are cheap. With
+ * the open loop scheduler a client waits for its next arrival on its carrier, so at most
+ * executor.poolsize operations are outstanding at a time; size the pool for the expected concurrency.</li>
+ * <li>"virtual": one virtual thread per client, on JVMs that support them. Falls back to "platform"
+ * otherwise.</li>
+ * </ul>
+ * Completion of the clients is signalled through their completion latch, not by joining threads.
+ */
+abstract class ClientExecutor
+{
+  /**
+   * The execution backend of the client threads: "platform", "pool" or "virtual".
+   */
+  public static final String EXECUTOR_PROPERTY="executor";
+  public static final String EXECUTOR_PROPERTY_DEFAULT="platform";
+
+  /**
+   * The number of carrier threads of the "pool" executor. Defaults to the number of processors.
+   */
+  public static final String POOL_SIZE_PROPERTY="executor.poolsize";
+
+  /**
+   * Creates the executor selected by the properties.
+   *
+   * @throws IllegalArgumentException if the executor is unknown.
+   */
+  public static ClientExecutor create(Properties props)
+  {
+    String name=props.getProperty(EXECUTOR_PROPERTY,EXECUTOR_PROPERTY_DEFAULT);
+    if (name.equals("platform"))
+    {
+      return new PlatformThreads();
+    }
+    else if (name.equals("pool"))
+    {
+      int poolsize=Integer.parseInt(props.getProperty(POOL_SIZE_PROPERTY,
+          String.valueOf(Runtime.getRuntime().availableProcessors())));
+      return new CarrierPool(poolsize);
+    }
+    else if (name.equals("virtual"))
+    {
+      if (VirtualThreads.isSupported())
+      {
+        return new VirtualThreads();
+      }
+      System.err.println("Virtual threads are not supported by this JVM, using platform threads.");
+      return new PlatformThreads();
+    }
+    throw new IllegalArgumentException("Unknown "+EXECUTOR_PROPERTY+" \""+name+"\"");
+  }
+
+  /**
+   * Starts running the clients.
+   */
+  public abstract void start(List<ClientThread> clients);
+
+  /**
+   * Releases the resources of the executor once all clients have completed.
+   */
+  public void shutdown()
+  {
+  }
+
+  /**
+   * One thread per client.
+   */
+  static class PlatformThreads extends ClientExecutor
+  {
+    @Override
+    public void start(List<ClientThread> clients)
+    {
+      for (ClientThread client : clients)
+      {
+        new Thread(client,"ClientThread-"+client._threadid).start();
+      }
+    }
+  }
+
+  /**
+   * One virtual thread per client, created reflectively as the code base targets older JVMs.
+   */
+  static class VirtualThreads extends ClientExecutor
+  {
+    private static final Method OF_VIRTUAL;
+    private static final Method UNSTARTED;
+
+    static
+    {
+      Method ofVirtual=null;
+      Method unstarted=null;
+      try
+      {
+        ofVirtual=Thread.class.getMethod("ofVirtual");
+        unstarted=Class.forName("java.lang.Thread$Builder").getMethod("unstarted",Runnable.class);
+      }
+      catch (Exception e)
+      {
+        ofVirtual=null;
+        unstarted=null;
+      }
+      OF_VIRTUAL=ofVirtual;
+      UNSTARTED=unstarted;
+    }
+
+    static boolean isSupported()
+    {
+      return OF_VIRTUAL != null;
+    }
+
+    @Override
+    public void start(List<ClientThread> clients)
+    {
+      for (ClientThread client : clients)
+      {
+        Thread t;
+        try
+        {
+          t=(Thread)UNSTARTED.invoke(OF_VIRTUAL.invoke(null),client);
+        }
+        catch (Exception e)
+        {
+          throw new IllegalStateException("Could not create a virtual thread",e);
+        }
+        t.setName("ClientThread-"+client._threadid);
+        t.start();
+      }
+    }
+  }
+
+  /**
+   * Runs the clients as tasks on a fixed pool of carrier threads, one operation per task.
+   */
+  static class CarrierPool extends ClientExecutor
+  {
+    private final ScheduledThreadPoolExecutor _pool;
+
+    CarrierPool(int poolsize)
+    {
+      final AtomicInteger count=new AtomicInteger();
+      _pool=new ScheduledThreadPoolExecutor(poolsize,new ThreadFactory()
+      {
+        public Thread newThread(Runnable r)
+        {
+          Thread t=new Thread(r,"ClientCarrier-"+count.getAndIncrement());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+
+    @Override
+    public void start(List<ClientThread> clients)
+    {
+      for (ClientThread client : clients)
+      {
+        _pool.execute(new Session(client));
+      }
+    }
+
+    @Override
+    public void shutdown()
+    {
+      _pool.shutdownNow();
+    }
+
+    /**
+     * Advances one client by a single operation and reschedules it for its next deadline.
+     */
+    private class Session implements Runnable
+    {
+      private final ClientThread _client;
+      private boolean _initialized;
+
+      Session(ClientThread client)
+      {
+        _client=client;
+      }
+
+      public void run()
+      {
+        boolean more;
+        try
+        {
+          if (!_initialized)
+          {
+            _initialized=true;
+            if (!_client.init())
+            {
+              _client.done();
+              return;
+            }
+            more=true;
+          }
+          else
+          {
+            more=_client.step();
+          }
+        }
+        catch (Exception e)
+        {
+          e.printStackTrace();
+          e.printStackTrace(System.out);
+          System.exit(0);
+          return;
+        }
+
+        if (!more)
+        {
+          try
+          {
+            _client.cleanup();
+          }
+          finally
+          {
+            _client.done();
+          }
+          return;
+        }
+
+        long delay=_client.getDeadline()-System.nanoTime();
+        if (delay > 0)
+        {
+          _pool.schedule(this,delay,TimeUnit.NANOSECONDS);
+        }
+        else
+        {
+          _pool.execute(this);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,370 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A client session executing transactions or data inserts against the database.
+ * <p>
+ * A session either runs to completion on a thread of its own ({@link #run()}) or is driven one
+ * operation at a time by a {@link ClientExecutor} that multiplexes many sessions over a few threads,
+ * using {@link #init()}, {@link #step()}, {@link #getDeadline()} and {@link #cleanup()}.
+ * </p>
+ *
+ * @author cooperb
+ *
+ */
+class ClientThread implements Runnable
+{
+  /** Counts down each of the clients completing. */
+  private final CountDownLatch _completeLatch;
+
+  private static boolean _spinSleep;
+  DB _db;
+  boolean _dotransactions;
+  Workload _workload;
+  long _opcount;
+  double _targetOpsPerMs;
+
+  long _opsdone;
+  int _threadid;
+  int _threadcount;
+  Object _workloadstate;
+  Properties _props;
+  long _targetOpsTickNs;
+  final Measurements _measurements;
+  /** If non-null, operations are taken from this open loop schedule instead of being throttled locally. */
+  final OpenLoopScheduler _scheduler;
+  /** If non-null, the target throughput follows this profile and operations are measured by phase. */
+  final LoadProfile _profile;
+  /** If non-null, operations are paced by this limiter shared by all clients instead of per client. */
+  final RateLimiter _limiter;
+  /** Whether the schedule ended before the next operation of this client was due. */
+  boolean _scheduleEnded;
+
+  /** When the throttled operations started. */
+  long _startTimeNanos;
+  /** The time before which the next operation must not start, or 0 if it may start right away. */
+  long _deadline;
+
+  /**
+   * Constructor.
+   *
+   * @param db the DB implementation to use
+   * @param dotransactions true to do transactions, false to insert data
+   * @param workload the workload to use
+   * @param props the properties defining the experiment
+   * @param opcount the number of operations (transactions or inserts) to do
+   * @param targetperthreadperms target number of operations per thread per ms
+   * @param completeLatch The latch tracking the completion of all clients.
+   * @param scheduler The open loop schedule to draw operations from, or null to run closed loop.
+   * @param profile The load profile to follow instead of the target, or null.
+   * @param limiter The rate limiter shared by the clients, or null to pace each client on its own.
+   * @param threadid The id of this client, from 0 to threadcount-1.
+   * @param threadcount The total number of clients.
+   */
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, long opcount, double targetperthreadperms, CountDownLatch completeLatch, OpenLoopScheduler scheduler, LoadProfile profile, RateLimiter limiter, int threadid, int threadcount)
+  {
+    _db=db;
+    _dotransactions=dotransactions;
+    _workload=workload;
+    _opcount=opcount;
+    _opsdone=0;
+    if(targetperthreadperms > 0){
+      _targetOpsPerMs=targetperthreadperms;
+      _targetOpsTickNs=(long)(1000000/_targetOpsPerMs);
+    }
+    _props=props;
+    _measurements = Measurements.getMeasurements();
+    _spinSleep = Boolean.valueOf(_props.getProperty("spin.sleep", "false"));
+    _completeLatch=completeLatch;
+    _scheduler=scheduler;
+    _profile=profile;
+    _limiter=limiter;
+    _threadid=threadid;
+    _threadcount=threadcount;
+  }
+
+  public long getOpsDone()
+  {
+    return _opsdone;
+  }
+
+  @Override
+  public void run()
+  {
+    try
+    {
+      if (!init())
+      {
+        return;
+      }
+
+      //NOTE: Switching to using nanoTime and parkNanos for time management here such that the measurements
+      // and the client thread have the same view on time.
+      sleepUntil(_deadline);
+      try
+      {
+        while (step())
+        {
+          sleepUntil(_deadline);
+        }
+      }
+      catch (Exception e)
+      {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+        System.exit(0);
+      }
+
+      cleanup();
+    }
+    finally
+    {
+      done();
+    }
+  }
+
+  /**
+   * Initializes the DB and the workload state of this client. Afterwards {@link #getDeadline()} tells
+   * when the first operation may start.
+   *
+   * @return false if the client could not be initialized and must not run.
+   */
+  boolean init()
+  {
+    try
+    {
+      _db.init();
+    }
+    catch (DBException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return false;
+    }
+
+    try
+    {
+      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
+    }
+    catch (WorkloadException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return false;
+    }
+
+    _startTimeNanos=System.nanoTime();
+    _deadline=0;
+
+    //spread the thread operations out so they don't all hit the DB at the same time
+    // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
+    // and the sleep() doesn't make sense for granularities < 1 ms anyway
+    if ((_scheduler == null) && (_limiter == null) && (_targetOpsPerMs > 0) && (_targetOpsPerMs <= 1.0))
+    {
+      // the tick exceeds an int for slow per-client targets, e.g. many mostly idle clients
+      long randomMinorDelay = (long) (Utils.random().nextDouble() * _targetOpsTickNs);
+      _startTimeNanos+=randomMinorDelay;
+      _deadline=_startTimeNanos;
+    }
+    if ((_scheduler == null) && (_limiter != null))
+    {
+      scheduleFromLimiter();
+    }
+    else if ((_scheduler == null) && (_profile != null))
+    {
+      scheduleFromProfile();
+    }
+    return true;
+  }
+
+  /**
+   * Sets the deadline of the next operation to the next slot of the shared rate limiter.
+   */
+  private void scheduleFromLimiter()
+  {
+    long deadline=_limiter.acquire();
+    if (deadline < 0)
+    {
+      _scheduleEnded=true;
+      _deadline=0;
+      return;
+    }
+    _deadline=deadline;
+  }
+
+  /**
+   * Sets the deadline of the next operation from the load profile. The clients take turns, operation n
+   * of the run going to client n modulo the number of clients, so that together they follow the profile.
+   */
+  private void scheduleFromProfile()
+  {
+    long offset=_profile.timeOfOpNs((double)_opsdone*_threadcount+_threadid);
+    if (offset < 0)
+    {
+      _scheduleEnded=true;
+      return;
+    }
+    _deadline=_profile.getStartNanos()+offset;
+  }
+
+  /**
+   * Executes the next operation. The caller must not call this again before {@link #getDeadline()}.
+   * In open loop mode this waits for the scheduler to issue the operation.
+   *
+   * @return false if the client is done and should be cleaned up.
+   */
+  boolean step() throws InterruptedException
+  {
+    if (_workload.isStopRequested())
+    {
+      return false;
+    }
+
+    if (_scheduler != null)
+    {
+      // the schedule, not this client's operation count, decides when the run is over
+      long arrival=_scheduler.take();
+      if (arrival < 0)
+      {
+        return false;
+      }
+      _measurements.setIntendedStartTimeNs(arrival);
+      if (_profile != null)
+      {
+        setPhase(arrival);
+      }
+    }
+    else
+    {
+      if ((_opcount != 0) && (_opsdone >= _opcount))
+      {
+        return false;
+      }
+      if (_scheduleEnded)
+      {
+        return false;
+      }
+      if (_profile != null)
+      {
+        setPhase(_deadline);
+      }
+      _measurements.setIntendedStartTimeNs(_deadline);
+    }
+
+    boolean more;
+    if (_dotransactions)
+    {
+      more = _workload.doTransaction(_db,_workloadstate);
+    }
+    else
+    {
+      more = _workload.doInsert(_db,_workloadstate);
+    }
+    if (!more)
+    {
+      return false;
+    }
+
+    _opsdone++;
+
+    //throttle the operations
+    if ((_scheduler == null) && (_limiter != null))
+    {
+      scheduleFromLimiter();
+    }
+    else if ((_scheduler == null) && (_profile != null))
+    {
+      scheduleFromProfile();
+    }
+    else if ((_scheduler == null) && (_targetOpsPerMs > 0))
+    {
+      // delay until next tick
+      _deadline = _startTimeNanos + _opsdone*_targetOpsTickNs;
+    }
+    return true;
+  }
+
+  /**
+   * Measures the next operation under the phase of the profile it is scheduled in.
+   */
+  private void setPhase(long intendedStartNanos)
+  {
+    LoadProfile.Phase phase=_profile.phaseAt(intendedStartNanos);
+    _measurements.setPhase(phase == null ? null : phase.getName());
+  }
+
+  /**
+   * @return The time in nanoseconds before which the next operation must not start, or 0 if it may
+   *         start right away.
+   */
+  long getDeadline()
+  {
+    return _deadline;
+  }
+
+  /**
+   * Cleans up the DB. Does not count down the completion latch, see {@link #done()}.
+   */
+  void cleanup()
+  {
+    try
+    {
+      _measurements.setIntendedStartTimeNs(0);
+      _measurements.setPhase(null);
+      _db.cleanup();
+    }
+    catch (DBException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+  }
+
+  /**
+   * Marks this client as completed, whether or not it ran successfully.
+   */
+  void done()
+  {
+    _completeLatch.countDown();
+  }
+
+  static void sleepUntil(long deadline) {
+    long now = System.nanoTime();
+    while((now = System.nanoTime()) < deadline) {
+      if (!_spinSleep) {
+        LockSupport.parkNanos(deadline - now);
+      }
+    }
+  }
+
+  /**
+   * the total amount of work this thread is still expected to do
+   */
+  public long getOpsTodo()
+  {
+    long todo = _opcount - _opsdone;
+    return todo < 0 ? 0 : todo;
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+/**
+ * A ByteIterator that generates a random value a compressor can shrink by a given fraction.
+ * <p>
+ * The value is a random chunk of (1 - compressibility) times its length, repeated until the value is
+ * full, the way LevelDB's db_bench makes compressible values: any LZ-style compressor with a window
+ * at least as large as the chunk stores the repetitions as back references, so the compressed value
+ * is about as large as the chunk. The chunk is made of printable characters, like the values of
+ * {@link RandomByteIterator}, or of arbitrary bytes. Printable characters carry about 6.6 bits per
+ * byte, so entropy coding shrinks them by a further 18%; arbitrary bytes do not compress at all,
+ * which makes the ratio exact, but some bindings expect values to be valid strings.
+ * </p>
+ */
+public class CompressibleByteIterator extends ByteIterator {
+  private final byte[] chunk;
+  private final long len;
+  private long off;
+
+  /**
+   * @param len The length of the value.
+   * @param compressibility The fraction of the value that is a repetition, from 0 (incompressible) to
+   *        below 1.
+   * @param binary Whether the chunk holds arbitrary bytes instead of printable characters.
+   */
+  public CompressibleByteIterator(long len, double compressibility, boolean binary) {
+    this.len = len;
+    this.chunk = new byte[chunkLength(len, compressibility)];
+    random(chunk, 0, chunk.length, binary);
+  }
+
+  /**
+   * @return The length of the random chunk of a value of the given length.
+   */
+  public static int chunkLength(long len, double compressibility) {
+    return (int) Math.max(1, Math.min(len, Math.round(len * (1 - compressibility))));
+  }
+
+  /**
+   * Fills a range of the buffer with a compressible value, for workloads that keep their values in a
+   * buffer of their own.
+   */
+  public static void fill(byte[] buffer, int offset, int length, double compressibility, boolean binary) {
+    if (length == 0) {
+      return;
+    }
+    int chunkLength = chunkLength(length, compressibility);
+    random(buffer, offset, chunkLength, binary);
+    // copy what is there already, doubling it every time
+    for (int filled = chunkLength; filled < length; filled *= 2) {
+      System.arraycopy(buffer, offset, buffer, offset + filled, Math.min(filled, length - filled));
+    }
+  }
+
+  private static void random(byte[] buffer, int offset, int length, boolean binary) {
+    if (binary) {
+      XorShiftRandom.current().nextBytes(buffer, offset, length);
+    } else {
+      XorShiftRandom.current().nextPrintable(buffer, offset, length);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < len;
+  }
+
+  public byte nextByte() {
+    return chunk[(int) (off++ % chunk.length)];
+  }
+
+  @Override
+  public int nextBuf(byte[] buffer, int bufferOffset) {
+    int end = (int) Math.min(buffer.length, bufferOffset + (len - off));
+    int pos = bufferOffset;
+    while (pos < end) {
+      int from = (int) (off % chunk.length);
+      int n = Math.min(chunk.length - from, end - pos);
+      System.arraycopy(chunk, from, buffer, pos, n);
+      pos += n;
+      off += n;
+    }
+    return pos;
+  }
+
+  @Override
+  public long bytesLeft() {
+    return len - off;
+  }
+}
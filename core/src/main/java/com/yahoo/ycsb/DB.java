@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -134,4 +135,97 @@ public abstract class DB
 	 * @return The result of the operation.
 	 */
 	public abstract Status delete(String table, String key);
+
+	/**
+	 * Read a batch of records from the database. The default implementation reads the records one at a
+	 * time; override it if the database supports multi-gets.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results A List the field/value pairs of each record are added to, in the order of the keys
+	 * @return The result of the operation: {@link Status#OK} if every record was read, otherwise the first
+	 *         failure.
+	 */
+	public Status multiRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		Status res=Status.OK;
+		for (String key : keys)
+		{
+			HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+			Status status=read(table,key,fields,result);
+			if (res.isOk() && !status.isOk())
+			{
+				res=status;
+			}
+			results.add(result);
+		}
+		return res;
+	}
+
+	/**
+	 * Update a batch of records in the database. The default implementation updates the records one at a
+	 * time; override it if the database supports bulk writes.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values The field/value pairs to update for each record, in the order of the keys
+	 * @return The result of the operation: {@link Status#OK} if every record was updated, otherwise the first
+	 *         failure.
+	 */
+	public Status multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		Status res=Status.OK;
+		for (int i=0; i<keys.size(); i++)
+		{
+			Status status=update(table,keys.get(i),values.get(i));
+			if (res.isOk() && !status.isOk())
+			{
+				res=status;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Insert a batch of records in the database. The default implementation inserts the records one at a
+	 * time; override it if the database supports bulk writes.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values The field/value pairs to insert for each record, in the order of the keys
+	 * @return The result of the operation: {@link Status#OK} if every record was inserted, otherwise the first
+	 *         failure.
+	 */
+	public Status multiInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		Status res=Status.OK;
+		for (int i=0; i<keys.size(); i++)
+		{
+			Status status=insert(table,keys.get(i),values.get(i));
+			if (res.isOk() && !status.isOk())
+			{
+				res=status;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Insert a record in the database, and report when it is stored. The default implementation inserts
+	 * the record synchronously and then calls back; a DB that issues inserts asynchronously calls back
+	 * when the insert completes.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @param completion Called once with the result of the insert.
+	 * @return The result of the operation, or {@link Status#QUEUED} if it completes later.
+	 */
+	public Status insert(String table, String key, HashMap<String,ByteIterator> values, StatusFuture.Callback completion)
+	{
+		Status res=insert(table,key,values);
+		completion.completed(res);
+		return res;
+	}
 }
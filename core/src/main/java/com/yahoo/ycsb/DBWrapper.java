@@ -18,24 +18,62 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Semaphore;
 
 import com.yahoo.ycsb.measurements.Measurements;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
+ * <p>
+ * Batched operations are measured twice: once per batch under "BATCH-" followed by the operation name,
+ * and once per record under the operation name itself, with the batch latency amortized over its
+ * records so that batched and unbatched runs report comparable per-record numbers.
+ * </p>
+ * <p>
+ * If the real DB is an {@link AsyncDB} and {@link AsyncDB#INFLIGHT_PROPERTY} is set, operations are
+ * issued asynchronously: each call returns {@link Status#QUEUED} once a slot in the in-flight window is
+ * available, and the latency and return code are recorded by the completion callback.
+ * </p>
  */
 public class DBWrapper extends DB
 {
 	DB _db;
 	Measurements _measurements;
 
+	/** The real DB if operations are to be issued asynchronously, null otherwise. */
+	AsyncDB _async;
+	/** Bounds the number of outstanding asynchronous operations. */
+	Semaphore _inflight;
+	int _inflightLimit;
+
+	/** The measurement indices of the operations, resolved once per instance. */
+	final int _readIndex;
+	final int _scanIndex;
+	final int _updateIndex;
+	final int _insertIndex;
+	final int _deleteIndex;
+	final int _cleanupIndex;
+	final int _batchReadIndex;
+	final int _batchUpdateIndex;
+	final int _batchInsertIndex;
+
 	public DBWrapper(DB db)
 	{
 		_db=db;
 		_measurements=Measurements.getMeasurements();
+		_readIndex=_measurements.getOpIndex("READ");
+		_scanIndex=_measurements.getOpIndex("SCAN");
+		_updateIndex=_measurements.getOpIndex("UPDATE");
+		_insertIndex=_measurements.getOpIndex("INSERT");
+		_deleteIndex=_measurements.getOpIndex("DELETE");
+		_cleanupIndex=_measurements.getOpIndex("CLEANUP");
+		_batchReadIndex=_measurements.getOpIndex("BATCH-READ");
+		_batchUpdateIndex=_measurements.getOpIndex("BATCH-UPDATE");
+		_batchInsertIndex=_measurements.getOpIndex("BATCH-INSERT");
 	}
 
 	/**
@@ -61,6 +99,17 @@ public class DBWrapper extends DB
 	public void init() throws DBException
 	{
 		_db.init();
+
+		_inflightLimit=Integer.parseInt(getProperties().getProperty(AsyncDB.INFLIGHT_PROPERTY,AsyncDB.INFLIGHT_PROPERTY_DEFAULT));
+		if (_inflightLimit>0)
+		{
+			if (!(_db instanceof AsyncDB))
+			{
+				throw new DBException(AsyncDB.INFLIGHT_PROPERTY+" requires an asynchronous DB, "+_db.getClass().getName()+" is not");
+			}
+			_async=(AsyncDB)_db;
+			_inflight=new Semaphore(_inflightLimit);
+		}
 	}
 
 	/**
@@ -69,11 +118,17 @@ public class DBWrapper extends DB
 	 */
 	public void cleanup() throws DBException
 	{
+		if (_async!=null)
+		{
+			// let the outstanding operations complete and be measured before tearing down the DB
+			_inflight.acquireUninterruptibly(_inflightLimit);
+			_inflight.release(_inflightLimit);
+		}
         long ist=_measurements.getIntendedtartTimeNs();
         long st = System.nanoTime();
 		_db.cleanup();
         long en=System.nanoTime();
-        measure("CLEANUP",ist, st, en);
+        measure(_cleanupIndex,ist, st, en, null);
 	}
 
 	/**
@@ -88,11 +143,17 @@ public class DBWrapper extends DB
 	public Status read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
 	{
 	    long ist=_measurements.getIntendedtartTimeNs();
+	    if (_async!=null)
+	    {
+	        acquireSlot();
+	        long st = System.nanoTime();
+	        return track(_async.readAsync(table,key,fields,result),_readIndex,ist,st);
+	    }
 	    long st = System.nanoTime();
 	    Status res=_db.read(table,key,fields,result);
 		long en=System.nanoTime();
-		measure("READ",ist, st, en);
-	    _measurements.reportStatus("READ",res);
+		measure(_readIndex,ist, st, en, res);
+	    _measurements.reportStatus(_readIndex,res);
 		return res;
 	}
 
@@ -109,18 +170,59 @@ public class DBWrapper extends DB
 	public Status scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
 	{
 	    long ist=_measurements.getIntendedtartTimeNs();
+	    if (_async!=null)
+	    {
+	        acquireSlot();
+	        long st = System.nanoTime();
+	        return track(_async.scanAsync(table,startkey,recordcount,fields,result),_scanIndex,ist,st);
+	    }
 	    long st = System.nanoTime();
 	    Status res=_db.scan(table,startkey,recordcount,fields,result);
 		long en=System.nanoTime();
-		measure("SCAN",ist, st, en);
-	    _measurements.reportStatus("SCAN",res);
+		measure(_scanIndex,ist, st, en, res);
+	    _measurements.reportStatus(_scanIndex,res);
 		return res;
 	}
 
-    private void measure(String op, long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
-        _measurements.measure(op, (int)((endTimeNanos-startTimeNanos)/1000));
-	    _measurements.measureIntended(op, (int)((endTimeNanos-intendedStartTimeNanos)/1000));
+    private void measure(int op, long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos, Status res) {
+        _measurements.measure(op, endTimeNanos-startTimeNanos, res);
+	    _measurements.measureIntended(op, endTimeNanos-intendedStartTimeNanos, res);
     }
+
+	/**
+	 * Blocks until the number of outstanding asynchronous operations is below the window size.
+	 */
+	private void acquireSlot()
+	{
+		_inflight.acquireUninterruptibly();
+	}
+
+	/**
+	 * Measures an asynchronous operation once it completes and frees its slot in the window. The phase
+	 * of the operation is resolved here, as the completion runs on a thread of the binding.
+	 */
+	private Status track(StatusFuture future, final int op, final long ist, final long st)
+	{
+		final int phaseOp=_measurements.getPhaseOpIndex(op);
+		future.addCallback(new StatusFuture.Callback()
+		{
+			public void completed(Status res)
+			{
+				try
+				{
+					long en=System.nanoTime();
+					_measurements.measure(op,phaseOp,en-st,res);
+					_measurements.measureIntended(op,phaseOp,en-ist,res);
+					_measurements.reportStatus(op,phaseOp,res);
+				}
+				finally
+				{
+					_inflight.release();
+				}
+			}
+		});
+		return Status.QUEUED;
+	}
 	
 	/**
 	 * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
@@ -134,11 +236,17 @@ public class DBWrapper extends DB
 	public Status update(String table, String key, HashMap<String,ByteIterator> values)
 	{
 	    long ist=_measurements.getIntendedtartTimeNs();
+	    if (_async!=null)
+	    {
+	        acquireSlot();
+	        long st = System.nanoTime();
+	        return track(_async.updateAsync(table,key,values),_updateIndex,ist,st);
+	    }
 	    long st = System.nanoTime();
 		Status res=_db.update(table,key,values);
 		long en=System.nanoTime();
-		measure("UPDATE",ist, st, en);
-		_measurements.reportStatus("UPDATE",res);
+		measure(_updateIndex,ist, st, en, res);
+		_measurements.reportStatus(_updateIndex,res);
 		return res;
 	}
 
@@ -154,14 +262,39 @@ public class DBWrapper extends DB
 	public Status insert(String table, String key, HashMap<String,ByteIterator> values)
 	{
 	    long ist=_measurements.getIntendedtartTimeNs();
+	    if (_async!=null)
+	    {
+	        acquireSlot();
+	        long st = System.nanoTime();
+	        return track(_async.insertAsync(table,key,values),_insertIndex,ist,st);
+	    }
 	    long st = System.nanoTime();
 		Status res=_db.insert(table,key,values);
 		long en=System.nanoTime();
-		measure("INSERT",ist, st, en);
-		_measurements.reportStatus("INSERT",res);
+		measure(_insertIndex,ist, st, en, res);
+		_measurements.reportStatus(_insertIndex,res);
 		return res;
 	}
 
+	/**
+	 * Insert a record in the database, calling back when the insert completed, which is later if it is
+	 * issued asynchronously.
+	 */
+	public Status insert(String table, String key, HashMap<String,ByteIterator> values, StatusFuture.Callback completion)
+	{
+	    if (_async!=null)
+	    {
+	        long ist=_measurements.getIntendedtartTimeNs();
+	        acquireSlot();
+	        long st = System.nanoTime();
+	        StatusFuture future=_async.insertAsync(table,key,values);
+	        Status res=track(future,_insertIndex,ist,st);
+	        future.addCallback(completion);
+	        return res;
+	    }
+	    return super.insert(table,key,values,completion);
+	}
+
 	/**
 	 * Delete a record from the database. 
 	 *
@@ -172,11 +305,92 @@ public class DBWrapper extends DB
 	public Status delete(String table, String key)
 	{
 	    long ist=_measurements.getIntendedtartTimeNs();
+	    if (_async!=null)
+	    {
+	        acquireSlot();
+	        long st = System.nanoTime();
+	        return track(_async.deleteAsync(table,key),_deleteIndex,ist,st);
+	    }
 	    long st = System.nanoTime();
 		Status res=_db.delete(table,key);
 		long en=System.nanoTime();
-		measure("DELETE",ist, st, en);
-		_measurements.reportStatus("DELETE",res);
+		measure(_deleteIndex,ist, st, en, res);
+		_measurements.reportStatus(_deleteIndex,res);
+		return res;
+	}
+
+	/**
+	 * Read a batch of records from the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results A List the field/value pairs of each record are added to, in the order of the keys
+	 * @return The result of the operation.
+	 */
+	public Status multiRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		long ist=_measurements.getIntendedtartTimeNs();
+		long st = System.nanoTime();
+		Status res=_db.multiRead(table,keys,fields,results);
+		long en=System.nanoTime();
+		measureBatch(_batchReadIndex,_readIndex,keys.size(),res,ist,st,en);
+		return res;
+	}
+
+	/**
+	 * Update a batch of records in the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values The field/value pairs to update for each record, in the order of the keys
+	 * @return The result of the operation.
+	 */
+	public Status multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long ist=_measurements.getIntendedtartTimeNs();
+		long st = System.nanoTime();
+		Status res=_db.multiUpdate(table,keys,values);
+		long en=System.nanoTime();
+		measureBatch(_batchUpdateIndex,_updateIndex,keys.size(),res,ist,st,en);
 		return res;
 	}
+
+	/**
+	 * Insert a batch of records in the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values The field/value pairs to insert for each record, in the order of the keys
+	 * @return The result of the operation.
+	 */
+	public Status multiInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long ist=_measurements.getIntendedtartTimeNs();
+		long st = System.nanoTime();
+		Status res=_db.multiInsert(table,keys,values);
+		long en=System.nanoTime();
+		measureBatch(_batchInsertIndex,_insertIndex,keys.size(),res,ist,st,en);
+		return res;
+	}
+
+	/**
+	 * Records the latency of a batch, and its latency amortized over the records of the batch.
+	 */
+	private void measureBatch(int batchOp, int op, int records, Status res, long ist, long st, long en)
+	{
+		measure(batchOp,ist,st,en,res);
+		_measurements.reportStatus(batchOp,res);
+		if (records==0)
+		{
+			return;
+		}
+		long amortizedNanos=(en-st)/records;
+		long amortizedIntendedNanos=(en-ist)/records;
+		for (int i=0; i<records; i++)
+		{
+			measure(op,en-amortizedIntendedNanos,en-amortizedNanos,en,res);
+			_measurements.reportStatus(op,res);
+		}
+	}
 }
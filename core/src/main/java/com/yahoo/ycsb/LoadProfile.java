@@ -0,0 +1,425 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A schedule of target throughputs that changes over the run, made of phases that each get measurements
+ * of their own.
+ * <p>
+ * The schedule is given as comma separated phases of colon separated values, with durations in seconds
+ * and rates in operations per second:
+ * </p>
+ * <ul>
+ * <li>constant:seconds:rate
+ * <li>ramp:seconds:fromrate:torate, a linear ramp
+ * <li>step:seconds:fromrate:torate:steps, that many plateaus of the given duration each, with rates
+ * evenly spaced from fromrate to torate
+ * <li>spike:seconds:baserate:peakrate:peakseconds, the base rate with a spike to the peak rate in the
+ * middle, as three phases
+ * <li>sine:seconds:meanrate:amplitude:periodseconds, a rate varying like the sine, e.g. to follow a
+ * daily cycle
+ * </ul>
+ * <p>
+ * Rather than a rate per client, the profile tells when the n-th operation of the whole run is due:
+ * the time at which the integral of the rate reaches n. Clients taking turns over n, or an open loop
+ * scheduler issuing n after n, thereby follow the profile together however the rate changes. The run
+ * ends with the last phase. The clock starts when the first operation is scheduled.
+ * </p>
+ * <p>
+ * A profile that does not end can be continued at another rate while it runs, see
+ * {@link #continueWith(String, double, double)}.
+ * </p>
+ */
+public class LoadProfile
+{
+  /**
+   * The schedule of target throughputs, replacing the fixed target.
+   */
+  public static final String LOAD_PROFILE_PROPERTY="loadprofile";
+
+  private enum Shape
+  {
+    CONSTANT, RAMP, SINE
+  }
+
+  /**
+   * A phase of the profile, measured separately under its name.
+   */
+  public static final class Phase
+  {
+    private final String _name;
+    private final Shape _shape;
+    private final double _seconds;
+    /** The rate at the start, and the rate at the end of a ramp or the mean rate of a sine. */
+    private final double _from;
+    private final double _to;
+    private final double _amplitude;
+    private final double _period;
+
+    /** The start of the phase since the start of the profile, and the operations due before it. */
+    private long _startNanos;
+    private long _endNanos;
+    private double _startOps;
+    private double _endOps;
+
+    Phase(String name, Shape shape, double seconds, double from, double to, double amplitude, double period)
+    {
+      _name=name;
+      _shape=shape;
+      _seconds=seconds;
+      _from=from;
+      _to=to;
+      _amplitude=amplitude;
+      _period=period;
+    }
+
+    public String getName()
+    {
+      return _name;
+    }
+
+    /**
+     * @return The target throughput in operations per second, t seconds into the phase.
+     */
+    public double rate(double t)
+    {
+      switch (_shape)
+      {
+      case RAMP:
+        return _from+(_to-_from)*t/_seconds;
+      case SINE:
+        return _from+_amplitude*Math.sin(2*Math.PI*t/_period);
+      default:
+        return _from;
+      }
+    }
+
+    /**
+     * @return The number of operations due in the first t seconds of the phase.
+     */
+    double ops(double t)
+    {
+      switch (_shape)
+      {
+      case RAMP:
+        return _from*t+(_to-_from)*t*t/(2*_seconds);
+      case SINE:
+        return _from*t+_amplitude*_period/(2*Math.PI)*(1-Math.cos(2*Math.PI*t/_period));
+      default:
+        return _from*t;
+      }
+    }
+
+    /**
+     * @return The seconds into the phase at which n operations are due, the inverse of {@link #ops(double)}.
+     */
+    double time(double n)
+    {
+      switch (_shape)
+      {
+      case RAMP:
+        // the root of (to-from)/(2*seconds)*t^2 + from*t - n, in the form that also holds for a flat ramp
+        double a=(_to-_from)/(2*_seconds);
+        double root=Math.sqrt(Math.max(0,_from*_from+4*a*n));
+        return _from+root==0 ? 0 : 2*n/(_from+root);
+      case SINE:
+        // the integral of a sine has no closed inverse, but is monotonic as the rate is never negative
+        double lo=0;
+        double hi=_seconds;
+        for (int i=0; i<60; i++)
+        {
+          double mid=(lo+hi)/2;
+          if (ops(mid)<n)
+          {
+            lo=mid;
+          }
+          else
+          {
+            hi=mid;
+          }
+        }
+        return hi;
+      default:
+        return n/_from;
+      }
+    }
+  }
+
+  /** The phases, replaced as a whole when the profile is continued. */
+  private volatile Phase[] _phases;
+  private final AtomicLong _startNanos=new AtomicLong();
+
+  private LoadProfile(List<Phase> phases)
+  {
+    _phases=phases.toArray(new Phase[phases.size()]);
+    long startNanos=0;
+    double startOps=0;
+    for (Phase phase : phases)
+    {
+      phase._startNanos=startNanos;
+      phase._startOps=startOps;
+      if (Double.isInfinite(phase._seconds))
+      {
+        phase._endNanos=Long.MAX_VALUE;
+        phase._endOps=Double.POSITIVE_INFINITY;
+      }
+      else
+      {
+        phase._endNanos=startNanos+(long)(phase._seconds*TimeUnit.SECONDS.toNanos(1));
+        phase._endOps=startOps+phase.ops(phase._seconds);
+      }
+      startNanos=phase._endNanos;
+      startOps=phase._endOps;
+    }
+  }
+
+  /**
+   * @return A profile of a single phase at the given rate that never ends, as set by a fixed target.
+   */
+  public static LoadProfile constant(double opsPerSec)
+  {
+    return constant("constant", opsPerSec);
+  }
+
+  /**
+   * @return A profile of a single phase with the given name at the given rate that never ends.
+   */
+  public static LoadProfile constant(String name, double opsPerSec)
+  {
+    return new LoadProfile(Collections.singletonList(
+        new Phase(name, Shape.CONSTANT, Double.POSITIVE_INFINITY, opsPerSec, opsPerSec, 0, 0)));
+  }
+
+  /**
+   * Parses a profile, see the class description.
+   *
+   * @throws IllegalArgumentException If the profile is malformed.
+   */
+  public static LoadProfile parse(String spec)
+  {
+    DecimalFormat d=new DecimalFormat("#.##");
+    List<Phase> phases=new ArrayList<Phase>();
+    for (String part : spec.split(","))
+    {
+      String[] values=part.trim().split(":");
+      String type=values[0];
+      double[] args=new double[values.length-1];
+      for (int i=0; i<args.length; i++)
+      {
+        try
+        {
+          args[i]=Double.parseDouble(values[i+1]);
+        }
+        catch (NumberFormatException e)
+        {
+          throw new IllegalArgumentException("Invalid number \""+values[i+1]+"\" in load profile phase "+part);
+        }
+        if (!(args[i]>=0) || Double.isInfinite(args[i]))
+        {
+          throw new IllegalArgumentException("Negative or infinite value in load profile phase "+part);
+        }
+      }
+      String prefix="phase"+(phases.size()+1)+"-";
+      if (type.equals("constant") && args.length==2)
+      {
+        phases.add(new Phase(prefix+type+"-"+d.format(args[1]), Shape.CONSTANT, args[0], args[1], args[1], 0, 0));
+      }
+      else if (type.equals("ramp") && args.length==3)
+      {
+        phases.add(new Phase(prefix+type+"-"+d.format(args[1])+"-"+d.format(args[2]), Shape.RAMP,
+            args[0], args[1], args[2], 0, 0));
+      }
+      else if (type.equals("step") && args.length==4 && args[3]>=1)
+      {
+        int steps=(int)args[3];
+        for (int i=0; i<steps; i++)
+        {
+          double rate=steps==1 ? args[1] : args[1]+(args[2]-args[1])*i/(steps-1);
+          phases.add(new Phase("phase"+(phases.size()+1)+"-step-"+d.format(rate), Shape.CONSTANT,
+              args[0], rate, rate, 0, 0));
+        }
+      }
+      else if (type.equals("spike") && args.length==4 && args[3]<=args[0])
+      {
+        double base=(args[0]-args[3])/2;
+        phases.add(new Phase(prefix+"base-"+d.format(args[1]), Shape.CONSTANT, base, args[1], args[1], 0, 0));
+        phases.add(new Phase("phase"+(phases.size()+1)+"-spike-"+d.format(args[2]), Shape.CONSTANT,
+            args[3], args[2], args[2], 0, 0));
+        phases.add(new Phase("phase"+(phases.size()+1)+"-base-"+d.format(args[1]), Shape.CONSTANT,
+            args[0]-args[3]-base, args[1], args[1], 0, 0));
+      }
+      else if (type.equals("sine") && args.length==4 && args[2]<=args[1] && args[3]>0)
+      {
+        phases.add(new Phase(prefix+type+"-"+d.format(args[1]), Shape.SINE, args[0], args[1], args[1], args[2], args[3]));
+      }
+      else
+      {
+        throw new IllegalArgumentException("Invalid load profile phase \""+part+"\"");
+      }
+    }
+    return new LoadProfile(phases);
+  }
+
+  public List<Phase> getPhases()
+  {
+    return Collections.unmodifiableList(Arrays.asList(_phases));
+  }
+
+  /**
+   * Ends the last phase now and continues with a new phase at the given rate that does not end.
+   * <p>
+   * Operations the clients are behind on are not made up at the new rate: the new phase starts from
+   * the given operation if it is earlier than the one due now, so that a rate that was too high does
+   * not flood the next phase with late operations.
+   * </p>
+   *
+   * @param name The name of the new phase.
+   * @param opsPerSec The rate of the new phase, above 0.
+   * @param fromOp The number of operations the clients completed.
+   * @throws IllegalStateException If the last phase ends by itself.
+   */
+  public synchronized void continueWith(String name, double opsPerSec, double fromOp)
+  {
+    Phase[] phases=_phases;
+    Phase last=phases[phases.length-1];
+    if (last._endNanos!=Long.MAX_VALUE || last._shape!=Shape.CONSTANT)
+    {
+      throw new IllegalStateException("Only a profile ending in a constant phase without end can be continued");
+    }
+    long now=System.nanoTime()-getStartNanos();
+    double dueOps=last._startOps+last.ops((double)(now-last._startNanos)/TimeUnit.SECONDS.toNanos(1));
+    double startOps=Math.max(last._startOps,Math.min(fromOp,dueOps));
+
+    Phase ended=new Phase(last._name, Shape.CONSTANT, last.time(startOps-last._startOps), last._from, last._from, 0, 0);
+    ended._startNanos=last._startNanos;
+    ended._startOps=last._startOps;
+    ended._endNanos=last._startNanos+(long)(ended._seconds*TimeUnit.SECONDS.toNanos(1));
+    ended._endOps=startOps;
+
+    Phase next=new Phase(name, Shape.CONSTANT, Double.POSITIVE_INFINITY, opsPerSec, opsPerSec, 0, 0);
+    next._startNanos=Math.max(now,ended._endNanos);
+    next._startOps=startOps;
+    next._endNanos=Long.MAX_VALUE;
+    next._endOps=Double.POSITIVE_INFINITY;
+
+    phases=Arrays.copyOf(phases,phases.length+1);
+    phases[phases.length-2]=ended;
+    phases[phases.length-1]=next;
+    _phases=phases;
+  }
+
+  /**
+   * @return The time the profile started, starting it now if it has not yet.
+   */
+  public long getStartNanos()
+  {
+    long start=_startNanos.get();
+    if (start==0)
+    {
+      _startNanos.compareAndSet(0,System.nanoTime());
+      start=_startNanos.get();
+    }
+    return start;
+  }
+
+  /**
+   * @return Whether the profile started, see {@link #getStartNanos()}.
+   */
+  public boolean isStarted()
+  {
+    return _startNanos.get()!=0;
+  }
+
+  /**
+   * @param n The number of the operation in the whole run, counting from 0; fractions are allowed.
+   * @return The nanoseconds since the start of the profile at which the operation is due, or a negative
+   *         value if it is not due before the profile ends.
+   */
+  public long timeOfOpNs(double n)
+  {
+    for (Phase phase : _phases)
+    {
+      if (n<phase._endOps)
+      {
+        double seconds=Math.min(phase.time(n-phase._startOps),phase._seconds);
+        return phase._startNanos+(long)(seconds*TimeUnit.SECONDS.toNanos(1));
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param offsetNanos The nanoseconds since the start of the profile.
+   * @return The number of operations due by then, the inverse of {@link #timeOfOpNs(double)}.
+   */
+  public double opsAt(long offsetNanos)
+  {
+    Phase[] phases=_phases;
+    for (Phase phase : phases)
+    {
+      if (offsetNanos<phase._endNanos)
+      {
+        if (offsetNanos<=phase._startNanos)
+        {
+          return phase._startOps;
+        }
+        return phase._startOps+phase.ops((double)(offsetNanos-phase._startNanos)/TimeUnit.SECONDS.toNanos(1));
+      }
+    }
+    return phases[phases.length-1]._endOps;
+  }
+
+  /**
+   * @param nanos A time as given by {@link System#nanoTime()}, after the start of the profile.
+   * @return The phase running at the time, or null if the profile ended.
+   */
+  public Phase phaseAt(long nanos)
+  {
+    long offset=nanos-getStartNanos();
+    for (Phase phase : _phases)
+    {
+      if (offset<phase._endNanos)
+      {
+        return phase;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return The target throughput in operations per second at the time, or 0 if the profile ended.
+   */
+  public double rateAt(long nanos)
+  {
+    Phase phase=phaseAt(nanos);
+    if (phase==null)
+    {
+      return 0;
+    }
+    double seconds=(double)(Math.max(0,nanos-getStartNanos())-phase._startNanos)/TimeUnit.SECONDS.toNanos(1);
+    return phase.rate(seconds);
+  }
+}
@@ -0,0 +1,457 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Serves live metrics of a running benchmark over HTTP, from the HTTP server of the JDK.
+ * <p>
+ * A sampler thread takes a snapshot of the measurements every interval: per operation the throughput
+ * and the latency percentiles of the interval and of the run so far, the counts per return code, and the
+ * progress of every client thread. The interval latencies are the difference of two copies of the
+ * cumulative histogram, taken with {@link Measurements#getHistogram(String)}, so the client threads keep
+ * recording without waiting and the status thread and the export see all latencies as before. Requests
+ * are answered from the last snapshot, however many scrapers there are.
+ * </p>
+ * <p>
+ * /metrics serves the Prometheus text format, /metrics.json the same snapshot as JSON. Latencies are in
+ * seconds for Prometheus and in the reporting unit for JSON. Latency percentiles need a measurement type
+ * with an HdrHistogram; with other types only the return codes and the progress are served.
+ * </p>
+ */
+class MetricsServer
+{
+  /** The port to serve the metrics on. Setting it starts the server. */
+  public static final String PORT_PROPERTY="metrics.port";
+
+  /** The seconds between snapshots. */
+  public static final String INTERVAL_PROPERTY="metrics.interval";
+  public static final String INTERVAL_PROPERTY_DEFAULT="10";
+
+  /** The comma separated latency percentiles to serve. */
+  public static final String PERCENTILES_PROPERTY="metrics.percentiles";
+  public static final String PERCENTILES_PROPERTY_DEFAULT="50,90,95,99,99.9,99.99";
+
+  /**
+   * The metrics of an operation at the time of a snapshot.
+   */
+  private static final class OperationSnapshot
+  {
+    final String _name;
+    final long _count;
+    final double _throughput;
+    final Histogram _interval;
+    final Histogram _cumulative;
+    final Map<Status, Long> _statusCounts;
+
+    OperationSnapshot(String name, long count, double throughput, Histogram interval, Histogram cumulative,
+        Map<Status, Long> statusCounts)
+    {
+      _name=name;
+      _count=count;
+      _throughput=throughput;
+      _interval=interval;
+      _cumulative=cumulative;
+      _statusCounts=statusCounts;
+    }
+  }
+
+  /**
+   * The metrics of the run at one time; never changed once taken.
+   */
+  private static final class Snapshot
+  {
+    final long _timestampMs;
+    final long _runtimeMs;
+    final long _intervalMs;
+    final List<OperationSnapshot> _operations;
+    final long[] _opsDone;
+    final long[] _opsTodo;
+
+    Snapshot(long timestampMs, long runtimeMs, long intervalMs, List<OperationSnapshot> operations,
+        long[] opsDone, long[] opsTodo)
+    {
+      _timestampMs=timestampMs;
+      _runtimeMs=runtimeMs;
+      _intervalMs=intervalMs;
+      _operations=operations;
+      _opsDone=opsDone;
+      _opsTodo=opsTodo;
+    }
+  }
+
+  private final HttpServer _server;
+  private final Thread _sampler;
+  private final List<ClientThread> _clients;
+  private final long _intervalNanos;
+  private final double[] _percentiles;
+  /** The percentiles as written, e.g. 99.9, and as quantiles, e.g. 0.999. */
+  private final String[] _percentileLabels;
+  private final String[] _quantileLabels;
+  private final double _unitsPerSecond;
+  private final String _unit;
+  private final JsonFactory _factory=new JsonFactory();
+
+  /** The cumulative histograms of the previous snapshot, by operation. Only used by the sampler. */
+  private final Map<String, Histogram> _previous=new HashMap<String, Histogram>();
+  private long _startMs;
+  private volatile Snapshot _snapshot;
+
+  /**
+   * Binds the server to the port of the properties.
+   *
+   * @throws IOException If the port cannot be bound.
+   * @throws IllegalArgumentException If the metrics properties are invalid.
+   */
+  MetricsServer(Properties props, List<ClientThread> clients) throws IOException
+  {
+    _clients=clients;
+    _intervalNanos=(long)(Double.parseDouble(props.getProperty(INTERVAL_PROPERTY,INTERVAL_PROPERTY_DEFAULT))*TimeUnit.SECONDS.toNanos(1));
+    if (!(_intervalNanos>0))
+    {
+      throw new IllegalArgumentException(INTERVAL_PROPERTY+" must be positive");
+    }
+    String[] percentiles=props.getProperty(PERCENTILES_PROPERTY,PERCENTILES_PROPERTY_DEFAULT).split(",");
+    _percentiles=new double[percentiles.length];
+    _percentileLabels=new String[percentiles.length];
+    _quantileLabels=new String[percentiles.length];
+    for (int i=0; i<percentiles.length; i++)
+    {
+      BigDecimal percentile=new BigDecimal(percentiles[i].trim());
+      _percentiles[i]=percentile.doubleValue();
+      if (!(_percentiles[i]>0 && _percentiles[i]<=100))
+      {
+        throw new IllegalArgumentException("Invalid percentile \""+percentiles[i]+"\" in "+PERCENTILES_PROPERTY);
+      }
+      _percentileLabels[i]=percentile.stripTrailingZeros().toPlainString();
+      _quantileLabels[i]=percentile.movePointLeft(2).stripTrailingZeros().toPlainString();
+    }
+    TimeUnit unit=Measurements.getReportingUnit(props);
+    _unitsPerSecond=unit.convert(1,TimeUnit.SECONDS);
+    _unit=Measurements.getUnitLabel(unit);
+
+    _server=HttpServer.create(new InetSocketAddress(Integer.parseInt(props.getProperty(PORT_PROPERTY))),0);
+    _server.createContext("/metrics",new HttpHandler()
+    {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        if (exchange.getRequestURI().getPath().equals("/metrics.json"))
+        {
+          respond(exchange,"application/json",toJson(_snapshot));
+        }
+        else if (exchange.getRequestURI().getPath().equals("/metrics"))
+        {
+          respond(exchange,"text/plain; version=0.0.4",toPrometheus(_snapshot));
+        }
+        else
+        {
+          exchange.sendResponseHeaders(404,-1);
+          exchange.close();
+        }
+      }
+    });
+    _sampler=new Thread("MetricsSampler")
+    {
+      @Override
+      public void run()
+      {
+        long deadline=System.nanoTime();
+        while (!isInterrupted())
+        {
+          _snapshot=sample();
+          deadline+=_intervalNanos;
+          long wait;
+          while (!isInterrupted() && (wait=deadline-System.nanoTime())>0)
+          {
+            try
+            {
+              TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            catch (InterruptedException e)
+            {
+              return;
+            }
+          }
+        }
+      }
+    };
+    _sampler.setDaemon(true);
+  }
+
+  /**
+   * @return The port the server is bound to.
+   */
+  int getPort()
+  {
+    return _server.getAddress().getPort();
+  }
+
+  /**
+   * Starts serving, with the run starting now.
+   */
+  void start()
+  {
+    _startMs=System.currentTimeMillis();
+    _snapshot=new Snapshot(_startMs,0,0,new ArrayList<OperationSnapshot>(),new long[0],new long[0]);
+    _sampler.start();
+    _server.start();
+    System.err.println("Serving metrics on port "+getPort()+" at /metrics and /metrics.json");
+  }
+
+  void stop()
+  {
+    _sampler.interrupt();
+    _server.stop(0);
+  }
+
+  private static void respond(HttpExchange exchange, String contentType, String body) throws IOException
+  {
+    byte[] bytes=body.getBytes("UTF-8");
+    exchange.getResponseHeaders().set("Content-Type",contentType+"; charset=utf-8");
+    exchange.sendResponseHeaders(200,bytes.length);
+    OutputStream out=exchange.getResponseBody();
+    try
+    {
+      out.write(bytes);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * Takes a snapshot of the measurements and the clients.
+   */
+  Snapshot sample()
+  {
+    long now=System.currentTimeMillis();
+    Snapshot last=_snapshot;
+    long intervalMs=now-last._timestampMs;
+    Measurements measurements=Measurements.getMeasurements();
+    List<OperationSnapshot> operations=new ArrayList<OperationSnapshot>();
+    for (String operation : measurements.getOperations())
+    {
+      Map<Status, Long> statusCounts=measurements.getStatusCounts(operation);
+      Histogram cumulative=measurements.getHistogram(operation);
+      if (cumulative==null)
+      {
+        long count=0;
+        for (Long statusCount : statusCounts.values())
+        {
+          count+=statusCount;
+        }
+        operations.add(new OperationSnapshot(operation,count,Double.NaN,null,null,statusCounts));
+        continue;
+      }
+      Histogram interval=cumulative.copy();
+      Histogram previous=_previous.get(operation);
+      if (previous!=null)
+      {
+        interval.subtract(previous);
+      }
+      _previous.put(operation,cumulative);
+      double throughput=intervalMs>0 ? 1000.0*interval.getTotalCount()/intervalMs : 0;
+      operations.add(new OperationSnapshot(operation,cumulative.getTotalCount(),throughput,interval,cumulative,statusCounts));
+    }
+    long[] opsDone=new long[_clients.size()];
+    long[] opsTodo=new long[_clients.size()];
+    for (int i=0; i<opsDone.length; i++)
+    {
+      opsDone[i]=_clients.get(i).getOpsDone();
+      opsTodo[i]=_clients.get(i).getOpsTodo();
+    }
+    return new Snapshot(now,now-_startMs,intervalMs,operations,opsDone,opsTodo);
+  }
+
+  String toPrometheus(Snapshot snapshot)
+  {
+    StringBuilder out=new StringBuilder();
+    out.append("# HELP ycsb_runtime_seconds Seconds since the clients started.\n");
+    out.append("# TYPE ycsb_runtime_seconds gauge\n");
+    out.append("ycsb_runtime_seconds ").append(format(snapshot._runtimeMs/1000.0)).append('\n');
+
+    out.append("# HELP ycsb_operations_total Operations measured.\n");
+    out.append("# TYPE ycsb_operations_total counter\n");
+    for (OperationSnapshot operation : snapshot._operations)
+    {
+      out.append("ycsb_operations_total{operation=\"").append(escape(operation._name)).append("\"} ")
+          .append(operation._count).append('\n');
+    }
+
+    out.append("# HELP ycsb_throughput_ops_per_second Operations per second over the last interval.\n");
+    out.append("# TYPE ycsb_throughput_ops_per_second gauge\n");
+    for (OperationSnapshot operation : snapshot._operations)
+    {
+      if (operation._cumulative!=null)
+      {
+        out.append("ycsb_throughput_ops_per_second{operation=\"").append(escape(operation._name)).append("\"} ")
+            .append(format(operation._throughput)).append('\n');
+      }
+    }
+
+    out.append("# HELP ycsb_latency_seconds Latency percentiles over the last interval and the whole run.\n");
+    out.append("# TYPE ycsb_latency_seconds gauge\n");
+    for (OperationSnapshot operation : snapshot._operations)
+    {
+      if (operation._cumulative!=null)
+      {
+        appendPercentiles(out,operation._name,"interval",operation._interval);
+        appendPercentiles(out,operation._name,"cumulative",operation._cumulative);
+      }
+    }
+
+    out.append("# HELP ycsb_status_total Operations by return code.\n");
+    out.append("# TYPE ycsb_status_total counter\n");
+    for (OperationSnapshot operation : snapshot._operations)
+    {
+      for (Map.Entry<Status, Long> entry : operation._statusCounts.entrySet())
+      {
+        out.append("ycsb_status_total{operation=\"").append(escape(operation._name)).append("\",status=\"")
+            .append(escape(entry.getKey().getName())).append("\"} ").append(entry.getValue()).append('\n');
+      }
+    }
+
+    out.append("# HELP ycsb_client_operations_done Operations done by each client thread.\n");
+    out.append("# TYPE ycsb_client_operations_done gauge\n");
+    for (int i=0; i<snapshot._opsDone.length; i++)
+    {
+      out.append("ycsb_client_operations_done{thread=\"").append(i).append("\"} ").append(snapshot._opsDone[i]).append('\n');
+    }
+    out.append("# HELP ycsb_client_operations_todo Operations left to each client thread, 0 if unbounded.\n");
+    out.append("# TYPE ycsb_client_operations_todo gauge\n");
+    for (int i=0; i<snapshot._opsTodo.length; i++)
+    {
+      out.append("ycsb_client_operations_todo{thread=\"").append(i).append("\"} ").append(snapshot._opsTodo[i]).append('\n');
+    }
+    return out.toString();
+  }
+
+  private void appendPercentiles(StringBuilder out, String operation, String window, Histogram histogram)
+  {
+    if (histogram.getTotalCount()==0)
+    {
+      return;
+    }
+    for (int i=0; i<_percentiles.length; i++)
+    {
+      out.append("ycsb_latency_seconds{operation=\"").append(escape(operation)).append("\",window=\"").append(window)
+          .append("\",quantile=\"").append(_quantileLabels[i]).append("\"} ")
+          .append(format(histogram.getValueAtPercentile(_percentiles[i])/_unitsPerSecond)).append('\n');
+    }
+  }
+
+  String toJson(Snapshot snapshot) throws IOException
+  {
+    StringWriter out=new StringWriter();
+    JsonGenerator g=_factory.createJsonGenerator(out);
+    g.writeStartObject();
+    g.writeNumberField("timestamp",snapshot._timestampMs);
+    g.writeNumberField("runtimeMs",snapshot._runtimeMs);
+    g.writeNumberField("intervalMs",snapshot._intervalMs);
+    g.writeStringField("unit",_unit);
+    g.writeObjectFieldStart("operations");
+    for (OperationSnapshot operation : snapshot._operations)
+    {
+      g.writeObjectFieldStart(operation._name);
+      g.writeNumberField("count",operation._count);
+      if (operation._cumulative!=null)
+      {
+        g.writeNumberField("throughput",operation._throughput);
+        writeLatencies(g,"interval",operation._interval);
+        writeLatencies(g,"cumulative",operation._cumulative);
+      }
+      g.writeObjectFieldStart("status");
+      for (Map.Entry<Status, Long> entry : operation._statusCounts.entrySet())
+      {
+        g.writeNumberField(entry.getKey().getName(),entry.getValue());
+      }
+      g.writeEndObject();
+      g.writeEndObject();
+    }
+    g.writeEndObject();
+    g.writeArrayFieldStart("threads");
+    for (int i=0; i<snapshot._opsDone.length; i++)
+    {
+      g.writeStartObject();
+      g.writeNumberField("thread",i);
+      g.writeNumberField("done",snapshot._opsDone[i]);
+      g.writeNumberField("todo",snapshot._opsTodo[i]);
+      g.writeEndObject();
+    }
+    g.writeEndArray();
+    g.writeEndObject();
+    g.close();
+    return out.toString();
+  }
+
+  private void writeLatencies(JsonGenerator g, String window, Histogram histogram) throws IOException
+  {
+    g.writeObjectFieldStart(window);
+    g.writeNumberField("count",histogram.getTotalCount());
+    if (histogram.getTotalCount()>0)
+    {
+      g.writeNumberField("min",histogram.getMinValue());
+      g.writeNumberField("max",histogram.getMaxValue());
+      g.writeNumberField("mean",histogram.getMean());
+      for (int i=0; i<_percentiles.length; i++)
+      {
+        g.writeNumberField("p"+_percentileLabels[i],histogram.getValueAtPercentile(_percentiles[i]));
+      }
+    }
+    g.writeEndObject();
+  }
+
+  /**
+   * @return The number without a fraction if it is whole, e.g. 0 rather than 0.0.
+   */
+  private static String format(double value)
+  {
+    if (value==Math.rint(value) && !Double.isInfinite(value))
+    {
+      return Long.toString((long)value);
+    }
+    return Double.toString(value);
+  }
+
+  private static String escape(String label)
+  {
+    return label.replace("\\","\\\\").replace("\"","\\\"").replace("\n","\\n");
+  }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues operations at a fixed (or Poisson distributed) arrival rate, or at the rates of a
+ * {@link LoadProfile}, independent of how quickly the database responds.
+ * <p>
+ * The scheduler places the intended start time of each operation into a bounded queue which is drained
+ * by the {@link ClientThread}s. The schedule is never pushed back: if the workers fall behind, arrival
+ * times keep advancing at the configured rate, the queue fills up and each operation's latency is
+ * measured from its scheduled arrival time. This avoids the coordinated omission of the closed loop
+ * throttle where a slow database silently lowers the offered load.
+ * </p>
+ */
+class OpenLoopScheduler extends Thread
+{
+  /** Marks the end of the schedule; each worker consumes exactly one. */
+  private static final long END_OF_SCHEDULE = -1L;
+
+  /** How often a blocked producer or consumer checks whether a stop was requested. */
+  private static final long POLL_INTERVAL_MS = 100;
+
+  private final BlockingQueue<Long> _queue;
+  private final Workload _workload;
+  private final long _opcount;
+  private final int _workers;
+  private final LoadProfile _profile;
+  private final boolean _poisson;
+
+  /**
+   * Creates a new scheduler.
+   *
+   * @param workload The workload, polled for stop requests.
+   * @param opcount The total number of operations to issue, or 0 for no limit.
+   * @param workers The number of worker threads draining the queue.
+   * @param profile The aggregate arrival rate over time.
+   * @param poisson If true arrivals are exponentially distributed around the rate, otherwise evenly spaced.
+   * @param queueSize The maximum number of issued but not yet started operations.
+   */
+  public OpenLoopScheduler(Workload workload, long opcount, int workers, LoadProfile profile,
+      boolean poisson, int queueSize)
+  {
+    super("OpenLoopScheduler");
+    setDaemon(true);
+    _queue=new ArrayBlockingQueue<Long>(queueSize);
+    _workload=workload;
+    _opcount=opcount;
+    _workers=workers;
+    _profile=profile;
+    _poisson=poisson;
+  }
+
+  @Override
+  public void run()
+  {
+    final long startTimeNanos=_profile.getStartNanos();
+    // Arrivals advance in operations rather than time, which the profile maps to the time they are
+    // due at its current rate. The position is a double so that rounding does not drift the rate.
+    double position=0;
+    try
+    {
+      for (long issued=0; (_opcount == 0) || (issued < _opcount); issued++)
+      {
+        long offset=_profile.timeOfOpNs(position);
+        if (offset < 0)
+        {
+          break;
+        }
+        long arrival=startTimeNanos+offset;
+        ClientThread.sleepUntil(arrival);
+        if (!offer(arrival))
+        {
+          break;
+        }
+        position+=nextInterval();
+      }
+
+      for (int i=0; i<_workers; i++)
+      {
+        if (!offer(END_OF_SCHEDULE))
+        {
+          break;
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      // Asked to shut down; the workers notice the stop request themselves.
+    }
+  }
+
+  /**
+   * Waits for the next scheduled operation.
+   *
+   * @return The intended start time of the operation in nanoseconds, or a negative value if the schedule
+   *         is exhausted or the workload was stopped.
+   */
+  public long take() throws InterruptedException
+  {
+    while (!_workload.isStopRequested())
+    {
+      Long arrival=_queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+      if (arrival != null)
+      {
+        return arrival;
+      }
+    }
+    return END_OF_SCHEDULE;
+  }
+
+  private boolean offer(long arrival) throws InterruptedException
+  {
+    while (!_workload.isStopRequested())
+    {
+      if (_queue.offer(arrival, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The number of operations until the next arrival, 1 on average.
+   */
+  private double nextInterval()
+  {
+    if (_poisson)
+    {
+      return -Math.log(1.0-Utils.random().nextDouble());
+    }
+    return 1;
+  }
+}
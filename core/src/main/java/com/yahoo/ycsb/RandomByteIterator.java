@@ -17,71 +17,51 @@
 package com.yahoo.ycsb;
 
 /**
- *  A ByteIterator that generates a random sequence of bytes.
+ *  A ByteIterator that generates a random sequence of printable bytes, eight at a time, with the
+ *  {@link XorShiftRandom} of the calling thread.
  */
 public class RandomByteIterator extends ByteIterator {
-  private long len;
+  private final long len;
   private long off;
-  private int bufOff;
-  private byte[] buf;
+  private final byte[] buf = new byte[8];
+  private int bufOff = buf.length;
 
-  @Override
-  public boolean hasNext() {
-    return (off + bufOff) < len;
-  }
-
-  private void fillBytesImpl(byte[] buffer, int base) {
-    int bytes = Utils.random().nextInt();
-    try {
-      buffer[base+0] = (byte)(((bytes) & 31) + ' ');
-      buffer[base+1] = (byte)(((bytes >> 5) & 63) + ' ');
-      buffer[base+2] = (byte)(((bytes >> 10) & 95) + ' ');
-      buffer[base+3] = (byte)(((bytes >> 15) & 31) + ' ');
-      buffer[base+4] = (byte)(((bytes >> 20) & 63) + ' ');
-      buffer[base+5] = (byte)(((bytes >> 25) & 95) + ' ');
-    } catch (ArrayIndexOutOfBoundsException e) { /* ignore it */ }
-  }
-
-  private void fillBytes() {
-    if(bufOff ==  buf.length) {
-      fillBytesImpl(buf, 0);
-      bufOff = 0;
-      off += buf.length;
-    }
+  /**
+   * Fills a range of the buffer with the same printable random bytes the iterator generates, for
+   * workloads that keep their values in a buffer of their own.
+   */
+  public static void randomBytes(byte[] buffer, int offset, int length) {
+    XorShiftRandom.current().nextPrintable(buffer, offset, length);
   }
 
   public RandomByteIterator(long len) {
     this.len = len;
-    this.buf = new byte[6];
-    this.bufOff = buf.length;
-    fillBytes();
-    this.off = 0;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < len;
   }
 
   public byte nextByte() {
-    fillBytes();
-    bufOff++;
-    return buf[bufOff-1];
+    if (bufOff == buf.length) {
+      XorShiftRandom.current().nextPrintable(buf, 0, buf.length);
+      bufOff = 0;
+    }
+    off++;
+    return buf[bufOff++];
   }
 
   @Override
   public int nextBuf(byte[] buffer, int bufferOffset) {
-    int ret;
-    if(len - off < buffer.length - bufferOffset) {
-      ret = (int)(len - off);
-    } else {
-      ret = buffer.length - bufferOffset;
-    }
-    int i;
-    for(i = 0; i < ret; i+=6) {
-      fillBytesImpl(buffer, i + bufferOffset);
-    }
-    off+=ret;
+    int ret = (int) Math.min(len - off, buffer.length - bufferOffset);
+    XorShiftRandom.current().nextPrintable(buffer, bufferOffset, ret);
+    off += ret;
     return ret + bufferOffset;
   }
 
   @Override
   public long bytesLeft() {
-    return len - off - bufOff;
+    return len - off;
   }
 }
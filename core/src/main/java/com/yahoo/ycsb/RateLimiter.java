@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces the closed loop clients together, handing out the send times of one shared schedule.
+ * <p>
+ * Each operation takes the next slot of an atomic sequence, and slot n is due when the
+ * {@link LoadProfile} of the run is due n operations. A client that stalls on a slow operation simply
+ * takes no slots meanwhile, so the other clients take them and the aggregate rate stays at the target,
+ * where target/threadcount per client would lose the share of the stalled client. Taking a slot is a
+ * single atomic increment.
+ * </p>
+ * <p>
+ * Clients that fell behind the schedule start their operations right away until they caught up. The
+ * burst limit bounds how many operations are due at once that way: slots further behind are skipped,
+ * and counted, rather than issued back to back.
+ * </p>
+ */
+class RateLimiter
+{
+  private final LoadProfile _profile;
+  private final long _burst;
+  private final AtomicLong _next=new AtomicLong();
+  private final AtomicLong _skipped=new AtomicLong();
+
+  /**
+   * @param profile The target throughput over time.
+   * @param burst The most operations that may be behind the schedule, or 0 for no limit.
+   */
+  RateLimiter(LoadProfile profile, long burst)
+  {
+    _profile=profile;
+    _burst=burst;
+  }
+
+  /**
+   * Takes the next slot.
+   *
+   * @return The time in nanoseconds at which the operation is due, or a negative value if the
+   *         profile ended.
+   */
+  long acquire()
+  {
+    long start=_profile.getStartNanos();
+    while (true)
+    {
+      long slot=_next.getAndIncrement();
+      long offset=_profile.timeOfOpNs(slot);
+      if (offset < 0)
+      {
+        return -1;
+      }
+      if (_burst > 0)
+      {
+        long now=nanoTime();
+        long behind=(long)_profile.opsAt(now-start)-slot;
+        if (behind > _burst)
+        {
+          // skip to the burst limit for all clients, then take a slot again
+          long target=slot+behind-_burst;
+          long next;
+          while ((next=_next.get()) < target)
+          {
+            if (_next.compareAndSet(next,target))
+            {
+              _skipped.addAndGet(target-next);
+            }
+          }
+          // the slot taken is skipped as well
+          _skipped.incrementAndGet();
+          continue;
+        }
+      }
+      return start+offset;
+    }
+  }
+
+  /**
+   * @return The current time in nanoseconds, on the clock of {@link System#nanoTime()}. Tests override it
+   *         to run the schedule on a clock of their own.
+   */
+  long nanoTime()
+  {
+    return System.nanoTime();
+  }
+
+  /**
+   * @return The number of slots skipped to bound bursts.
+   */
+  long getSkipped()
+  {
+    return _skipped.get();
+  }
+}
@@ -43,6 +43,13 @@ public class Status {
     return description;
   }
 
+  /**
+   * @return true if the operation succeeded or was accepted for asynchronous execution.
+   */
+  public boolean isOk() {
+    return this == OK || this == QUEUED;
+  }
+
   @Override
   public String toString() {
     return "Status [name=" + name + ", description=" + description + "]";
@@ -84,6 +91,7 @@ public class Status {
   public static final Status NOT_FOUND = new Status("NOT_FOUND", "The requested record was not found.");
   public static final Status NOT_IMPLEMENTED = new Status("NOT_IMPLEMENTED", "The operation is not implemented for the current binding.");
   public static final Status UNEXPECTED_STATE = new Status("UNEXPECTED_STATE", "The operation reported success, but the result was not as expected.");
+  public static final Status QUEUED = new Status("QUEUED", "The operation was accepted and will complete asynchronously.");
 
 }
 
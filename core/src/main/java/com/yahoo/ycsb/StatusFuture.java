@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pending result of an operation issued through an {@link AsyncDB}.
+ * <p>
+ * The binding completes the future exactly once, typically from its driver's I/O thread. Callbacks
+ * registered before completion run on the completing thread; callbacks registered afterwards run
+ * immediately on the registering thread. Callbacks should therefore be short and must not block.
+ * </p>
+ */
+public class StatusFuture
+{
+  /**
+   * Notified once the operation completes.
+   */
+  public interface Callback
+  {
+    /**
+     * @param status The result of the operation.
+     */
+    void completed(Status status);
+  }
+
+  private Status _status;
+  private List<Callback> _callbacks;
+
+  /**
+   * @return A future that is already completed with the given status.
+   */
+  public static StatusFuture completed(Status status)
+  {
+    StatusFuture future = new StatusFuture();
+    future._status = status;
+    return future;
+  }
+
+  /**
+   * Completes the operation and notifies the registered callbacks.
+   *
+   * @param status The result of the operation.
+   * @return false if the future had already been completed, in which case nothing happens.
+   */
+  public boolean complete(Status status)
+  {
+    List<Callback> callbacks;
+    synchronized (this)
+    {
+      if (_status != null)
+      {
+        return false;
+      }
+      _status = status;
+      callbacks = _callbacks;
+      _callbacks = null;
+      notifyAll();
+    }
+
+    if (callbacks != null)
+    {
+      for (Callback callback : callbacks)
+      {
+        callback.completed(status);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Registers a callback to be invoked with the result of the operation.
+   */
+  public void addCallback(Callback callback)
+  {
+    Status status;
+    synchronized (this)
+    {
+      if (_status == null)
+      {
+        if (_callbacks == null)
+        {
+          _callbacks = new ArrayList<Callback>(1);
+        }
+        _callbacks.add(callback);
+        return;
+      }
+      status = _status;
+    }
+    callback.completed(status);
+  }
+
+  /**
+   * @return true if the operation has completed.
+   */
+  public synchronized boolean isDone()
+  {
+    return _status != null;
+  }
+
+  /**
+   * Waits for the operation to complete.
+   *
+   * @return The result of the operation, or {@link Status#ERROR} if the wait was interrupted.
+   */
+  public synchronized Status get()
+  {
+    while (_status == null)
+    {
+      try
+      {
+        wait();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        return Status.ERROR;
+      }
+    }
+    return _status;
+  }
+}
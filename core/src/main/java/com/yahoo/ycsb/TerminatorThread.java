@@ -16,12 +16,12 @@
  */
 package com.yahoo.ycsb;
 
-import java.util.List;
-import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
- * A thread that waits for the maximum specified time and then interrupts all the client
- * threads passed as the Vector at initialization of this thread.
+ * A thread that waits for the maximum specified time, then requests the workload to stop and
+ * waits for all the clients to complete.
  * 
  * The maximum execution time passed is assumed to be in seconds.
  * 
@@ -30,15 +30,15 @@ import java.util.Vector;
  */
 public class TerminatorThread extends Thread {
   
-  private final List<? extends Thread> threads;
+  private final CountDownLatch completeLatch;
   private long maxExecutionTime;
   private Workload workload;
   private long waitTimeOutInMS;
   
-  public TerminatorThread(long maxExecutionTime, List<? extends Thread> threads, 
+  public TerminatorThread(long maxExecutionTime, CountDownLatch completeLatch,
       Workload workload) {
     this.maxExecutionTime = maxExecutionTime;
-    this.threads = threads;
+    this.completeLatch = completeLatch;
     this.workload = workload;
     waitTimeOutInMS = 2000;
     System.err.println("Maximum execution time specified as: " + maxExecutionTime + " secs");
@@ -54,17 +54,16 @@ public class TerminatorThread extends Thread {
     System.err.println("Maximum time elapsed. Requesting stop for the workload.");
     workload.requestStop();
     System.err.println("Stop requested for workload. Now Joining!");
-    for (Thread t : threads) {
-      while (t.isAlive()) {
-        try {
-          t.join(waitTimeOutInMS);
-          if (t.isAlive()) {
-            System.out.println("Still waiting for thread " + t.getName() + " to complete. " +
-                "Workload status: " + workload.isStopRequested());
-          }
-        } catch (InterruptedException e) {
-          // Do nothing. Don't know why I was interrupted.
+    boolean alldone = false;
+    while (!alldone) {
+      try {
+        alldone = completeLatch.await(waitTimeOutInMS, TimeUnit.MILLISECONDS);
+        if (!alldone) {
+          System.out.println("Still waiting for " + completeLatch.getCount() + " clients to complete. " +
+              "Workload status: " + workload.isStopRequested());
         }
+      } catch (InterruptedException e) {
+        // Do nothing. Don't know why I was interrupted.
       }
     }
   }
@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Searches for the highest target throughput at which the latencies still meet service level objectives,
+ * in one run against the loaded workload and the open DB connections.
+ * <p>
+ * The clients follow a {@link LoadProfile} that the search continues with a new phase for every trial.
+ * A trial runs at its target for a while and passes if the clients achieved the target, within a
+ * tolerance, and the latency percentiles of the phase meet every objective. Each trial is preceded by
+ * a phase at its target that is not judged, so that the clients settle at the new rate first. The
+ * search first tries the lowest and the highest target, then bisects between the highest target that
+ * passed and the lowest that failed until they are within the precision. Latencies are measured from the intended start of
+ * the operations if those are measured, and the measurement type must keep an HdrHistogram.
+ * </p>
+ */
+class ThroughputSearch
+{
+  /**
+   * The objectives, as comma separated operation:percentile:latency, with the latency in the reporting
+   * unit, e.g. READ:99:5000,UPDATE:99.9:20000. Setting it runs the search.
+   */
+  public static final String SLO_PROPERTY="search.slo";
+
+  public static final String MIN_PROPERTY="search.min";
+  public static final String MIN_PROPERTY_DEFAULT="100";
+
+  public static final String MAX_PROPERTY="search.max";
+  public static final String MAX_PROPERTY_DEFAULT="100000";
+
+  /** The seconds each trial runs. */
+  public static final String TRIAL_TIME_PROPERTY="search.trialtime";
+  public static final String TRIAL_TIME_PROPERTY_DEFAULT="30";
+
+  /** The seconds to run at the target of a trial before the trial starts. */
+  public static final String SETTLE_TIME_PROPERTY="search.settletime";
+  public static final String SETTLE_TIME_PROPERTY_DEFAULT="5";
+
+  /** The relative difference between a passing and a failing target at which the search stops. */
+  public static final String PRECISION_PROPERTY="search.precision";
+  public static final String PRECISION_PROPERTY_DEFAULT="0.05";
+
+  /** The fraction of the target throughput a trial may fall short of and still pass. */
+  public static final String TOLERANCE_PROPERTY="search.tolerance";
+  public static final String TOLERANCE_PROPERTY_DEFAULT="0.05";
+
+  /**
+   * A latency objective of an operation.
+   */
+  static final class Slo
+  {
+    final String _operation;
+    final double _percentile;
+    final double _latency;
+
+    Slo(String operation, double percentile, double latency)
+    {
+      _operation=operation;
+      _percentile=percentile;
+      _latency=latency;
+    }
+  }
+
+  /**
+   * The outcome of a trial, for the export.
+   */
+  private static final class Trial
+  {
+    final double _target;
+    final double _achieved;
+    final boolean _passed;
+
+    Trial(double target, double achieved, boolean passed)
+    {
+      _target=target;
+      _achieved=achieved;
+      _passed=passed;
+    }
+  }
+
+  private final List<Slo> _slos;
+  private final double _min;
+  private final double _max;
+  private final long _trialNanos;
+  private final long _settleNanos;
+  private final double _precision;
+  private final double _tolerance;
+  private final String _unit;
+  private final LoadProfile _profile;
+  private final List<Trial> _trials=new ArrayList<Trial>();
+  private final DecimalFormat _format=new DecimalFormat("#.##");
+
+  /** The highest target that passed, or -1. */
+  private double _best=-1;
+  /** Whether the clients finished before the search did. */
+  private boolean _incomplete;
+
+  /**
+   * @throws IllegalArgumentException If the search properties are invalid.
+   */
+  ThroughputSearch(Properties props)
+  {
+    _slos=parseSlos(props.getProperty(SLO_PROPERTY));
+    _min=Double.parseDouble(props.getProperty(MIN_PROPERTY,MIN_PROPERTY_DEFAULT));
+    _max=Double.parseDouble(props.getProperty(MAX_PROPERTY,MAX_PROPERTY_DEFAULT));
+    _trialNanos=(long)(Double.parseDouble(props.getProperty(TRIAL_TIME_PROPERTY,TRIAL_TIME_PROPERTY_DEFAULT))*TimeUnit.SECONDS.toNanos(1));
+    _settleNanos=(long)(Double.parseDouble(props.getProperty(SETTLE_TIME_PROPERTY,SETTLE_TIME_PROPERTY_DEFAULT))*TimeUnit.SECONDS.toNanos(1));
+    _precision=Double.parseDouble(props.getProperty(PRECISION_PROPERTY,PRECISION_PROPERTY_DEFAULT));
+    _tolerance=Double.parseDouble(props.getProperty(TOLERANCE_PROPERTY,TOLERANCE_PROPERTY_DEFAULT));
+    if (!(_min>0) || !(_max>=_min) || !(_trialNanos>0) || !(_settleNanos>=0) || !(_precision>0) || !(_tolerance>=0))
+    {
+      throw new IllegalArgumentException("Invalid search properties: "+MIN_PROPERTY+" and "+MAX_PROPERTY
+          +" must be positive and ordered, "+TRIAL_TIME_PROPERTY+" and "+PRECISION_PROPERTY+" positive");
+    }
+    _unit=Measurements.getUnitLabel(Measurements.getReportingUnit(props));
+    _profile=LoadProfile.constant(phaseName(1,_min)+"-settle",_min);
+  }
+
+  static List<Slo> parseSlos(String spec)
+  {
+    List<Slo> slos=new ArrayList<Slo>();
+    for (String part : spec.split(","))
+    {
+      String[] values=part.trim().split(":");
+      try
+      {
+        if (values.length==3)
+        {
+          double percentile=Double.parseDouble(values[1]);
+          double latency=Double.parseDouble(values[2]);
+          if (percentile>0 && percentile<=100 && latency>=0)
+          {
+            slos.add(new Slo(values[0],percentile,latency));
+            continue;
+          }
+        }
+      }
+      catch (NumberFormatException e)
+      {
+        // reported below
+      }
+      throw new IllegalArgumentException("Invalid objective \""+part+"\" in "+SLO_PROPERTY
+          +", expected operation:percentile:latency");
+    }
+    return slos;
+  }
+
+  /**
+   * Checks that the objectives name operations that can be measured, so that a misspelled operation
+   * is reported before the search runs rather than failing every trial.
+   *
+   * @param operations The names of the operations the workload and the DB measure.
+   * @throws IllegalArgumentException If an objective names another operation.
+   */
+  void checkOperations(Collection<String> operations)
+  {
+    for (Slo slo : _slos)
+    {
+      if (!operations.contains(slo._operation))
+      {
+        throw new IllegalArgumentException("Unknown operation \""+slo._operation+"\" in "+SLO_PROPERTY
+            +", the operations measured are "+operations);
+      }
+    }
+  }
+
+  private String phaseName(int trial, double target)
+  {
+    return "search"+trial+"-"+_format.format(target);
+  }
+
+  /**
+   * @return The profile the clients must follow.
+   */
+  LoadProfile getProfile()
+  {
+    return _profile;
+  }
+
+  /**
+   * Runs the trials, returning when the search is over or the clients completed.
+   */
+  void run(List<ClientThread> clients, CountDownLatch completeLatch) throws InterruptedException
+  {
+    if (!trial(_min,clients,completeLatch))
+    {
+      return;
+    }
+    _best=_min;
+    if (_max==_min || trial(_max,clients,completeLatch))
+    {
+      _best=_max;
+      return;
+    }
+    double failed=_max;
+    while (!_incomplete && failed-_best>_precision*failed)
+    {
+      double target=(_best+failed)/2;
+      if (trial(target,clients,completeLatch))
+      {
+        _best=target;
+      }
+      else
+      {
+        failed=target;
+      }
+    }
+  }
+
+  /**
+   * Runs the clients at the target for the trial time.
+   *
+   * @return Whether the trial passed.
+   */
+  private boolean trial(double target, List<ClientThread> clients, CountDownLatch completeLatch)
+      throws InterruptedException
+  {
+    String phase=phaseName(_trials.size()+1,target);
+    if (!_trials.isEmpty())
+    {
+      _profile.continueWith(phase+"-settle",target,opsDone(clients));
+    }
+    if (!completeLatch.await(_settleNanos,TimeUnit.NANOSECONDS))
+    {
+      _profile.continueWith(phase,target,opsDone(clients));
+    }
+    long opsBefore=opsDone(clients);
+    long start=System.nanoTime();
+    if (completeLatch.getCount()==0 || completeLatch.await(_trialNanos,TimeUnit.NANOSECONDS))
+    {
+      System.err.println("Search stopped: the clients completed during the trial at "+_format.format(target)+" ops/sec");
+      _incomplete=true;
+      return false;
+    }
+    double achieved=(opsDone(clients)-opsBefore)*(double)TimeUnit.SECONDS.toNanos(1)/(System.nanoTime()-start);
+
+    boolean passed=achieved>=(1-_tolerance)*target;
+    StringBuilder msg=new StringBuilder("Search trial ").append(_trials.size()+1).append(": target ")
+        .append(_format.format(target)).append(" ops/sec, achieved ").append(_format.format(achieved)).append(" ops/sec");
+    for (Slo slo : _slos)
+    {
+      Histogram histogram=Measurements.getMeasurements().getHistogram(phase+":"+slo._operation);
+      if (histogram==null || histogram.getTotalCount()==0)
+      {
+        // an objective that cannot be checked is not met
+        passed=false;
+        msg.append(", ").append(slo._operation).append(" not measured");
+        continue;
+      }
+      long latency=histogram.getValueAtPercentile(slo._percentile);
+      passed&=latency<=slo._latency;
+      msg.append(", ").append(slo._operation).append(" p").append(_format.format(slo._percentile)).append("=")
+          .append(latency).append(_unit);
+    }
+    msg.append(passed ? ": passed" : ": failed");
+    System.err.println(msg);
+    _trials.add(new Trial(target,achieved,passed));
+    return passed;
+  }
+
+  private static long opsDone(List<ClientThread> clients)
+  {
+    long ops=0;
+    for (ClientThread client : clients)
+    {
+      ops+=client.getOpsDone();
+    }
+    return ops;
+  }
+
+  /**
+   * Exports the trials and the highest target that passed, -1 if none did.
+   */
+  void exportResults(MeasurementsExporter exporter) throws IOException
+  {
+    for (int i=0; i<_trials.size(); i++)
+    {
+      Trial trial=_trials.get(i);
+      String metric="SEARCH-TRIAL"+(i+1);
+      exporter.write(metric,"Target(ops/sec)",trial._target);
+      exporter.write(metric,"Throughput(ops/sec)",trial._achieved);
+      exporter.write(metric,"Passed",trial._passed ? 1 : 0);
+    }
+    exporter.write("SEARCH","MaxSustainableThroughput(ops/sec)",_best);
+    exporter.write("SEARCH","Complete",_incomplete ? 0 : 1);
+  }
+}
@@ -35,22 +35,33 @@ public class Utils
     }
     return ret;
   }
+
+  /**
+   * Returns a uniformly distributed long between 0 (inclusive) and bound (exclusive), the long
+   * counterpart of Random.nextInt(int). Bounds within the int range draw exactly as nextInt(int) does.
+   */
+  public static long nextLong(Random random, long bound) {
+    if (bound <= 0) {
+      throw new IllegalArgumentException("bound must be positive: " + bound);
+    }
+    if (bound <= Integer.MAX_VALUE) {
+      return random.nextInt((int) bound);
+    }
+    long bits;
+    long value;
+    do {
+      bits = random.nextLong() >>> 1;
+      value = bits % bound;
+    } while (bits - value + (bound - 1) < 0);
+    return value;
+  }
       /**
        * Generate a random ASCII string of a given length.
        */
       public static String ASCIIString(int length)
       {
-	 int interval='~'-' '+1;
-	
         byte []buf = new byte[length];
-        random().nextBytes(buf);
-        for (int i = 0; i < length; i++) {
-          if (buf[i] < 0) {
-            buf[i] = (byte)((-buf[i] % interval) + ' ');
-          } else {
-            buf[i] = (byte)((buf[i] % interval) + ' ');
-          }
-        }
+        XorShiftRandom.current().nextPrintable(buf, 0, length);
         return new String(buf);
       }
       
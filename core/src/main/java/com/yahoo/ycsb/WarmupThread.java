@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A thread that ends the warm-up of the run once the warm-up time elapsed and the clients did the
+ * warm-up operations, whichever are specified.
+ * 
+ * Until then the operations are measured as WARMUP-operation, see {@link Measurements#startWarmup()}.
+ * The time and the number of operations at the end of the warm-up are kept, so that the throughput of
+ * the run can be computed without the warm-up.
+ */
+class WarmupThread extends Thread {
+
+  private final CountDownLatch completeLatch;
+  private final List<ClientThread> clients;
+  private final long warmupNanos;
+  private final long warmupOps;
+  private final long pollIntervalNanos;
+
+  private volatile boolean ended;
+  private volatile long endMillis;
+  private volatile long opsAtEnd;
+
+  /**
+   * @param warmupSeconds The seconds to warm up for, or 0.
+   * @param warmupOps The operations to warm up with, or 0.
+   */
+  WarmupThread(double warmupSeconds, long warmupOps, CountDownLatch completeLatch,
+      List<ClientThread> clients) {
+    super("WarmupThread");
+    setDaemon(true);
+    this.warmupNanos = (long) (warmupSeconds * TimeUnit.SECONDS.toNanos(1));
+    this.warmupOps = warmupOps;
+    this.completeLatch = completeLatch;
+    this.clients = clients;
+    pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    System.err.println("Warm-up specified as: "
+        + (warmupSeconds > 0 ? warmupSeconds + " secs" : "")
+        + (warmupSeconds > 0 && warmupOps > 0 ? " and " : "")
+        + (warmupOps > 0 ? warmupOps + " operations" : ""));
+  }
+
+  public void run() {
+    long deadline = System.nanoTime() + warmupNanos;
+    try {
+      while (true) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 && opsDone() >= warmupOps) {
+          break;
+        }
+        long wait = remaining > 0 && warmupOps == 0 ? remaining : pollIntervalNanos;
+        if (completeLatch.await(wait, TimeUnit.NANOSECONDS)) {
+          // the run is over, the warm-up never ended
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      return;
+    }
+    opsAtEnd = opsDone();
+    endMillis = System.currentTimeMillis();
+    Measurements.getMeasurements().endWarmup();
+    ended = true;
+    System.err.println("Warm-up complete after " + opsAtEnd + " operations. Now measuring.");
+  }
+
+  private long opsDone() {
+    long ops = 0;
+    for (ClientThread client : clients) {
+      ops += client.getOpsDone();
+    }
+    return ops;
+  }
+
+  /**
+   * @return Whether the warm-up ended before the run did.
+   */
+  public boolean isEnded() {
+    return ended;
+  }
+
+  /**
+   * @return The time in milliseconds at which the warm-up ended.
+   */
+  public long getEndMillis() {
+    return endMillis;
+  }
+
+  /**
+   * @return The operations the clients did during the warm-up.
+   */
+  public long getOpsAtEnd() {
+    return opsAtEnd;
+  }
+}
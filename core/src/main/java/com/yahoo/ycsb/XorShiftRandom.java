@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A per-thread xorshift64* generator for payload bytes.
+ * <p>
+ * {@link java.util.Random} updates its seed with a compare and set and yields 32 bits per call; this
+ * generator keeps a plain long of state per thread and yields 64 bits per step, which it turns into 8
+ * printable bytes. It is only meant for filling values: its numbers are good enough to make values
+ * incompressible, but the key and operation choices keep using {@link Utils#random()}. The states of
+ * the threads are seeded from a shared SplitMix64 sequence, so that no two threads produce the same
+ * bytes. Seeded generators produce the same bytes however the ranges are cut, as long as all but the
+ * last range filled are multiples of 8 bytes long.
+ * </p>
+ */
+public final class XorShiftRandom
+{
+  private static final AtomicLong seeds = new AtomicLong(System.nanoTime() ^ Utils.random().nextLong());
+  private static final ThreadLocal<XorShiftRandom> rng = new ThreadLocal<XorShiftRandom>();
+
+  private long state;
+
+  /**
+   * Creates a generator whose bytes only depend on the seed, for values that must be generated again
+   * to verify them.
+   */
+  public XorShiftRandom(long seed)
+  {
+    long mixed = splitMix(seed);
+    state = mixed == 0 ? 0x9E3779B97F4A7C15L : mixed;
+  }
+
+  /**
+   * @return The generator of the calling thread.
+   */
+  public static XorShiftRandom current()
+  {
+    XorShiftRandom ret = rng.get();
+    if (ret == null) {
+      ret = new XorShiftRandom(seeds.addAndGet(0x9E3779B97F4A7C15L));
+      rng.set(ret);
+    }
+    return ret;
+  }
+
+  private static long splitMix(long z)
+  {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * @return 64 random bits.
+   */
+  public long nextLong()
+  {
+    long x = state;
+    x ^= x >>> 12;
+    x ^= x << 25;
+    x ^= x >>> 27;
+    state = x;
+    return x * 0x2545F4914F6CDD1DL;
+  }
+
+  /**
+   * Fills a range of the buffer with random printable ASCII characters, from ' ' to '~'.
+   */
+  public void nextPrintable(byte[] buffer, int offset, int length)
+  {
+    int end = offset + length;
+    int i = offset;
+    for (; i + 8 <= end; i += 8) {
+      long bits = nextLong();
+      buffer[i] = printable(bits);
+      buffer[i + 1] = printable(bits >>> 8);
+      buffer[i + 2] = printable(bits >>> 16);
+      buffer[i + 3] = printable(bits >>> 24);
+      buffer[i + 4] = printable(bits >>> 32);
+      buffer[i + 5] = printable(bits >>> 40);
+      buffer[i + 6] = printable(bits >>> 48);
+      buffer[i + 7] = printable(bits >>> 56);
+    }
+    if (i < end) {
+      long bits = nextLong();
+      for (; i < end; i++, bits >>>= 8) {
+        buffer[i] = printable(bits);
+      }
+    }
+  }
+
+  /**
+   * Fills a range of the buffer with random bytes of any value.
+   */
+  public void nextBytes(byte[] buffer, int offset, int length)
+  {
+    int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      long bits = nextLong();
+      for (int n = Math.min(8, end - i); n > 0; n--, i++, bits >>>= 8) {
+        buffer[i] = (byte) bits;
+      }
+    }
+  }
+
+  /** Scales the low 8 bits to the 95 printable characters, without a division. */
+  private static byte printable(long bits)
+  {
+    return (byte) (' ' + ((((int) bits) & 0xff) * 95 >>> 8));
+  }
+}
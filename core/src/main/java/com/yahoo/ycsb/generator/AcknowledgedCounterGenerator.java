@@ -16,33 +16,42 @@
  */
 package com.yahoo.ycsb.generator;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A CounterGenerator that reports generated integers via lastInt()
  * only after they have been acknowledged.
+ * <p>
+ * Acknowledgements are recorded in bitmap segments of {@link #SEGMENT_SIZE} values, created when the
+ * first value of a segment is acknowledged and dropped once the limit moved past it, so the number of
+ * values in flight is only bounded by memory (a segment takes 8 KB). Acknowledging sets a bit with a
+ * compare and set and then advances the limit over the run of acknowledged values following it, also
+ * with a compare and set; there are no locks, and whichever thread acknowledges the value right after
+ * the limit moves it on.
+ * </p>
  */
 public class AcknowledgedCounterGenerator extends CounterGenerator
 {
-	/** The size of the window of pending id ack's. 2^20 = {@value} */
-	static final int WINDOW_SIZE = Integer.rotateLeft(1, 20);
+	/** The number of values per bitmap segment. 2^16 = {@value} */
+	static final int SEGMENT_SIZE = 1 << 16;
 
-	/** The mask to use to turn an id into a slot in {@link #window}. */
-	private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+	private static final int SEGMENT_SHIFT = 16;
+	private static final int WORDS_PER_SEGMENT = SEGMENT_SIZE / 64;
 
-	private final ReentrantLock lock;
-	private final boolean[] window;
-	private volatile int limit;
+	private final ConcurrentMap<Long, AtomicLongArray> segments;
+	private final AtomicLong limit;
 
 	/**
 	 * Create a counter that starts at countstart.
 	 */
-	public AcknowledgedCounterGenerator(int countstart)
+	public AcknowledgedCounterGenerator(long countstart)
 	{
 		super(countstart);
-		lock = new ReentrantLock();
-		window = new boolean[WINDOW_SIZE];
-		limit = countstart - 1;
+		segments = new ConcurrentHashMap<Long, AtomicLongArray>();
+		limit = new AtomicLong(countstart - 1);
 	}
 
 	/**
@@ -50,43 +59,87 @@ public class AcknowledgedCounterGenerator extends CounterGenerator
 	 * (as opposed to the highest generated counter value).
 	 */
 	@Override
-	public int lastInt()
+	public long lastLong()
 	{
-		return limit;
+		return limit.get();
 	}
 
 	/**
 	 * Make a generated counter value available via lastInt().
 	 */
-	public void acknowledge(int value)
+	public void acknowledge(long value)
 	{
-		final int currentSlot = (value & WINDOW_MASK);
-		if (window[currentSlot] == true) {
-			throw new RuntimeException("Too many unacknowledged insertion keys.");
+		if (value <= limit.get())
+		{
+			throw new IllegalStateException("Key " + value + " was already acknowledged.");
 		}
+		AtomicLongArray segment = segment(value >>> SEGMENT_SHIFT, true);
+		int word = (int) ((value >>> 6) & (WORDS_PER_SEGMENT - 1));
+		long bit = 1L << (value & 63);
+		while (true)
+		{
+			long bits = segment.get(word);
+			if ((bits & bit) != 0)
+			{
+				throw new IllegalStateException("Key " + value + " was already acknowledged.");
+			}
+			if (segment.compareAndSet(word, bits, bits | bit))
+			{
+				break;
+			}
+		}
+		advance();
+	}
 
-		window[currentSlot] = true;
-
-		if (lock.tryLock()) {
-			// move a contiguous sequence from the window
-			// over to the "limit" variable
-			try {
-			  // Only loop through the entire window at most once.
-			  int beforeFirstSlot = (limit & WINDOW_MASK);
-				int index;
-				for (index = limit + 1; index != beforeFirstSlot; ++index) {
-					int slot = (index & WINDOW_MASK);
-					if (!window[slot]) {
-						break;
-					}
-
-					window[slot] = false;
+	/**
+	 * Moves the limit over the acknowledged values following it. Every acknowledgement calls this after
+	 * setting its bit, so the value right after the limit is never left behind: either this call sees its
+	 * bit, or the thread that set the bit sees the limit this call published.
+	 */
+	private void advance()
+	{
+		while (true)
+		{
+			long current = limit.get();
+			long next = current + 1;
+			AtomicLongArray segment = segment(next >>> SEGMENT_SHIFT, false);
+			if (segment == null)
+			{
+				return;
+			}
+			// the run of set bits from next to the end of its word
+			int offset = (int) (next & 63);
+			long bits = segment.get((int) ((next >>> 6) & (WORDS_PER_SEGMENT - 1))) >>> offset;
+			int run = Long.numberOfTrailingZeros(~bits);
+			if (run == 0)
+			{
+				return;
+			}
+			run = Math.min(run, 64 - offset);
+			long updated = current + run;
+			if (limit.compareAndSet(current, updated))
+			{
+				if ((updated + 1) >>> SEGMENT_SHIFT != next >>> SEGMENT_SHIFT)
+				{
+					// the limit left this segment behind; no value in it can be acknowledged any more
+					segments.remove(next >>> SEGMENT_SHIFT);
 				}
+			}
+		}
+	}
 
-				limit = index - 1;
-			} finally {
-				lock.unlock();
+	private AtomicLongArray segment(long index, boolean create)
+	{
+		AtomicLongArray segment = segments.get(index);
+		if (segment == null && create)
+		{
+			AtomicLongArray created = new AtomicLongArray(WORDS_PER_SEGMENT);
+			segment = segments.putIfAbsent(index, created);
+			if (segment == null)
+			{
+				segment = created;
 			}
 		}
+		return segment;
 	}
 }
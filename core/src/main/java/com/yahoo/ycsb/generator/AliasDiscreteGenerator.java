@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Chooses from a discrete set of weighted values in constant time, using the alias method (Walker,
+ * with Vose's construction of the table).
+ * <p>
+ * The table is built once, when the first value is drawn after values were added, in time linear in
+ * the number of values. Drawing a value takes a single random number whatever the number of values,
+ * and the values are returned as they were added, so callers can draw enums or indices directly
+ * instead of parsing strings. Drawing is thread safe; values should all be added before the first
+ * draw.
+ * </p>
+ *
+ * @param <V> The type of the values.
+ */
+public class AliasDiscreteGenerator<V> extends Generator
+{
+	private final List<V> _values=new ArrayList<V>();
+	private final List<Double> _weights=new ArrayList<Double>();
+
+	/** The current table, rebuilt after values were added. */
+	private volatile Table<V> _table;
+
+	/** Not synchronized, like the last values of the other generators. */
+	private V _lastvalue;
+
+	/**
+	 * An immutable alias table. Column i is chosen uniformly; it yields value i with probability
+	 * _probability[i] and value _alias[i] otherwise.
+	 */
+	private static final class Table<V>
+	{
+		final Object[] _values;
+		final double[] _probability;
+		final int[] _alias;
+
+		Table(List<V> values, List<Double> weights)
+		{
+			int n=values.size();
+			_values=values.toArray();
+			_probability=new double[n];
+			_alias=new int[n];
+
+			double sum=0;
+			for (double weight : weights)
+			{
+				sum+=weight;
+			}
+			if (sum<=0)
+			{
+				throw new IllegalStateException("The weights sum to "+sum);
+			}
+
+			// scale the weights so that they average 1, then pair each column below 1 with one above
+			double[] scaled=new double[n];
+			int[] small=new int[n];
+			int[] large=new int[n];
+			int smallcount=0;
+			int largecount=0;
+			for (int i=0; i<n; i++)
+			{
+				scaled[i]=weights.get(i)*n/sum;
+				if (scaled[i]<1.0)
+				{
+					small[smallcount++]=i;
+				}
+				else
+				{
+					large[largecount++]=i;
+				}
+			}
+			while (smallcount>0 && largecount>0)
+			{
+				int less=small[--smallcount];
+				int more=large[--largecount];
+				_probability[less]=scaled[less];
+				_alias[less]=more;
+				scaled[more]=(scaled[more]+scaled[less])-1.0;
+				if (scaled[more]<1.0)
+				{
+					small[smallcount++]=more;
+				}
+				else
+				{
+					large[largecount++]=more;
+				}
+			}
+			// whatever is left is 1 up to rounding errors
+			while (largecount>0)
+			{
+				int i=large[--largecount];
+				_probability[i]=1.0;
+				_alias[i]=i;
+			}
+			while (smallcount>0)
+			{
+				int i=small[--smallcount];
+				_probability[i]=1.0;
+				_alias[i]=i;
+			}
+		}
+
+		int next()
+		{
+			// one uniform number picks the column, and its fraction decides between the column and its alias
+			double u=Utils.random().nextDouble()*_probability.length;
+			int column=(int)u;
+			if (column>=_probability.length)
+			{
+				column=_probability.length-1;
+			}
+			return (u-column)<_probability[column] ? column : _alias[column];
+		}
+	}
+
+	/**
+	 * Adds a value with the given weight. Weights are relative; they need not sum to 1.
+	 */
+	public synchronized void addValue(double weight, V value)
+	{
+		if (weight<0 || Double.isNaN(weight) || Double.isInfinite(weight))
+		{
+			throw new IllegalArgumentException("Invalid weight "+weight+" for "+value);
+		}
+		_values.add(value);
+		_weights.add(weight);
+		_table=null;
+	}
+
+	/**
+	 * @return The number of values that were added.
+	 */
+	public synchronized int size()
+	{
+		return _values.size();
+	}
+
+	private Table<V> table()
+	{
+		Table<V> table=_table;
+		if (table==null)
+		{
+			synchronized (this)
+			{
+				table=_table;
+				if (table==null)
+				{
+					if (_values.isEmpty())
+					{
+						throw new IllegalStateException("No values to choose from");
+					}
+					table=new Table<V>(_values,_weights);
+					_table=table;
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @return The position of the next value, in the order the values were added.
+	 */
+	public int nextIndex()
+	{
+		return table().next();
+	}
+
+	/**
+	 * @return The next value in the distribution.
+	 */
+	@SuppressWarnings("unchecked")
+	public V nextValue()
+	{
+		Table<V> table=table();
+		V value=(V)table._values[table.next()];
+		_lastvalue=value;
+		return value;
+	}
+
+	/**
+	 * Generate the next string in the distribution.
+	 */
+	@Override
+	public String nextString()
+	{
+		return String.valueOf(nextValue());
+	}
+
+	/**
+	 * Return the previous string generated by the distribution; e.g., returned from the last nextString() call.
+	 * Calling lastString() should not advance the distribution or have any side effects. If nextString() has not yet
+	 * been called, lastString() should return something reasonable.
+	 */
+	@Override
+	public String lastString()
+	{
+		V value=_lastvalue;
+		return String.valueOf(value==null ? nextValue() : value);
+	}
+}
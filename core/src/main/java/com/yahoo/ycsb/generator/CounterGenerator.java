@@ -17,22 +17,22 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Generates a sequence of integers 0, 1, ...
  */
 public class CounterGenerator extends IntegerGenerator
 {
-	final AtomicInteger counter;
+	final AtomicLong counter;
 
 	/**
 	 * Create a counter that starts at countstart
 	 */
-	public CounterGenerator(int countstart)
+	public CounterGenerator(long countstart)
 	{
-		counter=new AtomicInteger(countstart);
-		setLastInt(counter.get()-1);
+		counter=new AtomicLong(countstart);
+		setLastLong(counter.get()-1);
 	}
 	
 	/**
@@ -41,12 +41,18 @@ public class CounterGenerator extends IntegerGenerator
 	 */
 	public int nextInt() 
 	{
-		int ret = counter.getAndIncrement();
-		setLastInt(ret);
+		return (int)nextLong();
+	}
+
+	@Override
+	public long nextLong()
+	{
+		long ret = counter.getAndIncrement();
+		setLastLong(ret);
 		return ret;
 	}
 	@Override
-	public int lastInt()
+	public long lastLong()
 	{
 	                return counter.get() - 1;
 	}
@@ -17,36 +17,22 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Vector;
-import java.util.Random;
-
-import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.WorkloadException;
 
 /**
  * Generates a distribution by choosing from a discrete set of values.
+ * <p>
+ * Values are drawn in constant time from an {@link AliasDiscreteGenerator}; use that class directly to
+ * draw values other than strings.
+ * </p>
  */
 public class DiscreteGenerator extends Generator
 {
-	class Pair
-	{
-		public double _weight;
-		public String _value;
-
-		Pair(double weight, String value)
-		{
-			_weight=weight;
-			_value=value;
-		}
-	}
-
-	Vector<Pair> _values;
-	String _lastvalue;
+	final AliasDiscreteGenerator<String> _values;
 
 	public DiscreteGenerator()
 	{
-		_values=new Vector<Pair>();
-		_lastvalue=null;
+		_values=new AliasDiscreteGenerator<String>();
 	}
 
 	/**
@@ -54,31 +40,7 @@ public class DiscreteGenerator extends Generator
 	 */
 	public String nextString()
 	{
-		double sum=0;
-
-		for (Pair p : _values)
-		{
-			sum+=p._weight;
-		}
-
-		double val=Utils.random().nextDouble();
-
-		for (Pair p : _values)
-		{
-			if (val<p._weight/sum)
-			{
-				return p._value;
-			}
-
-			val-=p._weight/sum;
-		}
-
-		//should never get here.
-		System.out.println("oops. should not get here.");
-
-		System.exit(0);
-
-		return null;
+		return _values.nextValue();
 	}
 
 	/**
@@ -99,16 +61,12 @@ public class DiscreteGenerator extends Generator
 	 */
 	public String lastString()
 	{
-		if (_lastvalue==null)
-		{
-			_lastvalue=nextString();
-		}
-		return _lastvalue;
+		return _values.lastString();
 	}
 
 	public void addValue(double weight, String value)
 	{
-		_values.add(new Pair(weight,value));
+		_values.addValue(weight,value);
 	}
 
 }
@@ -83,6 +83,14 @@ public class HistogramGenerator extends IntegerGenerator {
 		this.buckets = buckets;
 		init();
 	}
+
+	/**
+	 * Creates a generator drawing from the same histogram as another one, without reading the file
+	 * again. The buckets are shared, not copied.
+	 */
+	public HistogramGenerator(HistogramGenerator histogram) {
+		this(histogram.buckets, (int)histogram.block_size);
+	}
 	private void init() {
 		for(int i = 0; i < buckets.length; i++) {
 			area += buckets[i];
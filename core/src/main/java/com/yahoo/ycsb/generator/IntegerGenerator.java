@@ -18,14 +18,15 @@
 package com.yahoo.ycsb.generator;
 
 /**
- * A generator that is capable of generating ints as well as strings
+ * A generator that is capable of generating ints as well as strings. Generators of values beyond the int range,
+ * such as keys of tables with billions of records, override nextLong() and lastLong() as well.
  * 
  * @author cooperb
  *
  */
 public abstract class IntegerGenerator extends Generator 
 {
-	int lastint;
+	long lastlong;
 	
 	/**
 	 * Set the last value generated. IntegerGenerator subclasses must use this call
@@ -33,20 +34,37 @@ public abstract class IntegerGenerator extends Generator
 	 */
 	protected void setLastInt(int last)
 	{
-		lastint=last;
+		lastlong=last;
+	}
+
+	/**
+	 * Set the last value generated, for subclasses generating longs.
+	 */
+	protected void setLastLong(long last)
+	{
+		lastlong=last;
 	}
 	
 	/**
 	 * Return the next value as an int. When overriding this method, be sure to call setLastString() properly, or the lastString() call won't work.
 	 */
 	public abstract int nextInt();
+
+	/**
+	 * Return the next value as a long. The default is the next int; generators of larger values must override it, and
+	 * nextInt() then returns the truncated value.
+	 */
+	public long nextLong()
+	{
+		return nextInt();
+	}
 	
 	/**
 	 * Generate the next string in the distribution.
 	 */
 	public String nextString()
 	{
-		return ""+nextInt();
+		return ""+nextLong();
 	}
 	
 	/**
@@ -57,7 +75,7 @@ public abstract class IntegerGenerator extends Generator
 	@Override
 	public String lastString()
 	{
-		return ""+lastInt();
+		return ""+lastLong();
 	}
 	
 	/**
@@ -66,7 +84,15 @@ public abstract class IntegerGenerator extends Generator
 	 */
 	public int lastInt()
 	{
-		return lastint;
+		return (int)lastLong();
+	}
+
+	/**
+	 * Return the previous value generated by the distribution as a long.
+	 */
+	public long lastLong()
+	{
+		return lastlong;
 	}
 	/**
 	 * Return the expected value (mean) of the values this generator will return.
@@ -28,7 +28,7 @@ public class SkewedLatestGenerator extends IntegerGenerator
 	public SkewedLatestGenerator(CounterGenerator basis)
 	{
 		_basis=basis;
-		_zipfian=new ZipfianGenerator(_basis.lastInt());
+		_zipfian=new ZipfianGenerator(_basis.lastLong());
 		nextInt();
 	}
 
@@ -37,10 +37,19 @@ public class SkewedLatestGenerator extends IntegerGenerator
 	 */
 	public int nextInt()
 	{
-		int max=_basis.lastInt();
-		int nextint=max-_zipfian.nextInt(max);
-		setLastInt(nextint);
-		return nextint;
+		return (int)nextLong();
+	}
+
+	/**
+	 * Generate the next value in the distribution as a long.
+	 */
+	@Override
+	public long nextLong()
+	{
+		long max=_basis.lastLong();
+		long next=max-_zipfian.nextLong(max);
+		setLastLong(next);
+		return next;
 	}
 
 	public static void main(String[] args)
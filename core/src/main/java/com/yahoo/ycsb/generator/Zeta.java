@@ -0,0 +1,314 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Computes the zeta constant of a zipfian distribution, the sum of 1/i^theta for i from 1 to n, without
+ * summing billions of terms.
+ * <p>
+ * The leading terms, where the sum changes fastest, are summed exactly; the remaining tail is
+ * approximated with the Euler-Maclaurin formula, using the integral of x^-theta and three Bernoulli
+ * correction terms. Since at least {@link #MIN_EXACT_TERMS} terms are summed exactly, the error of the
+ * tail is below 1e-16 and in practice well below the rounding error of summing the terms one by one.
+ * Large exact sums are split into chunks summed in parallel. Computed values can be kept in a cache
+ * file, see {@link #ZETA_CACHE_PROPERTY}.
+ * </p>
+ */
+public final class Zeta
+{
+	/**
+	 * The number of leading terms summed exactly. A value at least as large as the number of items makes
+	 * the whole sum exact, which is slow for large item counts.
+	 */
+	public static final String EXACT_TERMS_PROPERTY="zipfian.zetaexactterms";
+	public static final String EXACT_TERMS_PROPERTY_DEFAULT="1048576";
+
+	/**
+	 * A file keeping the zeta values computed for large item counts across runs. Empty (the default)
+	 * disables the cache.
+	 */
+	public static final String ZETA_CACHE_PROPERTY="zipfian.zetacache";
+	public static final String ZETA_CACHE_PROPERTY_DEFAULT="";
+
+	/** Fewer exact terms would let the error of the tail approximation show. */
+	static final long MIN_EXACT_TERMS=1024;
+
+	/** Ranges up to this many terms are summed exactly, whatever the configuration. */
+	private static final long SMALL_RANGE=1<<16;
+
+	/** Exact sums are split into chunks of this many terms for the parallel summation. */
+	private static final long CHUNK=1<<22;
+
+	private static volatile long _exactterms=Long.parseLong(EXACT_TERMS_PROPERTY_DEFAULT);
+	private static File _cachefile=null;
+	private static Properties _cache=null;
+
+	private Zeta()
+	{
+	}
+
+	/**
+	 * Reads the zeta settings of a workload.
+	 */
+	public static synchronized void configure(Properties p)
+	{
+		_exactterms=Math.max(MIN_EXACT_TERMS,Long.parseLong(p.getProperty(EXACT_TERMS_PROPERTY,EXACT_TERMS_PROPERTY_DEFAULT)));
+		String cache=p.getProperty(ZETA_CACHE_PROPERTY,ZETA_CACHE_PROPERTY_DEFAULT).trim();
+		_cachefile=cache.isEmpty() ? null : new File(cache);
+		_cache=null;
+	}
+
+	/**
+	 * Compute zeta for n items from scratch.
+	 *
+	 * @param n The number of items to compute zeta over.
+	 * @param theta The zipfian constant.
+	 */
+	public static double zeta(long n, double theta)
+	{
+		long exactterms=_exactterms;
+		if (n<=exactterms)
+		{
+			return zeta(0,n,theta,0);
+		}
+		String key=n+","+theta;
+		Double cached=lookup(key);
+		if (cached!=null)
+		{
+			return cached;
+		}
+		double zetan=zeta(0,n,theta,0);
+		store(key,zetan);
+		return zetan;
+	}
+
+	/**
+	 * Compute zeta incrementally, for a distribution that has n items now but used to have st items.
+	 *
+	 * @param st The number of items used to compute initialsum.
+	 * @param n The number of items to compute zeta over.
+	 * @param theta The zipfian constant.
+	 * @param initialsum The value of zeta we are computing incrementally from.
+	 */
+	public static double zeta(long st, long n, double theta, double initialsum)
+	{
+		if (n<=st)
+		{
+			return initialsum;
+		}
+		if (n-st<=SMALL_RANGE)
+		{
+			return initialsum+exact(st,n,theta);
+		}
+		long head=Math.max(st,Math.min(n,_exactterms));
+		double sum=initialsum+exact(st,head,theta);
+		if (head<n)
+		{
+			sum+=tail(head+1,n,theta);
+		}
+		return sum;
+	}
+
+	/**
+	 * Sums 1/i^theta for i from st+1 to n one term at a time, in parallel chunks if there are many.
+	 */
+	static double exact(long st, long n, double theta)
+	{
+		int threads=Runtime.getRuntime().availableProcessors();
+		if (n-st<=CHUNK || threads<2)
+		{
+			return sequential(st,n,theta);
+		}
+
+		ExecutorService pool=Executors.newFixedThreadPool(threads,new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t=new Thread(r,"zeta");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try
+		{
+			List<Future<Double>> chunks=new ArrayList<Future<Double>>();
+			for (long from=st; from<n; from+=CHUNK)
+			{
+				final long chunkst=from;
+				final long chunkn=Math.min(n,from+CHUNK);
+				final double chunktheta=theta;
+				chunks.add(pool.submit(new Callable<Double>()
+				{
+					@Override
+					public Double call()
+					{
+						return sequential(chunkst,chunkn,chunktheta);
+					}
+				}));
+			}
+			// add the chunks up in order so that the result does not depend on the scheduling
+			double sum=0;
+			for (Future<Double> chunk : chunks)
+			{
+				sum+=chunk.get();
+			}
+			return sum;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing zeta",e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Could not compute zeta",e.getCause());
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	private static double sequential(long st, long n, double theta)
+	{
+		double sum=0;
+		for (long i=st; i<n; i++)
+		{
+			sum+=1/(Math.pow(i+1,theta));
+		}
+		return sum;
+	}
+
+	/**
+	 * Approximates the sum of 1/i^theta for i from a to b with the Euler-Maclaurin formula. The remainder
+	 * after the third correction term is of the order of a^-(theta+5), negligible for a of
+	 * {@link #MIN_EXACT_TERMS} or more.
+	 */
+	static double tail(long a, long b, double theta)
+	{
+		double fa=Math.pow(a,-theta);
+		double fb=Math.pow(b,-theta);
+
+		// the integral of x^-theta from a to b, written to stay accurate when theta is close to 1
+		double log=Math.log((double) b/a);
+		double integral;
+		if (Math.abs(1-theta)*log<1e-12)
+		{
+			integral=Math.pow(a,1-theta)*log;
+		}
+		else
+		{
+			integral=Math.pow(a,1-theta)*Math.expm1((1-theta)*log)/(1-theta);
+		}
+
+		// odd derivatives of x^-theta: f'=-theta x^-(theta+1), f'''=-theta(theta+1)(theta+2) x^-(theta+3), ...
+		double d1=-theta;
+		double d3=d1*(theta+1)*(theta+2);
+		double d5=d3*(theta+3)*(theta+4);
+		double correction=(1.0/12)*d1*(Math.pow(b,-theta-1)-Math.pow(a,-theta-1))
+				-(1.0/720)*d3*(Math.pow(b,-theta-3)-Math.pow(a,-theta-3))
+				+(1.0/30240)*d5*(Math.pow(b,-theta-5)-Math.pow(a,-theta-5));
+
+		return integral+(fa+fb)/2+correction;
+	}
+
+	private static synchronized Double lookup(String key)
+	{
+		if (_cachefile==null)
+		{
+			return null;
+		}
+		if (_cache==null)
+		{
+			_cache=new Properties();
+			if (_cachefile.exists())
+			{
+				try
+				{
+					InputStream in=new FileInputStream(_cachefile);
+					try
+					{
+						_cache.load(in);
+					}
+					finally
+					{
+						in.close();
+					}
+				}
+				catch (IOException e)
+				{
+					System.err.println("Could not read the zeta cache "+_cachefile+": "+e);
+				}
+			}
+		}
+		String value=_cache.getProperty(key);
+		return value==null ? null : Double.valueOf(value);
+	}
+
+	private static synchronized void store(String key, double zetan)
+	{
+		if (_cachefile==null || _cache==null)
+		{
+			return;
+		}
+		_cache.setProperty(key,Double.toString(zetan));
+		// write a new file and move it into place, so that concurrent runs never read a partial cache
+		File temp=new File(_cachefile.getPath()+".tmp");
+		try
+		{
+			OutputStream out=new FileOutputStream(temp);
+			try
+			{
+				_cache.store(out,"zeta by item count and zipfian constant");
+			}
+			finally
+			{
+				out.close();
+			}
+			if (!temp.renameTo(_cachefile))
+			{
+				_cachefile.delete();
+				if (!temp.renameTo(_cachefile))
+				{
+					throw new IOException("Could not rename "+temp);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not write the zeta cache "+_cachefile+": "+e);
+		}
+	}
+}
@@ -31,11 +31,10 @@ import com.yahoo.ycsb.Utils;
  * popular, min+1 the next most popular, etc.) If you don't want this clustering, and instead want the popular items scattered throughout the 
  * item space, then use ScrambledZipfianGenerator instead.
  * 
- * Be aware: initializing this generator may take a long time if there are lots of items to choose from (e.g. over a minute
- * for 100 million objects). This is because certain mathematical values need to be computed to properly generate a zipfian skew, and one of those
- * values (zeta) is a sum sequence from 1 to n, where n is the itemcount. Note that if you increase the number of items in the set, we can compute
- * a new zeta incrementally, so it should be fast unless you have added millions of items. However, if you decrease the number of items, we recompute
- * zeta from scratch, so this can take a long time. 
+ * Certain mathematical values need to be computed to properly generate a zipfian skew, and one of those values (zeta) is a sum
+ * sequence from 1 to n, where n is the itemcount. {@link Zeta} sums the leading terms and approximates the rest, so this is fast
+ * even for billions of items. If you increase the number of items in the set, zeta is computed incrementally, without blocking the
+ * threads drawing from the old item count.
  *
  * The algorithm used here is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
  */
@@ -61,12 +60,29 @@ public class ZipfianGenerator extends IntegerGenerator
 	/**
 	 * Computed parameters for generating the distribution.
 	 */
-	double alpha,zetan,eta,theta,zeta2theta;
-	
+	double alpha,theta,zeta2theta;
+
 	/**
-	 * The number of items used to compute zetan the last time.
+	 * The parameters that depend on the item count, replaced as a whole when it changes.
 	 */
-	long countforzeta;
+	static final class ZetaState
+	{
+		/**
+		 * The number of items used to compute zetan.
+		 */
+		final long countforzeta;
+		final double zetan;
+		final double eta;
+
+		ZetaState(long countforzeta, double zetan, double eta)
+		{
+			this.countforzeta=countforzeta;
+			this.zetan=zetan;
+			this.eta=eta;
+		}
+	}
+
+	volatile ZetaState state;
 	
 	/**
 	 * Flag to prevent problems. If you increase the number of items the zipfian generator is allowed to choose from, this code will incrementally compute a new zeta
@@ -138,14 +154,11 @@ public class ZipfianGenerator extends IntegerGenerator
 
 		theta=zipfianconstant;
 
-		zeta2theta=zeta(2,theta);
+		zeta2theta=zetastatic(2,theta);
 
 		
 		alpha=1.0/(1.0-theta);
-		//zetan=zeta(items,theta);
-		zetan=_zetan;
-		countforzeta=items;
-		eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
+		state=new ZetaState(items,_zetan,eta(_zetan));
 		
 		//System.out.println("XXXX 3 XXXX");
 		nextInt();
@@ -154,19 +167,11 @@ public class ZipfianGenerator extends IntegerGenerator
 	
 	/**************************************************************************/
 	
-	/**
-	 * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the 
-	 * zipfian constant theta. Remember the value of n, so if we change the itemcount, we can recompute zeta.
-	 * 
-	 * @param n The number of items to compute zeta over.
-	 * @param theta The zipfian constant.
-	 */
-	double zeta(long n, double theta)
+	double eta(double zetan)
 	{
-		countforzeta=n;
-		return zetastatic(n,theta);
+		return (1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
 	}
-	
+
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the 
 	 * zipfian constant theta. This is a static version of the function which will not remember n.
@@ -175,29 +180,12 @@ public class ZipfianGenerator extends IntegerGenerator
 	 */
 	static double zetastatic(long n, double theta)
 	{
-		return zetastatic(0,n,theta,0);
-	}
-	
-	/**
-	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-	 * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of 
-	 * n so that if we change the itemcount, we'll know to recompute zeta.
-	 * 
-	 * @param st The number of items used to compute the last initialsum
-	 * @param n The number of items to compute zeta over.
-	 * @param theta The zipfian constant.
-     * @param initialsum The value of zeta we are computing incrementally from.
-	 */
-	double zeta(long st, long n, double theta, double initialsum)
-	{
-		countforzeta=n;
-		return zetastatic(st,n,theta,initialsum);
+		return Zeta.zeta(n,theta);
 	}
 	
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-	 * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of 
-	 * n so that if we change the itemcount, we'll know to recompute zeta. 
+	 * has n items now but used to have st items. Use the zipfian constant theta.
 	 * @param st The number of items used to compute the last initialsum
 	 * @param n The number of items to compute zeta over.
 	 * @param theta The zipfian constant.
@@ -205,16 +193,7 @@ public class ZipfianGenerator extends IntegerGenerator
 	 */
 	static double zetastatic(long st, long n, double theta, double initialsum)
 	{
-		double sum=initialsum;
-		for (long i=st; i<n; i++)
-		{
-
-			sum+=1/(Math.pow(i+1,theta));
-		}
-		
-		//System.out.println("countforzeta="+countforzeta);
-		
-		return sum;
+		return Zeta.zeta(st,n,theta,initialsum);
 	}
 
 	/****************************************************************************************/
@@ -240,36 +219,14 @@ public class ZipfianGenerator extends IntegerGenerator
 	{
 		//from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994
 
-		if (itemcount!=countforzeta)
+		ZetaState current=state;
+		if (itemcount!=current.countforzeta)
 		{
-
 			//have to recompute zetan and eta, since they depend on itemcount
-			synchronized(this)
-			{
-				if (itemcount>countforzeta)
-				{
-					//System.err.println("WARNING: Incrementally recomputing Zipfian distribtion. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					//we have added more items. can compute zetan incrementally, which is cheaper
-					zetan=zeta(countforzeta,itemcount,theta,zetan);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
-				else if ( (itemcount<countforzeta) && (allowitemcountdecrease) )
-				{
-					//have to start over with zetan
-					//note : for large itemsets, this is very slow. so don't do it!
-
-					//TODO: can also have a negative incremental computation, e.g. if you decrease the number of items, then just subtract
-					//the zeta sequence terms for the items that went away. This would be faster than recomputing from scratch when the number of items
-					//decreases
-					
-					System.err.println("WARNING: Recomputing Zipfian distribtion. This is slow and should be avoided. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					zetan=zeta(itemcount,theta);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
-			}
+			current=grow(current,itemcount);
 		}
+		double zetan=current.zetan;
+		double eta=current.eta;
 
 		double u=Utils.random().nextDouble();
 		double uz=u*zetan;
@@ -285,10 +242,47 @@ public class ZipfianGenerator extends IntegerGenerator
 		}
 
 		long ret=base+(long)((itemcount) * Math.pow(eta*u - eta + 1, alpha));
-		setLastInt((int)ret);
+		setLastLong(ret);
 		return ret;
 	}
 
+	/**
+	 * Compute the parameters for a new item count. The computation runs without holding the monitor, so other threads keep drawing from
+	 * the state they have; the monitor is only taken to publish the result, and a state computed for more items is never replaced by
+	 * one for fewer, unless decreases are allowed.
+	 *
+	 * @return The state to draw the next item from.
+	 */
+	ZetaState grow(ZetaState current, long itemcount)
+	{
+		ZetaState next;
+		if (itemcount>current.countforzeta)
+		{
+			//we have added more items. can compute zetan incrementally, which is cheaper
+			double zetan=zetastatic(current.countforzeta,itemcount,theta,current.zetan);
+			next=new ZetaState(itemcount,zetan,eta(zetan));
+		}
+		else if (allowitemcountdecrease)
+		{
+			//have to start over with zetan
+			double zetan=zetastatic(itemcount,theta);
+			next=new ZetaState(itemcount,zetan,eta(zetan));
+		}
+		else
+		{
+			return current;
+		}
+
+		synchronized(this)
+		{
+			if (state.countforzeta<next.countforzeta || allowitemcountdecrease)
+			{
+				state=next;
+			}
+		}
+		return next;
+	}
+
 	/**
 	 * Return the next value, skewed by the Zipfian distribution. The 0th item will be the most popular, followed by the 1st, followed
 	 * by the 2nd, etc. (Or, if min != 0, the min-th item is the most popular, the min+1th item the next most popular, etc.) If you want the
@@ -305,6 +299,7 @@ public class ZipfianGenerator extends IntegerGenerator
 	 * by the 2nd, etc. (Or, if min != 0, the min-th item is the most popular, the min+1th item the next most popular, etc.) If you want the
 	 * popular items scattered throughout the item space, use ScrambledZipfianGenerator instead.
 	 */
+	@Override
 	public long nextLong()
 	{
 		return nextLong(items);
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Encodes the fixed width records of a {@link RawStream} into the compact columnar trace format read
+ * by {@link TraceReader}.
+ * <p>
+ * The file starts with the 8 byte magic "YCSBTRC1" and the time base of the trace in microseconds
+ * since the epoch (long). It is followed by a sequence of entries, each starting with a tag byte:
+ * </p>
+ * <ul>
+ * <li>{@link #UNIT}: the unit of the latencies, "ns", "us" or "ms" (varint length and UTF-8 bytes),
+ * written once after the header. Traces without it are in microseconds.</li>
+ * <li>{@link #OP_NAME} / {@link #STATUS_NAME}: a dictionary entry, the id (varint) and the UTF-8 name
+ * (varint length and bytes). An id is always defined before the first block using it.</li>
+ * <li>{@link #BLOCK}: the number of records (varint), the smallest end time relative to the time base
+ * (zigzag varlong), the spread between the largest and smallest end time (varlong), the length of
+ * the payload in bytes (varint) and the payload. The payload holds one column after the other: the
+ * end times as zigzag varlong deltas (the first one relative to the smallest end time), then the
+ * latencies, the operation ids and the status ids as varints.</li>
+ * </ul>
+ * <p>
+ * The header of a block lets readers skip it without decoding when it lies outside of the time window
+ * they are interested in. Records are written in the order the threads hand them over, so end times
+ * are only roughly ascending.
+ * </p>
+ */
+final class ColumnarTraceWriter {
+
+  static final byte[] MAGIC = "YCSBTRC1".getBytes(Charset.forName("US-ASCII"));
+
+  static final int OP_NAME = 1;
+  static final int STATUS_NAME = 2;
+  static final int BLOCK = 3;
+  static final int UNIT = 4;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final FileChannel channel;
+  private final long baseEpochMicros;
+
+  private int opNamesWritten = 0;
+  private int statusNamesWritten = 0;
+
+  private final Encoder header = new Encoder(64);
+  private final Encoder payload = new Encoder(1024);
+  private long[] endMicros = new long[0];
+
+  ColumnarTraceWriter(FileChannel channel, long baseEpochMicros, String unitLabel) throws IOException {
+    this.channel = channel;
+    this.baseEpochMicros = baseEpochMicros;
+    header.reset();
+    header.putBytes(MAGIC, 0, MAGIC.length);
+    header.putLong(baseEpochMicros);
+    header.putByte(UNIT);
+    putString(unitLabel);
+    write(header.buffer());
+  }
+
+  /**
+   * Writes the dictionary entries that were added since the last call.
+   */
+  void writeNames(List<String> opNames, List<String> statusNames) throws IOException {
+    header.reset();
+    for (; opNamesWritten < opNames.size(); opNamesWritten++) {
+      putName(OP_NAME, opNamesWritten, opNames.get(opNamesWritten));
+    }
+    for (; statusNamesWritten < statusNames.size(); statusNamesWritten++) {
+      putName(STATUS_NAME, statusNamesWritten, statusNames.get(statusNamesWritten));
+    }
+    if (header.length > 0) {
+      write(header.buffer());
+    }
+  }
+
+  /**
+   * Encodes the {@link RawStream#RECORD_SIZE} byte records between the position and the limit of the
+   * buffer as one block, consuming them.
+   */
+  void writeRecords(ByteBuffer records) throws IOException {
+    int count = records.remaining() / RawStream.RECORD_SIZE;
+    if (count == 0) {
+      return;
+    }
+    if (endMicros.length < count) {
+      endMicros = new long[count];
+    }
+    int start = records.position();
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      long end = records.getLong(start + i * RawStream.RECORD_SIZE);
+      endMicros[i] = end;
+      min = Math.min(min, end);
+      max = Math.max(max, end);
+    }
+
+    payload.reset();
+    long previous = min;
+    for (int i = 0; i < count; i++) {
+      payload.putSignedVarLong(endMicros[i] - previous);
+      previous = endMicros[i];
+    }
+    for (int i = 0; i < count; i++) {
+      payload.putVarLong(records.getLong(start + i * RawStream.RECORD_SIZE + 8));
+    }
+    for (int i = 0; i < count; i++) {
+      payload.putVarInt(records.getShort(start + i * RawStream.RECORD_SIZE + 16) & 0xffff);
+    }
+    for (int i = 0; i < count; i++) {
+      payload.putVarInt(records.getShort(start + i * RawStream.RECORD_SIZE + 18) & 0xffff);
+    }
+    records.position(start + count * RawStream.RECORD_SIZE);
+
+    header.reset();
+    header.putByte(BLOCK);
+    header.putVarInt(count);
+    header.putSignedVarLong(min - baseEpochMicros);
+    header.putVarLong(max - min);
+    header.putVarInt(payload.length);
+    write(header.buffer());
+    write(payload.buffer());
+  }
+
+  private void putName(int tag, int id, String name) {
+    header.putByte(tag);
+    header.putVarInt(id);
+    putString(name);
+  }
+
+  private void putString(String value) {
+    byte[] bytes = value.getBytes(UTF8);
+    header.putVarInt(bytes.length);
+    header.putBytes(bytes, 0, bytes.length);
+  }
+
+  private void write(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * A growable byte array with the varint encodings used by the trace.
+   */
+  private static final class Encoder {
+    private byte[] bytes;
+    private int length;
+
+    Encoder(int capacity) {
+      bytes = new byte[capacity];
+    }
+
+    void reset() {
+      length = 0;
+    }
+
+    ByteBuffer buffer() {
+      return ByteBuffer.wrap(bytes, 0, length);
+    }
+
+    private void ensure(int more) {
+      if (length + more > bytes.length) {
+        byte[] grown = new byte[Math.max(bytes.length * 2, length + more)];
+        System.arraycopy(bytes, 0, grown, 0, length);
+        bytes = grown;
+      }
+    }
+
+    void putByte(int value) {
+      ensure(1);
+      bytes[length++] = (byte) value;
+    }
+
+    void putBytes(byte[] src, int offset, int count) {
+      ensure(count);
+      System.arraycopy(src, offset, bytes, length, count);
+      length += count;
+    }
+
+    void putLong(long value) {
+      ensure(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        bytes[length++] = (byte) (value >>> shift);
+      }
+    }
+
+    /** Writes the int as an unsigned LEB128 varint, so negative values take 5 bytes. */
+    void putVarInt(int value) {
+      putVarLong(value & 0xffffffffL);
+    }
+
+    void putVarLong(long value) {
+      ensure(10);
+      while ((value & ~0x7fL) != 0) {
+        bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      bytes[length++] = (byte) value;
+    }
+
+    void putSignedVarLong(long value) {
+      putVarLong((value << 1) ^ (value >> 63));
+    }
+  }
+}
@@ -17,15 +17,39 @@
 
 package com.yahoo.ycsb.measurements;
 
+import org.HdrHistogram.Histogram;
+
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Collects latency measurements, and reports them when requested.
+ * <p>
+ * Operations are identified by an index obtained once from {@link #getOpIndex(String)}; the index
+ * based methods find their measurement with a plain array access. The String based methods remain for
+ * callers that measure rarely.
+ * </p><p>
+ * Latencies are passed in nanoseconds and reported in the unit selected by the
+ * {@value #MEASUREMENT_UNIT} property, microseconds by default.
+ * </p><p>
+ * A thread that set a phase with {@link #setPhase(String)} also records its operations under the
+ * name "phase:operation", so that every phase of a load profile gets its own latencies.
+ * </p><p>
+ * Between {@link #startWarmup()} and {@link #endWarmup()} operations are measured under the name
+ * "WARMUP-operation" instead, which is only exported if {@value #WARMUP_EXPORT_PROPERTY} is set.
+ * </p>
  *
  * @author cooperb
  *
@@ -41,7 +65,9 @@ public class Measurements {
     HDRHISTOGRAM_AND_HISTOGRAM,
     HDRHISTOGRAM_AND_RAW,
     TIMESERIES,
-    RAW
+    RAW,
+    RAW_STREAM,
+    HDRHISTOGRAM_AND_RAW_STREAM
   }
 
   public static final String MEASUREMENT_TYPE_PROPERTY = "measurementtype";
@@ -50,6 +76,18 @@ public class Measurements {
   public static final String MEASUREMENT_INTERVAL = "measurement.interval";
   private static final String MEASUREMENT_INTERVAL_DEFAULT = "op";
 
+  /**
+   * The unit latencies are reported in: "ns", "us" or "ms".
+   */
+  public static final String MEASUREMENT_UNIT = "measurement.unit";
+  public static final String MEASUREMENT_UNIT_DEFAULT = "us";
+
+  /**
+   * Whether to export the measurements of the warm-up as WARMUP-operation, rather than discard them.
+   */
+  public static final String WARMUP_EXPORT_PROPERTY = "warmup.export";
+  public static final String WARMUP_EXPORT_PROPERTY_DEFAULT = "false";
+
   static Measurements singleton=null;
   static Properties measurementproperties=null;
 
@@ -70,8 +108,16 @@ public class Measurements {
     return singleton;
   }
 
-  final ConcurrentHashMap<String,OneMeasurement> _opToMesurementMap;
-  final ConcurrentHashMap<String,OneMeasurement> _opToIntendedMesurementMap;
+  /** Resolves operation names to indices into the measurement arrays. */
+  final ConcurrentHashMap<String,Integer> _opToIndexMap;
+  /** The names of the operations by index. Only appended to, under the lock of this object. */
+  final List<String> _opNames;
+  /**
+   * The measurements by operation index, null until the operation is first measured. The arrays are
+   * copied on write, under the lock of this object, and never modified once published.
+   */
+  volatile OneMeasurement[] _opMeasurements;
+  volatile OneMeasurement[] _opIntendedMeasurements;
   final MeasurementType _measurementType;
   final int _measurementInterval;
   private Properties _props;
@@ -81,8 +127,10 @@ public class Measurements {
    */
   public Measurements(Properties props)
   {
-    _opToMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
-    _opToIntendedMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
+    _opToIndexMap=new ConcurrentHashMap<String,Integer>();
+    _opNames=new ArrayList<String>();
+    _opMeasurements=new OneMeasurement[0];
+    _opIntendedMeasurements=new OneMeasurement[0];
 
     _props=props;
 
@@ -111,6 +159,14 @@ public class Measurements {
     {
       _measurementType = MeasurementType.RAW;
     }
+    else if (mTypeString.equals("rawstream"))
+    {
+      _measurementType = MeasurementType.RAW_STREAM;
+    }
+    else if (mTypeString.equals("hdrhistogram+rawstream"))
+    {
+      _measurementType = MeasurementType.HDRHISTOGRAM_AND_RAW_STREAM;
+    }
     else {
       throw new IllegalArgumentException("unknown "+MEASUREMENT_TYPE_PROPERTY+"="+mTypeString);
     }
@@ -131,6 +187,11 @@ public class Measurements {
     else {
       throw new IllegalArgumentException("unknown "+MEASUREMENT_INTERVAL+"="+mIntervalString);
     }
+
+    // fail on a bad unit now rather than with the first measurement
+    getReportingUnit(_props);
+
+    _exportWarmup = Boolean.parseBoolean(_props.getProperty(WARMUP_EXPORT_PROPERTY, WARMUP_EXPORT_PROPERTY_DEFAULT));
   }
 
   OneMeasurement constructOneMeasurement(String name)
@@ -153,13 +214,73 @@ public class Measurements {
       return new OneMeasurementTimeSeries(name, _props);
     case RAW:
       return new OneMeasurementRaw(name, _props);
+    case RAW_STREAM:
+      return new OneMeasurementRawStream(name, _props, getRawStream());
+    case HDRHISTOGRAM_AND_RAW_STREAM:
+      return new TwoInOneMeasurement(name,
+          new OneMeasurementHdrHistogram("Hdr"+name, _props),
+          new OneMeasurementRawStream("Raw"+name, _props, getRawStream()));
     default:
       throw new AssertionError("Impossible to be here. Dead code reached. Bugs?");
     }
   }
 
+  /** The file all raw stream measurements write to, created with the first of them. */
+  private RawStream _rawStream;
+
+  private synchronized RawStream getRawStream()
+  {
+    if (_rawStream == null)
+    {
+      _rawStream = new RawStream(_props);
+    }
+    return _rawStream;
+  }
+
+  /**
+   * @return The reporting unit selected by the {@value #MEASUREMENT_UNIT} property.
+   */
+  public static TimeUnit getReportingUnit(Properties props)
+  {
+    String unit = props.getProperty(MEASUREMENT_UNIT, MEASUREMENT_UNIT_DEFAULT);
+    if (unit.equals("ns"))
+    {
+      return TimeUnit.NANOSECONDS;
+    }
+    else if (unit.equals("us"))
+    {
+      return TimeUnit.MICROSECONDS;
+    }
+    else if (unit.equals("ms"))
+    {
+      return TimeUnit.MILLISECONDS;
+    }
+    throw new IllegalArgumentException("unknown "+MEASUREMENT_UNIT+"="+unit);
+  }
+
+  /**
+   * @return The abbreviation of a reporting unit used in the names of the exported values.
+   */
+  public static String getUnitLabel(TimeUnit unit)
+  {
+    switch (unit)
+    {
+    case NANOSECONDS:
+      return "ns";
+    case MICROSECONDS:
+      return "us";
+    case MILLISECONDS:
+      return "ms";
+    default:
+      throw new IllegalArgumentException("unsupported reporting unit " + unit);
+    }
+  }
+
   static class StartTimeHolder {
     long time;
+    /** The phase of the thread, and the indices of its operations under the phase, -1 if not resolved. */
+    String phase;
+    int[] phaseOps;
 
     long startTime(){
       if(time == 0) {
@@ -189,18 +310,212 @@ public class Measurements {
     return tlIntendedStartTime.get().startTime();
   }
 
+  /** Whether operations are measured as warm-up operations. */
+  private volatile boolean _warmingUp;
+  /** The indices of the warm-up operations by operation index, -1 if not resolved. Copied on write. */
+  private volatile int[] _warmupOpIndices = new int[0];
+  /** The indices of the warm-up operations, left out of the export unless asked for. Guarded by this. */
+  private final Set<Integer> _warmupIndices = new HashSet<Integer>();
+  private volatile boolean _exportWarmup;
+
+  /**
+   * Measures the operations of all threads as warm-up operations until {@link #endWarmup()}.
+   */
+  public void startWarmup() {
+    _warmingUp = true;
+  }
+
+  /**
+   * Measures the operations of all threads under their names again, from the next operation on.
+   */
+  public void endWarmup() {
+    _warmingUp = false;
+  }
+
+  /**
+   * Sets whether to export the warm-up operations, overriding {@value #WARMUP_EXPORT_PROPERTY}.
+   */
+  public void setExportWarmup(boolean exportWarmup) {
+    _exportWarmup = exportWarmup;
+  }
+
+  /**
+   * @return The index to measure an operation under, that of its warm-up operation during the warm-up.
+   */
+  private int measuredIndex(int opIndex) {
+    if (!_warmingUp) {
+      return opIndex;
+    }
+    int[] indices = _warmupOpIndices;
+    if (opIndex < indices.length && indices[opIndex] >= 0) {
+      return indices[opIndex];
+    }
+    return resolveWarmupOp(opIndex);
+  }
+
+  private synchronized int resolveWarmupOp(int opIndex) {
+    int[] indices = _warmupOpIndices;
+    if (opIndex < indices.length && indices[opIndex] >= 0) {
+      return indices[opIndex];
+    }
+    int index = getOpIndex("WARMUP-" + _opNames.get(opIndex));
+    _warmupIndices.add(index);
+    int from = indices.length;
+    indices = Arrays.copyOf(indices, Math.max(from, opIndex + 1));
+    Arrays.fill(indices, from, indices.length, -1);
+    indices[opIndex] = index;
+    _warmupOpIndices = indices;
+    return index;
+  }
+
+  /** Whether any thread set a phase, so that operations must also be measured under their phase. */
+  private volatile boolean _phased;
+  /** The indices of the operations measured under a phase, left out of the summary. Guarded by this. */
+  private final Set<Integer> _phaseOpIndices = new HashSet<Integer>();
+
+  /**
+   * Sets the phase the operations of the calling thread belong to from now on.
+   *
+   * @param phase The name of the phase, or null to measure the operations under their name only.
+   */
+  public void setPhase(String phase) {
+    StartTimeHolder holder = tlIntendedStartTime.get();
+    if (phase == null ? holder.phase != null : !phase.equals(holder.phase)) {
+      holder.phase = phase;
+      holder.phaseOps = null;
+      if (phase != null) {
+        _phased = true;
+      }
+    }
+  }
+
+  /**
+   * @return The index of the operation under the phase of the calling thread, or -1 if it has none.
+   */
+  private int phaseOpIndex(int opIndex) {
+    StartTimeHolder holder = tlIntendedStartTime.get();
+    if (holder.phase == null) {
+      return -1;
+    }
+    int[] ops = holder.phaseOps;
+    if (ops == null || opIndex >= ops.length) {
+      int from = ops == null ? 0 : ops.length;
+      ops = ops == null ? new int[opIndex + 1] : Arrays.copyOf(ops, opIndex + 1);
+      Arrays.fill(ops, from, ops.length, -1);
+      holder.phaseOps = ops;
+    }
+    if (ops[opIndex] < 0) {
+      ops[opIndex] = resolvePhaseOp(holder.phase, opIndex);
+    }
+    return ops[opIndex];
+  }
+
+  /**
+   * Resolves the operation under the phase of the calling thread, so that an operation completing on
+   * another thread, e.g. an asynchronous one, is measured under the phase it was issued in.
+   *
+   * @param opIndex The index of the operation from {@link #getOpIndex(String)}.
+   * @return The index to pass to the index based methods taking a phase, or -1 if the calling thread
+   *         has no phase.
+   */
+  public int getPhaseOpIndex(int opIndex) {
+    return _phased ? phaseOpIndex(opIndex) : -1;
+  }
+
+  private synchronized int resolvePhaseOp(String phase, int opIndex) {
+    int index = getOpIndex(phase + ":" + _opNames.get(opIndex));
+    _phaseOpIndices.add(index);
+    return index;
+  }
+
+  /**
+   * Resolves an operation name to the index used by the index based methods. Indices are stable for the
+   * lifetime of this object; resolve them once, e.g. when a DB or workload is initialized.
+   */
+  public int getOpIndex(String operation)
+  {
+    Integer index = _opToIndexMap.get(operation);
+    if (index == null)
+    {
+      synchronized (this)
+      {
+        index = _opToIndexMap.get(operation);
+        if (index == null)
+        {
+          index = _opNames.size();
+          _opNames.add(operation);
+          _opToIndexMap.put(operation, index);
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * @return The names of the operations resolved so far, in the order of their indices.
+   */
+  public synchronized List<String> getOpNames()
+  {
+    return new ArrayList<String>(_opNames);
+  }
+
   /**
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
    * value.
+   *
+   * @param latency The latency in microseconds.
+   * @deprecated Use {@link #measure(int, long)}, which takes nanoseconds.
    */
+  @Deprecated
   public void measure(String operation, int latency)
+  {
+    measure(getOpIndex(operation), latency * 1000L);
+  }
+
+  /**
+   * Report a single value of a single metric, identified by its index from {@link #getOpIndex(String)}.
+   *
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void measure(int opIndex, long latencyNanos)
+  {
+    measure(opIndex, latencyNanos, null);
+  }
+
+  /**
+   * Report a single value of a single metric together with the result of the operation. The result is
+   * only kept by measurements that record individual data points; use
+   * {@link #reportStatus(int, Status)} to count it.
+   *
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void measure(int opIndex, long latencyNanos, Status status)
+  {
+    measure(opIndex, getPhaseOpIndex(opIndex), latencyNanos, status);
+  }
+
+  /**
+   * Report a single value of a single metric together with the result of the operation, under the
+   * phase resolved by {@link #getPhaseOpIndex(int)} when the operation was issued.
+   *
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void measure(int opIndex, int phaseOpIndex, long latencyNanos, Status status)
   {
     if(_measurementInterval==1)
       return;
     try
     {
-      OneMeasurement m = getOpMeasurement(operation);
-      m.measure(latency);
+      int index = measuredIndex(opIndex);
+      OneMeasurement m = getOpMeasurement(index);
+      m.measure(latencyNanos, status);
+      if (index == opIndex)
+      {
+        if (phaseOpIndex >= 0)
+        {
+          getOpMeasurement(phaseOpIndex).measure(latencyNanos, status);
+        }
+      }
     }
     // This seems like a terribly hacky way to cover up for a bug in the measurement code
     catch (java.lang.ArrayIndexOutOfBoundsException e)
@@ -214,15 +529,61 @@ public class Measurements {
   /**
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
    * value.
+   *
+   * @param latency The latency in microseconds.
+   * @deprecated Use {@link #measureIntended(int, long)}, which takes nanoseconds.
    */
+  @Deprecated
   public void measureIntended(String operation, int latency)
+  {
+    measureIntended(getOpIndex(operation), latency * 1000L);
+  }
+
+  /**
+   * Report a single value of a single metric, measured from the intended start time, identified by its
+   * index from {@link #getOpIndex(String)}.
+   *
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void measureIntended(int opIndex, long latencyNanos)
+  {
+    measureIntended(opIndex, latencyNanos, null);
+  }
+
+  /**
+   * Report a single value of a single metric, measured from the intended start time, together with the
+   * result of the operation.
+   *
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void measureIntended(int opIndex, long latencyNanos, Status status)
+  {
+    measureIntended(opIndex, getPhaseOpIndex(opIndex), latencyNanos, status);
+  }
+
+  /**
+   * Report a single value of a single metric, measured from the intended start time, together with the
+   * result of the operation, under the phase resolved by {@link #getPhaseOpIndex(int)} when the
+   * operation was issued.
+   *
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void measureIntended(int opIndex, int phaseOpIndex, long latencyNanos, Status status)
   {
     if(_measurementInterval==0)
       return;
     try
     {
-      OneMeasurement m = getOpIntendedMeasurement(operation);
-      m.measure(latency);
+      int index = measuredIndex(opIndex);
+      OneMeasurement m = getOpIntendedMeasurement(index);
+      m.measure(latencyNanos, status);
+      if (index == opIndex)
+      {
+        if (phaseOpIndex >= 0)
+        {
+          getOpIntendedMeasurement(phaseOpIndex).measure(latencyNanos, status);
+        }
+      }
     }
     // This seems like a terribly hacky way to cover up for a bug in the measurement code
     catch (java.lang.ArrayIndexOutOfBoundsException e)
@@ -233,33 +594,102 @@ public class Measurements {
     }
   }
 
-  private OneMeasurement getOpMeasurement(String operation) {
-    OneMeasurement m = _opToMesurementMap.get(operation);
-    if(m == null)
+  private OneMeasurement getOpMeasurement(int opIndex) {
+    OneMeasurement[] measurements = _opMeasurements;
+    if (opIndex < measurements.length && measurements[opIndex] != null)
     {
-      m = constructOneMeasurement(operation);
-      OneMeasurement oldM = _opToMesurementMap.putIfAbsent(operation, m);
-      if(oldM != null)
-      {
-          m = oldM;
-      }
+      return measurements[opIndex];
+    }
+    return createOpMeasurement(opIndex, false);
+  }
+
+  private OneMeasurement getOpIntendedMeasurement(int opIndex) {
+    OneMeasurement[] measurements = _opIntendedMeasurements;
+    if (opIndex < measurements.length && measurements[opIndex] != null)
+    {
+      return measurements[opIndex];
+    }
+    return createOpMeasurement(opIndex, true);
+  }
+
+  /**
+   * Creates the measurement of an operation on first use and publishes a copy of the measurement array
+   * containing it.
+   */
+  private synchronized OneMeasurement createOpMeasurement(int opIndex, boolean intended) {
+    OneMeasurement[] measurements = intended ? _opIntendedMeasurements : _opMeasurements;
+    if (opIndex < measurements.length && measurements[opIndex] != null)
+    {
+      return measurements[opIndex];
+    }
+
+    String operation = _opNames.get(opIndex);
+    final String name = (!intended || _measurementInterval==1) ? operation : "Intended-" + operation;
+    OneMeasurement m = constructOneMeasurement(name);
+
+    measurements = Arrays.copyOf(measurements, Math.max(measurements.length, _opNames.size()));
+    measurements[opIndex] = m;
+    if (intended)
+    {
+      _opIntendedMeasurements = measurements;
+    }
+    else
+    {
+      _opMeasurements = measurements;
     }
     return m;
   }
 
-  private OneMeasurement getOpIntendedMeasurement(String operation) {
-    OneMeasurement m = _opToIntendedMesurementMap.get(operation);
-    if(m == null)
+  /**
+   * Returns the latencies of an operation measured so far, from the intended start time if those are
+   * measured, without disturbing the status summary or the export.
+   *
+   * @param operation The name of the operation, e.g. "READ" or "phase2-step-2000:READ".
+   * @return A copy of the histogram in the reporting unit, or null if the operation was not measured or
+   *         the measurement type keeps no HdrHistogram.
+   */
+  public Histogram getHistogram(String operation)
+  {
+    Integer index = _opToIndexMap.get(operation);
+    OneMeasurement[] measurements = _measurementInterval==0 ? _opMeasurements : _opIntendedMeasurements;
+    if (index == null || index >= measurements.length || measurements[index] == null)
+    {
+      return null;
+    }
+    return measurements[index].getHistogram();
+  }
+
+  /**
+   * @return The number of operations reported per return code so far, or an empty map if the
+   *         operation was not measured.
+   */
+  public Map<Status, Long> getStatusCounts(String operation)
+  {
+    Integer index = _opToIndexMap.get(operation);
+    OneMeasurement[] measurements = _measurementInterval==1 ? _opIntendedMeasurements : _opMeasurements;
+    if (index == null || index >= measurements.length || measurements[index] == null)
+    {
+      return new HashMap<Status, Long>();
+    }
+    return measurements[index].getStatusCounts();
+  }
+
+  /**
+   * @return The names of the operations measured so far, including those of phases and of the warm-up,
+   *         in the order they were first measured.
+   */
+  public synchronized List<String> getOperations()
+  {
+    List<String> operations = new ArrayList<String>();
+    OneMeasurement[] measurements = _measurementInterval==0 ? _opMeasurements : _opIntendedMeasurements;
+    for (int i = 0; i < measurements.length; i++)
     {
-      final String name = _measurementInterval==1 ? operation : "Intended-" + operation;
-      m = constructOneMeasurement(name);
-      OneMeasurement oldM = _opToIntendedMesurementMap.putIfAbsent(operation, m);
-      if(oldM != null)
+      if (measurements[i] != null)
       {
-        m = oldM;
+        operations.add(_opNames.get(i));
       }
     }
-    return m;
+    return operations;
   }
 
   /**
@@ -267,10 +697,39 @@ public class Measurements {
    */
   public void reportStatus(final String operation, final Status status)
   {
+    reportStatus(getOpIndex(operation), status);
+  }
+
+  /**
+   * Report a return code for a single DB operation, identified by its index from
+   * {@link #getOpIndex(String)}.
+   */
+  public void reportStatus(int opIndex, final Status status)
+  {
+    reportStatus(opIndex, getPhaseOpIndex(opIndex), status);
+  }
+
+  /**
+   * Report a return code for a single DB operation, under the phase resolved by
+   * {@link #getPhaseOpIndex(int)} when the operation was issued.
+   */
+  public void reportStatus(int opIndex, int phaseOpIndex, final Status status)
+  {
+    int index = measuredIndex(opIndex);
     OneMeasurement m = _measurementInterval==1 ?
-          getOpIntendedMeasurement(operation) :
-          getOpMeasurement(operation);
+          getOpIntendedMeasurement(index) :
+          getOpMeasurement(index);
     m.reportStatus(status);
+    if (index == opIndex)
+    {
+      if (phaseOpIndex >= 0)
+      {
+        m = _measurementInterval==1 ?
+            getOpIntendedMeasurement(phaseOpIndex) :
+            getOpMeasurement(phaseOpIndex);
+        m.reportStatus(status);
+      }
+    }
   }
 
   /**
@@ -281,29 +740,60 @@ public class Measurements {
    */
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
-    for (OneMeasurement measurement : _opToMesurementMap.values())
+    RawStream rawStream;
+    synchronized (this)
+    {
+      rawStream = _rawStream;
+    }
+    if (rawStream != null)
     {
-      measurement.exportMeasurements(exporter);
+      rawStream.close();
     }
-    for (OneMeasurement measurement : _opToIntendedMesurementMap.values())
+    Set<Integer> skipped;
+    synchronized (this)
     {
-      measurement.exportMeasurements(exporter);
+      skipped = _exportWarmup ? new HashSet<Integer>() : new HashSet<Integer>(_warmupIndices);
+    }
+    OneMeasurement[] measurements = _opMeasurements;
+    for (int i = 0; i < measurements.length; i++)
+    {
+      if (measurements[i] != null && !skipped.contains(i))
+      {
+        measurements[i].exportMeasurements(exporter);
+      }
+    }
+    measurements = _opIntendedMeasurements;
+    for (int i = 0; i < measurements.length; i++)
+    {
+      if (measurements[i] != null && !skipped.contains(i))
+      {
+        measurements[i].exportMeasurements(exporter);
+      }
     }
   }
 
   /**
-   * Return a one line summary of the measurements.
+   * Return a one line summary of the measurements. The measurements of phases are left out, as the
+   * operations of the current phase are in the summary anyway.
    */
   public synchronized String getSummary()
   {
     String ret="";
-    for (OneMeasurement m : _opToMesurementMap.values())
+    OneMeasurement[] measurements = _opMeasurements;
+    for (int i = 0; i < measurements.length; i++)
     {
-      ret += m.getSummary()+" ";
+      if (measurements[i] != null && !_phaseOpIndices.contains(i))
+      {
+        ret += measurements[i].getSummary()+" ";
+      }
     }
-    for (OneMeasurement m : _opToIntendedMesurementMap.values())
+    measurements = _opIntendedMeasurements;
+    for (int i = 0; i < measurements.length; i++)
     {
-      ret += m.getSummary()+" ";
+      if (measurements[i] != null && !_phaseOpIndices.contains(i))
+      {
+        ret += measurements[i].getSummary()+" ";
+      }
     }
     return ret;
   }
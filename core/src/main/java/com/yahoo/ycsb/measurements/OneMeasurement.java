@@ -17,21 +17,29 @@
 
 package com.yahoo.ycsb.measurements;
 
+import org.HdrHistogram.Histogram;
+
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A single measured metric (such as READ LATENCY)
+ * <p>
+ * Latencies are measured in nanoseconds and converted to the reporting unit (see
+ * {@link Measurements#MEASUREMENT_UNIT}) when they are recorded.
+ * </p>
  */
 public abstract class OneMeasurement {
 
   private final String _name;
-  private  final ConcurrentHashMap<Status, AtomicInteger> _returncodes;
+  private final TimeUnit _unit;
+  private  final ConcurrentHashMap<Status, StripedCounter> _returncodes;
 
   public String getName() {
     return _name;
@@ -41,28 +49,89 @@ public abstract class OneMeasurement {
    * @param _name
    */
   public OneMeasurement(String _name) {
+    this(_name, TimeUnit.MICROSECONDS);
+  }
+
+  /**
+   * @param _name
+   * @param unit The unit latencies are recorded and reported in.
+   */
+  public OneMeasurement(String _name, TimeUnit unit) {
     this._name = _name;
-    this._returncodes = new ConcurrentHashMap<Status, AtomicInteger>();
+    this._unit = unit;
+    this._returncodes = new ConcurrentHashMap<Status, StripedCounter>();
+  }
+
+  /**
+   * @return The unit latencies are recorded and reported in.
+   */
+  public TimeUnit getUnit() {
+    return _unit;
+  }
+
+  /**
+   * @return The abbreviation of the reporting unit, e.g. "us".
+   */
+  protected String getUnitLabel() {
+    return Measurements.getUnitLabel(_unit);
+  }
+
+  /**
+   * @return The latency converted to the reporting unit, truncated.
+   */
+  protected long toUnit(long latencyNanos) {
+    return _unit.convert(latencyNanos, TimeUnit.NANOSECONDS);
   }
 
-  public abstract void measure(int latency);
+  /**
+   * Measures the latency of an operation together with its result. The result is only recorded by
+   * measurements that keep individual data points; return codes are counted by
+   * {@link #reportStatus(Status)}.
+   *
+   * @param latencyNanos The latency in nanoseconds.
+   * @param status The result of the operation, or null if it is not known.
+   */
+  public abstract void measure(long latencyNanos, Status status);
 
   public abstract String getSummary();
 
   /**
-   * No need for synchronization, using CHM to deal with that
+   * Returns the latencies measured so far without resetting anything, e.g. to check them while the
+   * benchmark runs.
+   *
+   * @return A copy of the histogram of all latencies measured so far in the reporting unit, or null if
+   *         this measurement keeps no histogram.
+   */
+  public Histogram getHistogram() {
+    return null;
+  }
+
+  /**
+   * No need for synchronization, using CHM to deal with that. The counters are striped so that threads
+   * reporting the same status do not contend on one cache line.
    */
   public void reportStatus(Status status) {
-    AtomicInteger counter = _returncodes.get(status);
+    StripedCounter counter = _returncodes.get(status);
 
     if (counter == null) {
-      AtomicInteger other = _returncodes.putIfAbsent(status, counter = new AtomicInteger());
+      StripedCounter other = _returncodes.putIfAbsent(status, counter = new StripedCounter());
       if (other != null) {
         counter = other;
       }
     }
 
-    counter.incrementAndGet();
+    counter.increment();
+  }
+
+  /**
+   * @return The number of operations reported per return code so far.
+   */
+  public Map<Status, Long> getStatusCounts() {
+    Map<Status, Long> counts = new HashMap<Status, Long>();
+    for (Map.Entry<Status, StripedCounter> entry : _returncodes.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().sum());
+    }
+    return counts;
   }
 
   /**
@@ -74,8 +143,21 @@ public abstract class OneMeasurement {
   public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
 
   protected final void exportStatusCounts(MeasurementsExporter exporter) throws IOException {
-    for (Map.Entry<Status, AtomicInteger> entry : _returncodes.entrySet()) {
-      exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().get());
+    for (Map.Entry<Status, StripedCounter> entry : _returncodes.entrySet()) {
+      writeLong(exporter, getName(), "Return=" + entry.getKey().getName(), entry.getValue().sum());
+    }
+  }
+
+  /**
+   * Writes a count or latency kept as a long through the int method of the exporter while it fits, so
+   * that it reads the same as when these values were ints, and as a double beyond.
+   */
+  public static void writeLong(MeasurementsExporter exporter, String metric, String measurement, long value)
+      throws IOException {
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      exporter.write(metric, measurement, (int) value);
+    } else {
+      exporter.write(metric, measurement, (double) value);
     }
   }
 }
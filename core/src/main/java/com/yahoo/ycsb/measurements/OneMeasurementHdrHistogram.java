@@ -24,12 +24,12 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramLogWriter;
 import org.HdrHistogram.Recorder;
 
+import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
@@ -45,8 +45,11 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   final PrintStream log;
   final HistogramLogWriter histogramLogWriter;
 
-  final Recorder histogram;
+  /** One recorder per stripe of client threads, merged whenever the interval histogram is taken. */
+  final Recorder[] histograms;
   Histogram totalHistogram;
+  /** The latencies taken by {@link #getHistogram()} since the last summary, still due in its interval. */
+  Histogram unreportedHistogram;
 
   /**
    * The name of the property for deciding what percentile values to output.
@@ -61,7 +64,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   List<Integer> percentiles;
 
   public OneMeasurementHdrHistogram(String name, Properties props) {
-    super(name);
+    super(name, Measurements.getReportingUnit(props));
     percentiles = getPercentileValues(props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT));
     boolean shouldLog = Boolean.parseBoolean(props.getProperty("hdrhistogram.fileoutput", "false"));
     if (!shouldLog) {
@@ -82,17 +85,21 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       histogramLogWriter.setBaseTime(now);
       histogramLogWriter.outputLegend();
     }
-    histogram = new Recorder(3);
+    histograms = new Recorder[StripedCounter.STRIPES];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new Recorder(3);
+    }
   }
 
   /**
-    * It appears latency is reported in micros.
-    * Using {@link Recorder} to support concurrent updates to histogram.
+    * The histogram records latencies in the reporting unit.
+    * Using {@link Recorder} to support concurrent updates to histogram, striped by thread so that
+    * the threads do not contend on a single recorder.
     *
-    * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+    * @see com.yahoo.ycsb.OneMeasurement#measure(long, Status)
     */
-  public void measure(int latencyInMicros) {
-    histogram.recordValue(latencyInMicros);
+  public void measure(long latencyNanos, Status status) {
+    histograms[StripedCounter.stripe()].recordValue(toUnit(latencyNanos));
   }
 
   /**
@@ -103,19 +110,20 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
     // accumulate the last interval which was not caught by status thread
-    Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
+    Histogram intervalHistogram = getUnreportedIntervalHistogram();
     if (histogramLogWriter != null) {
       histogramLogWriter.outputIntervalHistogram(intervalHistogram);
       // we can close now
       log.close();
     }
     exporter.write(getName(), "Operations", totalHistogram.getTotalCount());
-    exporter.write(getName(), "AverageLatency(us)", totalHistogram.getMean());
-    exporter.write(getName(), "MinLatency(us)", totalHistogram.getMinValue());
-    exporter.write(getName(), "MaxLatency(us)", totalHistogram.getMaxValue());
+    String unit = getUnitLabel();
+    exporter.write(getName(), "AverageLatency(" + unit + ")", totalHistogram.getMean());
+    exporter.write(getName(), "MinLatency(" + unit + ")", totalHistogram.getMinValue());
+    exporter.write(getName(), "MaxLatency(" + unit + ")", totalHistogram.getMaxValue());
 
     for (Integer percentile: percentiles) {
-      exporter.write(getName(), ordinal(percentile) + "PercentileLatency(us)", totalHistogram.getValueAtPercentile(percentile));
+      exporter.write(getName(), ordinal(percentile) + "PercentileLatency(" + unit + ")", totalHistogram.getValueAtPercentile(percentile));
     }
     
     exportStatusCounts(exporter);
@@ -130,7 +138,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 	 */
 	@Override
 	public String getSummary() {
-		Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
+		Histogram intervalHistogram = getUnreportedIntervalHistogram();
 		// we use the summary interval as the histogram file interval.
 		if (histogramLogWriter != null) {
 			histogramLogWriter.outputIntervalHistogram(intervalHistogram);
@@ -145,11 +153,42 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 				+ d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
 	}
 
-	private Histogram getIntervalHistogramAndAccumulate() {
-		Histogram intervalHistogram = histogram.getIntervalHistogram();
+	/**
+	 * Folds the latencies recorded since the last call into the total, and keeps them for the interval
+	 * of the next status summary, so that the status summary and the export are not affected.
+	 */
+	@Override
+	public synchronized Histogram getHistogram() {
+		Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
+		if (unreportedHistogram == null) {
+			unreportedHistogram = intervalHistogram;
+		} else {
+			unreportedHistogram.add(intervalHistogram);
+		}
+		return totalHistogram.copy();
+	}
+
+	/**
+	 * @return The latencies since the last summary, including those already taken by {@link #getHistogram()}.
+	 */
+	private synchronized Histogram getUnreportedIntervalHistogram() {
+		Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
+		if (unreportedHistogram != null) {
+			intervalHistogram.add(unreportedHistogram);
+			unreportedHistogram = null;
+		}
+		return intervalHistogram;
+	}
+
+	private synchronized Histogram getIntervalHistogramAndAccumulate() {
+		Histogram intervalHistogram = histograms[0].getIntervalHistogram();
+		for (int i = 1; i < histograms.length; i++) {
+			intervalHistogram.add(histograms[i].getIntervalHistogram());
+		}
 		// add this to the total time histogram.
 		if (totalHistogram == null) {
-			totalHistogram = intervalHistogram;
+			// a copy, as the interval may be added to
+			totalHistogram = intervalHistogram.copy();
 		} else {
 			totalHistogram.add(intervalHistogram);
 		}
@@ -20,15 +20,21 @@ package com.yahoo.ycsb.measurements;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
-
+import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 
 /**
  * Take measurements and maintain a histogram of a given metric, such as READ LATENCY.
+ * <p>
+ * The buckets are one millisecond wide whatever the reporting unit.
+ * </p><p>
+ * Client threads record into one of several stripes, chosen by thread id, each with its own buckets
+ * and lock, so threads rarely contend. The stripes are merged when the summary or the export is
+ * requested.
+ * </p>
  *
  * @author cooperb
  *
@@ -38,83 +44,131 @@ public class OneMeasurementHistogram extends OneMeasurement
   public static final String BUCKETS="histogram.buckets";
   public static final String BUCKETS_DEFAULT="1000";
 
-  int _buckets;
-  int[] histogram;
-  int histogramoverflow;
-  int operations;
-  long totallatency;
+  /**
+   * The measurements recorded by one stripe of client threads.
+   */
+  static final class Stripe
+  {
+    final long[] histogram;
+    long histogramoverflow;
+    long operations;
+    long totallatency;
 
-  //keep a windowed version of these stats for printing status
-  int windowoperations;
-  long windowtotallatency;
+    //keep a windowed version of these stats for printing status
+    long windowoperations;
+    long windowtotallatency;
 
-  int min;
-  int max;
+    long min=-1;
+    long max=-1;
 
-  public OneMeasurementHistogram(String name, Properties props)
-  {
-    super(name);
-    _buckets=Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
-    histogram=new int[_buckets];
-    histogramoverflow=0;
-    operations=0;
-    totallatency=0;
-    windowoperations=0;
-    windowtotallatency=0;
-    min=-1;
-    max=-1;
-  }
-
-  /* (non-Javadoc)
-   * @see com.yahoo.ycsb.OneMeasurement#measure(int)
-   */
-  public synchronized void measure(int latency)
-  {
-    if (latency/1000>=_buckets)
-    {
-      histogramoverflow++;
-    }
-    else
+    Stripe(int buckets)
     {
-      histogram[latency/1000]++;
+      histogram=new long[buckets];
     }
-    operations++;
-    totallatency+=latency;
-    windowoperations++;
-    windowtotallatency+=latency;
 
-    if ( (min<0) || (latency<min) )
+    /**
+     * @param bucket The latency in milliseconds.
+     * @param latency The latency in the reporting unit.
+     */
+    synchronized void measure(long bucket, long latency)
     {
-      min=latency;
+      if (bucket>=histogram.length)
+      {
+        histogramoverflow++;
+      }
+      else
+      {
+        histogram[(int) bucket]++;
+      }
+      operations++;
+      totallatency+=latency;
+      windowoperations++;
+      windowtotallatency+=latency;
+
+      if ( (min<0) || (latency<min) )
+      {
+        min=latency;
+      }
+
+      if ( (max<0) || (latency>max) )
+      {
+        max=latency;
+      }
     }
+  }
 
-    if ( (max<0) || (latency>max) )
+  int _buckets;
+  final Stripe[] _stripes;
+
+  public OneMeasurementHistogram(String name, Properties props)
+  {
+    super(name, Measurements.getReportingUnit(props));
+    _buckets=Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
+    _stripes=new Stripe[StripedCounter.STRIPES];
+    for (int i=0; i<_stripes.length; i++)
     {
-      max=latency;
+      _stripes[i]=new Stripe(_buckets);
     }
   }
 
+  /* (non-Javadoc)
+   * @see com.yahoo.ycsb.OneMeasurement#measure(long, Status)
+   */
+  public void measure(long latencyNanos, Status status)
+  {
+    _stripes[StripedCounter.stripe()].measure(latencyNanos/1000000, toUnit(latencyNanos));
+  }
+
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
-    exporter.write(getName(), "Operations", operations);
-    exporter.write(getName(), "AverageLatency(us)", (((double)totallatency)/((double)operations)));
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    long[] histogram=new long[_buckets];
+    long histogramoverflow=0;
+    long operations=0;
+    long totallatency=0;
+    long min=-1;
+    long max=-1;
+    for (Stripe stripe : _stripes)
+    {
+      synchronized (stripe)
+      {
+        for (int i=0; i<_buckets; i++)
+        {
+          histogram[i]+=stripe.histogram[i];
+        }
+        histogramoverflow+=stripe.histogramoverflow;
+        operations+=stripe.operations;
+        totallatency+=stripe.totallatency;
+        if ( (stripe.min>=0) && ((min<0) || (stripe.min<min)) )
+        {
+          min=stripe.min;
+        }
+        if (stripe.max>max)
+        {
+          max=stripe.max;
+        }
+      }
+    }
 
-    int opcounter=0;
+    writeLong(exporter, getName(), "Operations", operations);
+    String unit=getUnitLabel();
+    exporter.write(getName(), "AverageLatency("+unit+")", (((double)totallatency)/((double)operations)));
+    writeLong(exporter, getName(), "MinLatency("+unit+")", min);
+    writeLong(exporter, getName(), "MaxLatency("+unit+")", max);
+
+    long opcounter=0;
     boolean done95th=false;
     for (int i=0; i<_buckets; i++)
     {
       opcounter+=histogram[i];
       if ( (!done95th) && (((double)opcounter)/((double)operations)>=0.95) )
       {
-        exporter.write(getName(), "95thPercentileLatency(us)", i*1000);
+        writeLong(exporter, getName(), "95thPercentileLatency("+unit+")", getUnit().convert(i, TimeUnit.MILLISECONDS));
         done95th=true;
       }
       if (((double)opcounter)/((double)operations)>=0.99)
       {
-        exporter.write(getName(), "99thPercentileLatency(us)", i*1000);
+        writeLong(exporter, getName(), "99thPercentileLatency("+unit+")", getUnit().convert(i, TimeUnit.MILLISECONDS));
         break;
       }
     }
@@ -123,21 +177,31 @@ public class OneMeasurementHistogram extends OneMeasurement
 
     for (int i=0; i<_buckets; i++)
     {
-      exporter.write(getName(), Integer.toString(i), histogram[i]);
+      writeLong(exporter, getName(), Integer.toString(i), histogram[i]);
     }
-    exporter.write(getName(), ">"+_buckets, histogramoverflow);
+    writeLong(exporter, getName(), ">"+_buckets, histogramoverflow);
   }
 
   @Override
   public String getSummary() {
+    long windowoperations=0;
+    long windowtotallatency=0;
+    for (Stripe stripe : _stripes)
+    {
+      synchronized (stripe)
+      {
+        windowoperations+=stripe.windowoperations;
+        windowtotallatency+=stripe.windowtotallatency;
+        stripe.windowoperations=0;
+        stripe.windowtotallatency=0;
+      }
+    }
     if (windowoperations==0)
     {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
     double report=((double)windowtotallatency)/((double)windowoperations);
-    windowtotallatency=0;
-    windowoperations=0;
-    return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
+    return "["+getName()+" AverageLatency("+getUnitLabel()+")="+d.format(report)+"]";
   }
 }
@@ -25,6 +25,8 @@ import java.util.Properties;
 import java.util.LinkedList;
 import java.util.Collections;
 import java.util.Comparator;
+
+import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
@@ -41,9 +43,9 @@ public class OneMeasurementRaw extends OneMeasurement {
    */
   class RawDataPoint {
     private final long timestamp;
-    private final int value;
+    private final long value;
 
-    public RawDataPoint(int value) {
+    public RawDataPoint(long value) {
       this.timestamp = System.currentTimeMillis();
       this.value = value;
     }
@@ -52,7 +54,7 @@ public class OneMeasurementRaw extends OneMeasurement {
       return timestamp;
     }
 
-    public int value() {
+    public long value() {
       return value;
     }
   }
@@ -100,11 +102,11 @@ public class OneMeasurementRaw extends OneMeasurement {
   // A window of stats to print summary for at the next getSummary() call.
   // It's supposed to be a one line summary, so we will just print count and
   // average.
-  private int windowOperations = 0;
+  private long windowOperations = 0;
   private long windowTotalLatency = 0;
 
   public OneMeasurementRaw(String name, Properties props) {
-    super(name);
+    super(name, Measurements.getReportingUnit(props));
 
     outputFilePath = props.getProperty(OUTPUT_FILE_PATH,
         OUTPUT_FILE_PATH_DEFAULT);
@@ -133,7 +135,8 @@ public class OneMeasurementRaw extends OneMeasurement {
   }
 
   @Override
-  public synchronized void measure(int latency) {
+  public synchronized void measure(long latencyNanos, Status status) {
+    long latency = toUnit(latencyNanos);
     totalLatency += latency;
     windowTotalLatency += latency;
     windowOperations++;
@@ -148,7 +151,7 @@ public class OneMeasurementRaw extends OneMeasurement {
     // stdout.
 
     outputStream.println(getName() +
-        " latency raw data: op, timestamp(ms), latency(us)");
+        " latency raw data: op, timestamp(ms), latency(" + getUnitLabel() + ")");
     for (RawDataPoint point : measurements) {
       outputStream.println(
           String.format("%s,%d,%d", getName(), point.timeStamp(),
@@ -162,30 +165,30 @@ public class OneMeasurementRaw extends OneMeasurement {
     exporter.write(getName(), "Total Operations", totalOps);
     if (totalOps > 0 && !noSummaryStats) {
       exporter.write(getName(),
-          "Below is a summary of latency in microseconds:", -1);
+          "Below is a summary of latency in " + getUnit().name().toLowerCase() + ":", -1);
       exporter.write(getName(), "Average",
           (double)totalLatency / (double)totalOps);
 
       Collections.sort(measurements, new RawDataPointComparator());
 
-      exporter.write(getName(), "Min", measurements.get(0).value());
-      exporter.write(
+      writeLong(exporter, getName(), "Min", measurements.get(0).value());
+      writeLong(exporter,
           getName(), "Max", measurements.get(totalOps - 1).value());
-      exporter.write(
+      writeLong(exporter,
           getName(), "p1", measurements.get((int)(totalOps*0.01)).value());
-      exporter.write(
+      writeLong(exporter,
           getName(), "p5", measurements.get((int)(totalOps*0.05)).value());
-      exporter.write(
+      writeLong(exporter,
           getName(), "p50", measurements.get((int)(totalOps*0.5)).value());
-      exporter.write(
+      writeLong(exporter,
           getName(), "p90", measurements.get((int)(totalOps*0.9)).value());
-      exporter.write(
+      writeLong(exporter,
           getName(), "p95", measurements.get((int)(totalOps*0.95)).value());
-      exporter.write(
+      writeLong(exporter,
           getName(), "p99", measurements.get((int)(totalOps*0.99)).value());
-      exporter.write(getName(), "p99.9",
+      writeLong(exporter, getName(), "p99.9",
           measurements.get((int)(totalOps*0.999)).value());
-      exporter.write(getName(), "p99.99",
+      writeLong(exporter, getName(), "p99.99",
           measurements.get((int)(totalOps*0.9999)).value());
     }
 
@@ -198,8 +201,8 @@ public class OneMeasurementRaw extends OneMeasurement {
       return "";
     }
 
-    String toReturn = String.format("%s count: %d, average latency(us): %.2f",
-        getName(), windowOperations,
+    String toReturn = String.format("%s count: %d, average latency(%s): %.2f",
+        getName(), windowOperations, getUnitLabel(),
         (double)windowTotalLatency / (double)windowOperations);
 
     windowTotalLatency=0;
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Record every measurement as a raw data point like {@link OneMeasurementRaw}, but stream the data
+ * points to a binary file shared by all operations (see {@link RawStream}) instead of keeping them in
+ * memory. The summary percentiles are computed with an HdrHistogram rather than by sorting the data
+ * points, so memory use does not grow with the length of the run.
+ *
+ */
+public class OneMeasurementRawStream extends OneMeasurement {
+
+  private final RawStream stream;
+  private final short opId;
+
+  /** One recorder per stripe of client threads, see {@link OneMeasurementHdrHistogram}. */
+  private final Recorder[] histograms;
+  private Histogram totalHistogram;
+  private final boolean noSummaryStats;
+
+  public OneMeasurementRawStream(String name, Properties props, RawStream stream) {
+    super(name, Measurements.getReportingUnit(props));
+    this.stream = stream;
+    this.opId = stream.registerOp(name);
+    noSummaryStats = Boolean.parseBoolean(props.getProperty(OneMeasurementRaw.NO_SUMMARY_STATS,
+        OneMeasurementRaw.NO_SUMMARY_STATS_DEFAULT));
+    histograms = new Recorder[StripedCounter.STRIPES];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new Recorder(3);
+    }
+  }
+
+  @Override
+  public void measure(long latencyNanos, Status status) {
+    long latency = toUnit(latencyNanos);
+    histograms[StripedCounter.stripe()].recordValue(latency);
+    stream.record(opId, latency, status);
+  }
+
+  @Override
+  public void exportMeasurements(MeasurementsExporter exporter)
+      throws IOException {
+    getIntervalHistogramAndAccumulate();
+    Histogram histogram = totalHistogram;
+
+    long totalOps = histogram.getTotalCount();
+    writeLong(exporter, getName(), "Total Operations", totalOps);
+    if (totalOps > 0 && !noSummaryStats) {
+      exporter.write(getName(),
+          "Below is a summary of latency in " + getUnit().name().toLowerCase() + ":", -1);
+      exporter.write(getName(), "Average", histogram.getMean());
+      writeLong(exporter, getName(), "Min", histogram.getMinValue());
+      writeLong(exporter, getName(), "Max", histogram.getMaxValue());
+      writeLong(exporter, getName(), "p1", histogram.getValueAtPercentile(1));
+      writeLong(exporter, getName(), "p5", histogram.getValueAtPercentile(5));
+      writeLong(exporter, getName(), "p50", histogram.getValueAtPercentile(50));
+      writeLong(exporter, getName(), "p90", histogram.getValueAtPercentile(90));
+      writeLong(exporter, getName(), "p95", histogram.getValueAtPercentile(95));
+      writeLong(exporter, getName(), "p99", histogram.getValueAtPercentile(99));
+      writeLong(exporter, getName(), "p99.9", histogram.getValueAtPercentile(99.9));
+      writeLong(exporter, getName(), "p99.99", histogram.getValueAtPercentile(99.99));
+    }
+
+    exportStatusCounts(exporter);
+  }
+
+  @Override
+  public synchronized String getSummary() {
+    Histogram interval = getIntervalHistogramAndAccumulate();
+    if (interval.getTotalCount() == 0) {
+      return "";
+    }
+    return String.format("%s count: %d, average latency(%s): %.2f",
+        getName(), interval.getTotalCount(), getUnitLabel(), interval.getMean());
+  }
+
+  private synchronized Histogram getIntervalHistogramAndAccumulate() {
+    Histogram interval = histograms[0].getIntervalHistogram();
+    for (int i = 1; i < histograms.length; i++) {
+      interval.add(histograms[i].getIntervalHistogram());
+    }
+    if (totalHistogram == null) {
+      totalHistogram = interval.copy();
+    } else {
+      totalHistogram.add(interval);
+    }
+    return interval;
+  }
+}
@@ -18,30 +18,30 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
-import java.util.Vector;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.TreeMap;
 import java.text.DecimalFormat;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
 
-class SeriesUnit
-{
-  /**
-   * @param time
-   * @param average
-   */
-  public SeriesUnit(long time, double average) {
-    this.time = time;
-    this.average = average;
-  }
-  public long time;
-  public double average;
-}
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
  * A time series measurement of a metric, such as READ LATENCY.
+ * <p>
+ * Each thread accumulates its measurements in a bucket of its own for the current time unit, so
+ * measuring takes no locks and shares no memory with other threads. When a thread moves on to the next
+ * unit it queues its finished bucket, and whichever thread finds no merge in progress folds the queued
+ * buckets into the series. A unit is summarized and its histogram released once it ended at least a
+ * full unit ago; buckets of threads that were idle for longer than that still count towards the totals
+ * and the average of their unit, but no longer towards its percentiles.
+ * </p>
  */
 public class OneMeasurementTimeSeries extends OneMeasurement
 {
@@ -52,106 +52,290 @@ public class OneMeasurementTimeSeries extends OneMeasurement
   public static final String GRANULARITY="timeseries.granularity";
   public static final String GRANULARITY_DEFAULT="1000";
 
-  int _granularity;
-  Vector<SeriesUnit> _measurements;
+  /**
+   * Comma separated percentiles to report for each unit of the series in addition to the average, for
+   * example "99" or "50,99,99.9". Empty (the default) reports only the averages.
+   */
+  public static final String PERCENTILES="timeseries.percentiles";
+  public static final String PERCENTILES_DEFAULT="";
+
+  final int _granularity;
+  final double[] _percentiles;
+  final long start;
+
+  private final CopyOnWriteArrayList<Accumulator> _accumulators=new CopyOnWriteArrayList<Accumulator>();
+  private final ThreadLocal<Accumulator> _accumulator=new ThreadLocal<Accumulator>()
+  {
+    @Override
+    protected Accumulator initialValue()
+    {
+      Accumulator accumulator=new Accumulator();
+      _accumulators.add(accumulator);
+      return accumulator;
+    }
+  };
+
+  /** Finished buckets waiting to be merged. */
+  private final Queue<Bucket> _finished=new ConcurrentLinkedQueue<Bucket>();
+  private final AtomicBoolean _merging=new AtomicBoolean();
 
-  long start=-1;
-  long currentunit=-1;
-  int count=0;
-  int sum=0;
-  int operations=0;
-  long totallatency=0;
+  /** The series by unit, only accessed by the thread holding _merging. */
+  private final TreeMap<Long,Unit> _units=new TreeMap<Long,Unit>();
+  private final Histogram _total=new Histogram(3);
+  private long _finalizedBefore=0;
 
   //keep a windowed version of these stats for printing status
-  int windowoperations=0;
-  long windowtotallatency=0;
-
-  int min=-1;
-  int max=-1;
+  private final StripedCounter windowoperations=new StripedCounter();
+  private final StripedCounter windowtotallatency=new StripedCounter();
+  private long reportedoperations=0;
+  private long reportedtotallatency=0;
 
   public OneMeasurementTimeSeries(String name, Properties props)
   {
-    super(name);
+    super(name, Measurements.getReportingUnit(props));
     _granularity=Integer.parseInt(props.getProperty(GRANULARITY,GRANULARITY_DEFAULT));
-    _measurements=new Vector<SeriesUnit>();
+    String percentiles=props.getProperty(PERCENTILES,PERCENTILES_DEFAULT).trim();
+    String[] values=percentiles.isEmpty() ? new String[0] : percentiles.split(",");
+    _percentiles=new double[values.length];
+    for (int i=0; i<values.length; i++)
+    {
+      _percentiles[i]=Double.parseDouble(values[i].trim());
+    }
+    start=System.currentTimeMillis();
   }
 
-  void checkEndOfUnit(boolean forceend)
+  @Override
+  public void measure(long latencyNanos, Status status)
   {
-    long now=System.currentTimeMillis();
-
-    if (start<0)
+    long latency=toUnit(latencyNanos);
+    long unit=(System.currentTimeMillis()-start)/_granularity;
+    Accumulator accumulator=_accumulator.get();
+    Bucket bucket=accumulator.current;
+    if (bucket==null || bucket.unit!=unit)
     {
-      currentunit=0;
-      start=now;
+      if (bucket!=null)
+      {
+        _finished.add(bucket);
+        tryMerge(unit-1);
+      }
+      bucket=new Bucket(unit);
+      accumulator.current=bucket;
     }
+    bucket.record(latency);
 
-    long unit=((now-start)/_granularity)*_granularity;
+    windowoperations.increment();
+    windowtotallatency.add(latency);
+  }
 
-    if ( (unit>currentunit) || (forceend) )
+  /**
+   * Merges the finished buckets unless another thread is already doing so, in which case that thread
+   * or the next one to finish a bucket picks them up.
+   */
+  private void tryMerge(long finalizeBefore)
+  {
+    if (_merging.compareAndSet(false,true))
     {
-      double avg=((double)sum)/((double)count);
-      _measurements.add(new SeriesUnit(currentunit,avg));
-
-      currentunit=unit;
-
-      count=0;
-      sum=0;
+      try
+      {
+        merge(finalizeBefore);
+      }
+      finally
+      {
+        _merging.set(false);
+      }
     }
   }
 
-  @Override
-  public void measure(int latency)
+  /**
+   * Folds the queued buckets into the series and summarizes the units before the given one.
+   */
+  private void merge(long finalizeBefore)
   {
-    checkEndOfUnit(false);
-
-    count++;
-    sum+=latency;
-    totallatency+=latency;
-    operations++;
-    windowoperations++;
-    windowtotallatency+=latency;
-
-    if (latency>max)
+    Bucket bucket;
+    while ((bucket=_finished.poll())!=null)
     {
-      max=latency;
+      Unit unit=_units.get(bucket.unit);
+      if (unit==null)
+      {
+        unit=new Unit(bucket.unit<_finalizedBefore);
+        _units.put(bucket.unit,unit);
+      }
+      unit.add(bucket);
+      _total.add(bucket.histogram);
     }
-
-    if ( (latency<min) || (min<0) )
+    if (finalizeBefore>_finalizedBefore)
     {
-      min=latency;
+      for (Unit unit : _units.subMap(_finalizedBefore,finalizeBefore).values())
+      {
+        unit.finish(_percentiles);
+      }
+      _finalizedBefore=finalizeBefore;
     }
   }
 
-
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    checkEndOfUnit(true);
-
-    exporter.write(getName(), "Operations", operations);
-    exporter.write(getName(), "AverageLatency(us)", (((double) totallatency) / ((double) operations)));
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    // the client threads are done; collect the buckets they are still holding
+    for (Accumulator accumulator : _accumulators)
+    {
+      if (accumulator.current!=null)
+      {
+        _finished.add(accumulator.current);
+        accumulator.current=null;
+      }
+    }
+    while (!_merging.compareAndSet(false,true))
+    {
+      Thread.yield();
+    }
+    try
+    {
+      merge(Long.MAX_VALUE);
+    }
+    finally
+    {
+      _merging.set(false);
+    }
 
-    // TODO: 95th and 99th percentile latency
+    long operations=0;
+    long totallatency=0;
+    // exact, unlike the extremes of the histogram, which keeps three significant digits
+    long min=Long.MAX_VALUE;
+    long max=Long.MIN_VALUE;
+    for (Unit unit : _units.values())
+    {
+      operations+=unit.count;
+      totallatency+=unit.sum;
+      min=Math.min(min,unit.min);
+      max=Math.max(max,unit.max);
+    }
+    String label=getUnitLabel();
+    writeLong(exporter, getName(), "Operations", operations);
+    exporter.write(getName(), "AverageLatency("+label+")", (((double) totallatency) / ((double) operations)));
+    writeLong(exporter, getName(), "MinLatency("+label+")", operations==0 ? -1 : min);
+    writeLong(exporter, getName(), "MaxLatency("+label+")", operations==0 ? -1 : max);
+    writeLong(exporter, getName(), "95thPercentileLatency("+label+")", _total.getValueAtPercentile(95));
+    writeLong(exporter, getName(), "99thPercentileLatency("+label+")", _total.getValueAtPercentile(99));
 
     exportStatusCounts(exporter);
-    for (SeriesUnit unit : _measurements) {
-      exporter.write(getName(), Long.toString(unit.time), unit.average);
+    for (Map.Entry<Long,Unit> entry : _units.entrySet())
+    {
+      long time=entry.getKey()*_granularity;
+      Unit unit=entry.getValue();
+      exporter.write(getName(), Long.toString(time), ((double) unit.sum)/((double) unit.count));
+      for (int i=0; i<unit.percentiles.length; i++)
+      {
+        exporter.write(getName(), time+"_p"+format(_percentiles[i]), unit.percentiles[i]);
+      }
     }
   }
 
+  private static String format(double percentile)
+  {
+    return percentile==Math.floor(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+  }
+
   @Override
   public String getSummary() {
-    if (windowoperations==0)
+    long operations=windowoperations.sum();
+    long totallatency=windowtotallatency.sum();
+    if (operations==reportedoperations)
     {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
-    double report=((double)windowtotallatency)/((double)windowoperations);
-    windowtotallatency=0;
-    windowoperations=0;
-    return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
+    double report=((double)(totallatency-reportedtotallatency))/((double)(operations-reportedoperations));
+    reportedoperations=operations;
+    reportedtotallatency=totallatency;
+    return "["+getName()+" AverageLatency("+getUnitLabel()+")="+d.format(report)+"]";
   }
 
+  /**
+   * The bucket a thread is currently filling.
+   */
+  private static final class Accumulator
+  {
+    Bucket current;
+  }
+
+  /**
+   * The measurements of one thread during one unit.
+   */
+  private static final class Bucket
+  {
+    final long unit;
+    final Histogram histogram=new Histogram(3);
+    long count=0;
+    long sum=0;
+    long min=Long.MAX_VALUE;
+    long max=Long.MIN_VALUE;
+
+    Bucket(long unit)
+    {
+      this.unit=unit;
+    }
+
+    void record(long latency)
+    {
+      count++;
+      sum+=latency;
+      min=Math.min(min,latency);
+      max=Math.max(max,latency);
+      histogram.recordValue(Math.max(0,latency));
+    }
+  }
+
+  /**
+   * The merged measurements of one unit. The histogram is dropped once the unit is summarized.
+   */
+  private static final class Unit
+  {
+    long count=0;
+    long sum=0;
+    long min=Long.MAX_VALUE;
+    long max=Long.MIN_VALUE;
+    Histogram histogram;
+    double[] percentiles;
+
+    /**
+     * @param late true for a bucket of an idle thread that arrived after its unit was summarized
+     */
+    Unit(boolean late)
+    {
+      if (late)
+      {
+        percentiles=new double[0];
+      }
+      else
+      {
+        histogram=new Histogram(3);
+      }
+    }
+
+    void add(Bucket bucket)
+    {
+      count+=bucket.count;
+      sum+=bucket.sum;
+      min=Math.min(min,bucket.min);
+      max=Math.max(max,bucket.max);
+      if (histogram!=null)
+      {
+        histogram.add(bucket.histogram);
+      }
+    }
+
+    void finish(double[] wanted)
+    {
+      if (histogram==null)
+      {
+        return;
+      }
+      percentiles=new double[wanted.length];
+      for (int i=0; i<wanted.length; i++)
+      {
+        percentiles[i]=histogram.getValueAtPercentile(wanted[i]);
+      }
+      histogram=null;
+    }
+  }
 }
@@ -0,0 +1,391 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.ycsb.Status;
+
+/**
+ * Streams every measured operation to a binary file with bounded memory.
+ * <p>
+ * Each thread appends fixed width records to its own pair of buffers: while it fills one, a background
+ * flusher writes the other to disk. A thread that fills its buffer before the other one has been
+ * written waits for the flusher, so memory use is two buffers per thread regardless of the length of
+ * the run. Partially filled buffers are flushed every flush interval.
+ * </p><p>
+ * A record is {@value #RECORD_SIZE} bytes, big endian: the end time of the operation in microseconds
+ * since the epoch (long), the latency in the reporting unit (long), the operation id (short) and the
+ * status id (short, 0 if no status was reported with the measurement). The ids are listed in a text
+ * file next to the trace, named like it with a ".names" suffix, as lines of "op|status id name",
+ * preceded by a line "unit ns|us|ms".
+ * </p><p>
+ * With the "columnar" format the buffers are instead encoded as blocks of delta and varint encoded
+ * columns with the names stored inline (see {@link ColumnarTraceWriter}), which typically takes a
+ * quarter to a third of the space. Both formats can be read with {@link TraceReader}.
+ * </p>
+ */
+class RawStream {
+
+  public static final String OUTPUT_FILE_PATH = "measurement.rawstream.output_file";
+  public static final String OUTPUT_FILE_PATH_DEFAULT = "ycsb-raw.bin";
+
+  /**
+   * The number of records buffered per thread before handing them to the flusher. Each thread uses two
+   * such buffers.
+   */
+  public static final String BUFFER_RECORDS = "measurement.rawstream.buffer_records";
+  public static final String BUFFER_RECORDS_DEFAULT = "4096";
+
+  /**
+   * How often, in milliseconds, partially filled buffers are written.
+   */
+  public static final String FLUSH_INTERVAL = "measurement.rawstream.flush_interval";
+  public static final String FLUSH_INTERVAL_DEFAULT = "1000";
+
+  /**
+   * The format of the trace: "fixed" for fixed width records, or "columnar".
+   */
+  public static final String FORMAT = "measurement.rawstream.format";
+  public static final String FORMAT_DEFAULT = "fixed";
+
+  static final int RECORD_SIZE = 20;
+
+  /** The status id of measurements that were taken without a status. */
+  static final short NO_STATUS = 0;
+
+  private final String outputFilePath;
+  private final String unitLabel;
+  private final FileChannel channel;
+  /** The encoder of the columnar format, null for the fixed format. */
+  private final ColumnarTraceWriter columnar;
+  private final int bufferBytes;
+  private final long flushIntervalMs;
+
+  /** Time base translating {@link System#nanoTime()} into microseconds since the epoch. */
+  private final long baseEpochMicros;
+  private final long baseNanos;
+
+  /** Append only, so that the flusher can read the names while ids are being assigned. */
+  private final List<String> opNames = new CopyOnWriteArrayList<String>();
+  private final List<String> statusNames = new CopyOnWriteArrayList<String>();
+  private final ConcurrentHashMap<Status, Short> statusIds = new ConcurrentHashMap<Status, Short>();
+
+  private final CopyOnWriteArrayList<ThreadBuffer> buffers = new CopyOnWriteArrayList<ThreadBuffer>();
+  private final ThreadLocal<ThreadBuffer> threadBuffer = new ThreadLocal<ThreadBuffer>() {
+    @Override
+    protected ThreadBuffer initialValue() {
+      ThreadBuffer buffer = new ThreadBuffer();
+      buffers.add(buffer);
+      return buffer;
+    }
+  };
+
+  /** Full buffers waiting to be written, with the thread buffer each one has to be returned to. */
+  private final BlockingQueue<Segment> pending = new LinkedBlockingQueue<Segment>();
+
+  private final Thread flusher;
+  private volatile boolean closed = false;
+  private volatile IOException failure = null;
+
+  RawStream(Properties props) {
+    outputFilePath = props.getProperty(OUTPUT_FILE_PATH, OUTPUT_FILE_PATH_DEFAULT);
+    bufferBytes = RECORD_SIZE * Integer.parseInt(props.getProperty(BUFFER_RECORDS, BUFFER_RECORDS_DEFAULT));
+    flushIntervalMs = Long.parseLong(props.getProperty(FLUSH_INTERVAL, FLUSH_INTERVAL_DEFAULT));
+    unitLabel = Measurements.getUnitLabel(Measurements.getReportingUnit(props));
+    String format = props.getProperty(FORMAT, FORMAT_DEFAULT);
+    if (!format.equals("fixed") && !format.equals("columnar")) {
+      throw new IllegalArgumentException("Unknown " + FORMAT + " '" + format + "', expected fixed or columnar");
+    }
+
+    baseEpochMicros = System.currentTimeMillis() * 1000;
+    baseNanos = System.nanoTime();
+    try {
+      channel = new FileOutputStream(outputFilePath).getChannel();
+      columnar = format.equals("columnar") ? new ColumnarTraceWriter(channel, baseEpochMicros, unitLabel): null;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to open raw stream output file " + outputFilePath, e);
+    }
+    System.out.println("Raw data measurement: will stream " + format + " records to " + outputFilePath);
+    statusNames.add("NONE");
+
+    flusher = new Thread("RawStreamFlusher") {
+      @Override
+      public void run() {
+        flushLoop();
+      }
+    };
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Registers an operation name.
+   *
+   * @return The id written with the records of the operation.
+   */
+  synchronized short registerOp(String name) {
+    opNames.add(name);
+    return (short) (opNames.size() - 1);
+  }
+
+  private short statusId(Status status) {
+    if (status == null) {
+      return NO_STATUS;
+    }
+    Short id = statusIds.get(status);
+    if (id == null) {
+      synchronized (this) {
+        id = statusIds.get(status);
+        if (id == null) {
+          statusNames.add(status.getName());
+          id = (short) (statusNames.size() - 1);
+          statusIds.put(status, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Appends a record for an operation that just completed.
+   *
+   * @param latency The latency in the reporting unit.
+   */
+  void record(short op, long latency, Status status) {
+    if (closed) {
+      return;
+    }
+    long endMicros = baseEpochMicros + (System.nanoTime() - baseNanos) / 1000;
+    threadBuffer.get().append(endMicros, latency, op, statusId(status));
+  }
+
+  /**
+   * Writes all buffered records and closes the file. Records appended afterwards are dropped.
+   *
+   * @throws IOException if writing the trace failed at any point.
+   */
+  synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    drainPending();
+    boolean interrupted = false;
+    for (ThreadBuffer buffer : buffers) {
+      // an append that raced with closing may still have handed over the other buffer; once it is
+      // written and back, no further append touches the thread buffer
+      while (!buffer.hasSpare()) {
+        try {
+          write(pending.take());
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      Segment segment = buffer.takePartial();
+      if (segment != null) {
+        write(segment);
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    channel.close();
+    if (columnar == null) {
+      writeNames();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void flushLoop() {
+    long nextFlush = System.currentTimeMillis() + flushIntervalMs;
+    while (!closed) {
+      try {
+        Segment segment = pending.poll(Math.max(1, nextFlush - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        if (segment != null) {
+          write(segment);
+        }
+      } catch (InterruptedException e) {
+        // closing; the remaining segments are written by close()
+      }
+      if (System.currentTimeMillis() >= nextFlush) {
+        for (ThreadBuffer buffer : buffers) {
+          Segment segment = buffer.takePartial();
+          if (segment != null) {
+            write(segment);
+          }
+        }
+        nextFlush = System.currentTimeMillis() + flushIntervalMs;
+      }
+    }
+  }
+
+  private void drainPending() {
+    Segment segment;
+    while ((segment = pending.poll()) != null) {
+      write(segment);
+    }
+  }
+
+  /**
+   * Writes a segment and returns its buffer to the thread. Once writing failed, segments are discarded
+   * so that client threads never block on a broken trace.
+   */
+  private void write(Segment segment) {
+    try {
+      if (failure == null) {
+        if (columnar != null) {
+          // every id in the segment was assigned before its record was appended
+          columnar.writeNames(opNames, statusNames);
+          columnar.writeRecords(segment.data);
+        } else {
+          while (segment.data.hasRemaining()) {
+            channel.write(segment.data);
+          }
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Failed to write raw stream " + outputFilePath + ", further records are dropped");
+      e.printStackTrace();
+      failure = e;
+    } finally {
+      segment.owner.recycle(segment.data);
+    }
+  }
+
+  private synchronized void writeNames() throws IOException {
+    PrintStream names = new PrintStream(new FileOutputStream(outputFilePath + ".names"), false, "UTF-8");
+    try {
+      names.println("unit " + unitLabel);
+      for (int i = 0; i < opNames.size(); i++) {
+        names.println("op " + i + " " + opNames.get(i));
+      }
+      for (int i = 0; i < statusNames.size(); i++) {
+        names.println("status " + i + " " + statusNames.get(i));
+      }
+    } finally {
+      names.close();
+    }
+  }
+
+  /**
+   * A filled buffer on its way to disk.
+   */
+  private static final class Segment {
+    final ThreadBuffer owner;
+    final ByteBuffer data;
+
+    Segment(ThreadBuffer owner, ByteBuffer data) {
+      this.owner = owner;
+      this.data = data;
+    }
+  }
+
+  /**
+   * The two buffers of one thread. The lock is only contended when the flusher takes a partially
+   * filled buffer or returns a written one.
+   */
+  private final class ThreadBuffer {
+    private ByteBuffer active = ByteBuffer.allocate(bufferBytes);
+    /** The buffer not being filled, or null while the flusher owns it. */
+    private ByteBuffer spare = ByteBuffer.allocate(bufferBytes);
+
+    synchronized void append(long endMicros, long latency, short op, short status) {
+      if (closed) {
+        return;
+      }
+      if (active.remaining() < RECORD_SIZE) {
+        awaitSpare();
+        if (closed) {
+          // the records collected so far are written by close()
+          return;
+        }
+        swap();
+      }
+      active.putLong(endMicros).putLong(latency).putShort(op).putShort(status);
+    }
+
+    /**
+     * Hands the records collected so far to the caller, if any. Nothing is taken while the other buffer
+     * is still being written.
+     */
+    synchronized Segment takePartial() {
+      if (active.position() == 0 || spare == null) {
+        return null;
+      }
+      ByteBuffer full = active;
+      active = spare;
+      spare = null;
+      full.flip();
+      return new Segment(this, full);
+    }
+
+    synchronized boolean hasSpare() {
+      return spare != null;
+    }
+
+    synchronized void recycle(ByteBuffer buffer) {
+      buffer.clear();
+      spare = buffer;
+      notifyAll();
+    }
+
+    /**
+     * Waits for the other buffer to be written, or for the stream to be closed.
+     */
+    private void awaitSpare() {
+      boolean interrupted = false;
+      while (spare == null && !closed) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void swap() {
+      ByteBuffer full = active;
+      active = spare;
+      spare = null;
+      full.flip();
+      pending.add(new Segment(this, full));
+    }
+  }
+}
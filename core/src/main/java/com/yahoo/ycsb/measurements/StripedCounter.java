@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that is updated by many threads and read rarely. Each thread increments one of several
+ * cells, each on its own cache line, and the cells are only summed when the counter is read.
+ */
+final class StripedCounter {
+
+  /** The number of stripes, a power of two with roughly two stripes per processor. */
+  static final int STRIPES;
+
+  static {
+    int stripes = 4;
+    int wanted = Math.min(64, 2 * Runtime.getRuntime().availableProcessors());
+    while (stripes < wanted) {
+      stripes <<= 1;
+    }
+    STRIPES = stripes;
+  }
+
+  /** Longs between two cells, keeping each cell on its own (pair of) cache lines. */
+  private static final int PADDING = 16;
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+  /**
+   * @return The stripe of the calling thread. Client threads get consecutive ids, so they rarely share
+   *         a stripe as long as there are fewer of them than stripes.
+   */
+  static int stripe() {
+    return (int) Thread.currentThread().getId() & (STRIPES - 1);
+  }
+
+  public void increment() {
+    cells.getAndIncrement(stripe() * PADDING);
+  }
+
+  public void add(long x) {
+    cells.getAndAdd(stripe() * PADDING, x);
+  }
+
+  /**
+   * @return The sum of all cells. Not atomic with respect to concurrent updates.
+   */
+  public long sum() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.get(i * PADDING);
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,368 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the trace written by the rawstream measurement type block by block, so that traces of any size
+ * can be processed in constant memory. Both the fixed width format and the columnar format (see
+ * {@link ColumnarTraceWriter}) are supported; {@link #open(String)} tells them apart by the magic at
+ * the start of columnar traces.
+ * <p>
+ * After {@link #nextBlock(long, long)} returned true, the records of the block are available through
+ * {@link #getCount()} and the indexed getters.
+ * </p>
+ */
+public abstract class TraceReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  final DataInputStream in;
+  final List<String> opNames = new ArrayList<String>();
+  final List<String> statusNames = new ArrayList<String>();
+
+  /** The unit of the latencies, microseconds unless the trace says otherwise. */
+  String unitLabel = "us";
+
+  int count;
+  long[] endMicros = new long[0];
+  long[] latencies = new long[0];
+  int[] ops = new int[0];
+  int[] statuses = new int[0];
+
+  TraceReader(DataInputStream in) {
+    this.in = in;
+  }
+
+  /**
+   * Opens a trace, detecting its format.
+   */
+  public static TraceReader open(String path) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), BUFFER_SIZE));
+    try {
+      byte[] magic = new byte[ColumnarTraceWriter.MAGIC.length];
+      in.mark(magic.length);
+      int read = 0;
+      while (read < magic.length) {
+        int n = in.read(magic, read, magic.length - read);
+        if (n < 0) {
+          break;
+        }
+        read += n;
+      }
+      if (read == magic.length && Arrays.equals(magic, ColumnarTraceWriter.MAGIC)) {
+        return new Columnar(in);
+      }
+      in.reset();
+      return new Fixed(in, path);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the next block of records.
+   *
+   * @param fromMicros The start of the time window of interest, in microseconds since the epoch.
+   * @param toMicros The end of the time window of interest.
+   * @return false at the end of the trace. Blocks that are known to lie entirely outside of the window
+   *         may be skipped, but the records of the returned block still have to be filtered.
+   */
+  public abstract boolean nextBlock(long fromMicros, long toMicros) throws IOException;
+
+  /**
+   * @return The start of the trace in microseconds since the epoch, or 0 if the trace is empty.
+   */
+  public abstract long getStartMicros();
+
+  /**
+   * @return The unit of the latencies: "ns", "us" or "ms".
+   */
+  public String getUnitLabel() {
+    return unitLabel;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  /** @return The end time of the operation in microseconds since the epoch. */
+  public long getEndMicros(int i) {
+    return endMicros[i];
+  }
+
+  /** @return The latency of the operation in the unit of the trace. */
+  public long getLatency(int i) {
+    return latencies[i];
+  }
+
+  public int getOp(int i) {
+    return ops[i];
+  }
+
+  public int getStatus(int i) {
+    return statuses[i];
+  }
+
+  /** @return The name of the operation with the given id. */
+  public String getOpName(int id) {
+    return id < opNames.size() && opNames.get(id) != null ? opNames.get(id) : "OP-" + id;
+  }
+
+  /** @return The name of the status with the given id. */
+  public String getStatusName(int id) {
+    return id < statusNames.size() && statusNames.get(id) != null ? statusNames.get(id) : "STATUS-" + id;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  void ensureCapacity(int capacity) {
+    if (endMicros.length < capacity) {
+      endMicros = new long[capacity];
+      latencies = new long[capacity];
+      ops = new int[capacity];
+      statuses = new int[capacity];
+    }
+  }
+
+  static void setName(List<String> names, int id, String name) {
+    while (names.size() <= id) {
+      names.add(null);
+    }
+    names.set(id, name);
+  }
+
+  /**
+   * The columnar format, see {@link ColumnarTraceWriter}.
+   */
+  private static final class Columnar extends TraceReader {
+    private final long baseEpochMicros;
+
+    Columnar(DataInputStream in) throws IOException {
+      super(in);
+      baseEpochMicros = in.readLong();
+      // the unit follows the header, before any block
+      in.mark(1);
+      if (in.read() == ColumnarTraceWriter.UNIT) {
+        unitLabel = readString();
+      } else {
+        in.reset();
+      }
+    }
+
+    @Override
+    public long getStartMicros() {
+      return baseEpochMicros;
+    }
+
+    @Override
+    public boolean nextBlock(long fromMicros, long toMicros) throws IOException {
+      while (true) {
+        int tag = in.read();
+        if (tag < 0) {
+          count = 0;
+          return false;
+        }
+        switch (tag) {
+        case ColumnarTraceWriter.OP_NAME:
+          setName(opNames, readVarInt(), readString());
+          break;
+        case ColumnarTraceWriter.STATUS_NAME:
+          setName(statusNames, readVarInt(), readString());
+          break;
+        case ColumnarTraceWriter.UNIT:
+          unitLabel = readString();
+          break;
+        case ColumnarTraceWriter.BLOCK:
+          int records = readVarInt();
+          long min = baseEpochMicros + readSignedVarLong();
+          long max = min + readVarLong();
+          int length = readVarInt();
+          if (max < fromMicros || min > toMicros) {
+            skipFully(length);
+            break;
+          }
+          ensureCapacity(records);
+          long previous = min;
+          for (int i = 0; i < records; i++) {
+            previous += readSignedVarLong();
+            endMicros[i] = previous;
+          }
+          for (int i = 0; i < records; i++) {
+            latencies[i] = readVarLong();
+          }
+          for (int i = 0; i < records; i++) {
+            ops[i] = readVarInt();
+          }
+          for (int i = 0; i < records; i++) {
+            statuses[i] = readVarInt();
+          }
+          count = records;
+          return true;
+        default:
+          throw new IOException("Corrupt trace: unknown entry " + tag);
+        }
+      }
+    }
+
+    private void skipFully(int length) throws IOException {
+      while (length > 0) {
+        int skipped = (int) in.skip(length);
+        if (skipped <= 0) {
+          throw new EOFException("Truncated trace");
+        }
+        length -= skipped;
+      }
+    }
+
+    private String readString() throws IOException {
+      byte[] bytes = new byte[readVarInt()];
+      in.readFully(bytes);
+      return new String(bytes, UTF8);
+    }
+
+    private int readVarInt() throws IOException {
+      return (int) readVarLong();
+    }
+
+    private long readSignedVarLong() throws IOException {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = in.read();
+        if (b < 0) {
+          throw new EOFException("Truncated trace");
+        }
+        value |= (long) (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Corrupt trace: varint too long");
+    }
+  }
+
+  /**
+   * The fixed width format of {@link RawStream}, with the names read from the ".names" file next to it.
+   * The records carry no block index, so the whole trace is read regardless of the time window.
+   */
+  private static final class Fixed extends TraceReader {
+    private static final int BLOCK_RECORDS = 4096;
+
+    private final byte[] block = new byte[BLOCK_RECORDS * RawStream.RECORD_SIZE];
+    private long startMicros;
+    private boolean buffered;
+
+    Fixed(DataInputStream in, String path) throws IOException {
+      super(in);
+      readNames(new File(path + ".names"));
+      // the first block tells where the trace starts; hand it out on the first call to nextBlock
+      buffered = readBlock();
+      startMicros = count > 0 ? endMicros[0] - latencies[0] : 0;
+      for (int i = 1; i < count; i++) {
+        startMicros = Math.min(startMicros, endMicros[i] - latencies[i]);
+      }
+    }
+
+    @Override
+    public long getStartMicros() {
+      return startMicros;
+    }
+
+    @Override
+    public boolean nextBlock(long fromMicros, long toMicros) throws IOException {
+      if (buffered) {
+        buffered = false;
+        return true;
+      }
+      return readBlock();
+    }
+
+    private boolean readBlock() throws IOException {
+      int read = 0;
+      while (read < block.length) {
+        int n = in.read(block, read, block.length - read);
+        if (n < 0) {
+          break;
+        }
+        read += n;
+      }
+      // a partial record at the end was cut short by an interrupted run; ignore it
+      int records = read / RawStream.RECORD_SIZE;
+      ensureCapacity(records);
+      ByteBuffer buffer = ByteBuffer.wrap(block, 0, records * RawStream.RECORD_SIZE);
+      for (int i = 0; i < records; i++) {
+        endMicros[i] = buffer.getLong();
+        latencies[i] = buffer.getLong();
+        ops[i] = buffer.getShort() & 0xffff;
+        statuses[i] = buffer.getShort() & 0xffff;
+      }
+      count = records;
+      return records > 0;
+    }
+
+    private void readNames(File file) throws IOException {
+      if (!file.exists()) {
+        return;
+      }
+      BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          String[] parts = line.split(" ", 3);
+          if (parts.length == 2 && parts[0].equals("unit")) {
+            unitLabel = parts[1];
+          }
+          if (parts.length < 3) {
+            continue;
+          }
+          if (parts[0].equals("op")) {
+            setName(opNames, Integer.parseInt(parts[1]), parts[2]);
+          } else if (parts[0].equals("status")) {
+            setName(statusNames, Integer.parseInt(parts[1]), parts[2]);
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    }
+  }
+}
@@ -17,11 +17,11 @@
 
 package com.yahoo.ycsb.measurements;
 
+import org.HdrHistogram.Histogram;
+
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
-import org.HdrHistogram.Recorder;
-
 import java.io.IOException;
 
 /**
@@ -33,7 +33,7 @@ public class TwoInOneMeasurement extends OneMeasurement {
 
   final OneMeasurement thing1,thing2;
   public TwoInOneMeasurement(String name, OneMeasurement thing1,OneMeasurement thing2) {
-    super(name);
+    super(name, thing1.getUnit());
     this.thing1 = thing1;
     this.thing2 = thing2;
   }
@@ -49,15 +49,12 @@ public class TwoInOneMeasurement extends OneMeasurement {
   }
 
   /**
-   * It appears latency is reported in micros.
-   * Using {@link Recorder} to support concurrent updates to histogram.
-   *
-   * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+   * @see com.yahoo.ycsb.measurements.OneMeasurement#measure(long, Status)
    */
   @Override
-  public void measure(int latencyInMicros) {
-    thing1.measure(latencyInMicros);
-    thing2.measure(latencyInMicros);
+  public void measure(long latencyNanos, Status status) {
+    thing1.measure(latencyNanos, status);
+    thing2.measure(latencyNanos, status);
   }
 
   /**
@@ -81,4 +78,10 @@ public class TwoInOneMeasurement extends OneMeasurement {
     return thing1.getSummary() + "\n" + thing2.getSummary();
   }
 
+  @Override
+  public Histogram getHistogram() {
+    Histogram histogram = thing1.getHistogram();
+    return histogram != null ? histogram : thing2.getHistogram();
+  }
+
 }
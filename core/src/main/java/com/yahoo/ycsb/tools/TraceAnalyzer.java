@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.TraceReader;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+/**
+ * Recomputes latency statistics from a trace written by the rawstream measurement type, optionally
+ * restricted to a time window, to some operations or to some statuses. The trace is streamed block by
+ * block and summarized in HdrHistograms, so the memory use does not depend on the size of the trace.
+ */
+public class TraceAnalyzer {
+
+  public static final String PERCENTILES_DEFAULT = "50,90,95,99,99.9,99.99";
+
+  private long fromMicros = Long.MIN_VALUE;
+  private long toMicros = Long.MAX_VALUE;
+  private Set<String> opFilter = null;
+  private Set<String> statusFilter = null;
+  private boolean byStatus = false;
+  private final List<Double> percentiles = new ArrayList<Double>();
+  private String unit = "us";
+
+  /** The histograms by operation name, or by "operation-status" when grouping by status. */
+  private final Map<String, Histogram> histograms = new TreeMap<String, Histogram>();
+  private long firstEndMicros = Long.MAX_VALUE;
+  private long lastEndMicros = Long.MIN_VALUE;
+
+  public static void usageMessage() {
+    System.out.println("Usage: java com.yahoo.ycsb.tools.TraceAnalyzer [options] tracefile");
+    System.out.println("Options:");
+    System.out.println("  -from seconds: Ignore operations that completed earlier after the start of the trace");
+    System.out.println("  -to seconds: Ignore operations that completed later after the start of the trace");
+    System.out.println("  -op name: Only include this operation, e.g. READ (may be repeated)");
+    System.out.println("  -status name: Only include operations with this status, e.g. OK (may be repeated)");
+    System.out.println("  -bystatus: Report each operation and status combination separately");
+    System.out.println("  -percentiles list: Comma separated percentiles to report (default "
+        + PERCENTILES_DEFAULT + ")");
+    System.out.println("  -exporter classname: Use this MeasurementsExporter (default "
+        + TextMeasurementsExporter.class.getName() + ")");
+  }
+
+  public static void main(String[] args) {
+    TraceAnalyzer analyzer = new TraceAnalyzer();
+    String exporterClass = TextMeasurementsExporter.class.getName();
+    String percentiles = PERCENTILES_DEFAULT;
+    double fromSeconds = Double.NaN;
+    double toSeconds = Double.NaN;
+
+    int argindex = 0;
+    try {
+      while (argindex < args.length && args[argindex].startsWith("-")) {
+        String option = args[argindex++];
+        if (option.equals("-bystatus")) {
+          analyzer.byStatus = true;
+          continue;
+        }
+        if (option.equals("-help") || option.equals("--help") || argindex >= args.length) {
+          usageMessage();
+          System.exit(0);
+        }
+        String value = args[argindex++];
+        if (option.equals("-from")) {
+          fromSeconds = Double.parseDouble(value);
+        } else if (option.equals("-to")) {
+          toSeconds = Double.parseDouble(value);
+        } else if (option.equals("-op")) {
+          analyzer.opFilter = add(analyzer.opFilter, value);
+        } else if (option.equals("-status")) {
+          analyzer.statusFilter = add(analyzer.statusFilter, value);
+        } else if (option.equals("-percentiles")) {
+          percentiles = value;
+        } else if (option.equals("-exporter")) {
+          exporterClass = value;
+        } else {
+          System.out.println("Unknown option " + option);
+          usageMessage();
+          System.exit(0);
+        }
+      }
+      for (String percentile : percentiles.split(",")) {
+        analyzer.percentiles.add(Double.parseDouble(percentile.trim()));
+      }
+    } catch (NumberFormatException e) {
+      System.out.println("Invalid number: " + e.getMessage());
+      usageMessage();
+      System.exit(0);
+    }
+    if (argindex != args.length - 1) {
+      usageMessage();
+      System.exit(0);
+    }
+
+    // only the construction of the exporter is reflective, report its failures apart from the analysis
+    MeasurementsExporter exporter;
+    try {
+      OutputStream out = System.out;
+      exporter = (MeasurementsExporter) Class.forName(exporterClass)
+          .getConstructor(OutputStream.class).newInstance(out);
+    } catch (Exception e) {
+      System.err.println("Could not create exporter " + exporterClass + ": " + e);
+      System.exit(1);
+      return;
+    }
+
+    try {
+      TraceReader reader = TraceReader.open(args[argindex]);
+      try {
+        long start = reader.getStartMicros();
+        if (!Double.isNaN(fromSeconds)) {
+          analyzer.fromMicros = start + (long) (fromSeconds * 1000000);
+        }
+        if (!Double.isNaN(toSeconds)) {
+          analyzer.toMicros = start + (long) (toSeconds * 1000000);
+        }
+        analyzer.unit = reader.getUnitLabel();
+        analyzer.analyze(reader);
+      } finally {
+        reader.close();
+      }
+
+      try {
+        analyzer.export(exporter);
+      } finally {
+        exporter.close();
+      }
+    } catch (IOException e) {
+      System.err.println("Failed to analyze " + args[argindex] + ": " + e.getMessage());
+      System.exit(1);
+    } catch (RuntimeException e) {
+      System.err.println("Failed to analyze " + args[argindex] + ": " + e);
+      System.exit(1);
+    }
+  }
+
+  private static Set<String> add(Set<String> set, String value) {
+    if (set == null) {
+      set = new HashSet<String>();
+    }
+    set.add(value);
+    return set;
+  }
+
+  /**
+   * Adds the records of the trace that pass the filters to the histograms.
+   */
+  void analyze(TraceReader reader) throws IOException {
+    // resolve the names once per id rather than once per record
+    List<Histogram> byOp = new ArrayList<Histogram>();
+    List<Boolean> statusIncluded = new ArrayList<Boolean>();
+    Map<Long, Histogram> byOpAndStatus = new TreeMap<Long, Histogram>();
+
+    while (reader.nextBlock(fromMicros, toMicros)) {
+      for (int i = 0; i < reader.getCount(); i++) {
+        long end = reader.getEndMicros(i);
+        if (end < fromMicros || end > toMicros) {
+          continue;
+        }
+        int op = reader.getOp(i);
+        int status = reader.getStatus(i);
+        while (statusIncluded.size() <= status) {
+          String name = reader.getStatusName(statusIncluded.size());
+          statusIncluded.add(statusFilter == null || statusFilter.contains(name));
+        }
+        if (!statusIncluded.get(status)) {
+          continue;
+        }
+
+        Histogram histogram;
+        if (byStatus) {
+          Long key = ((long) op << 32) | status;
+          histogram = byOpAndStatus.get(key);
+          if (histogram == null && !byOpAndStatus.containsKey(key)) {
+            histogram = histogram(reader.getOpName(op), reader.getOpName(op) + "-" + reader.getStatusName(status));
+            byOpAndStatus.put(key, histogram);
+          }
+        } else {
+          while (byOp.size() <= op) {
+            String name = reader.getOpName(byOp.size());
+            byOp.add(histogram(name, name));
+          }
+          histogram = byOp.get(op);
+        }
+        if (histogram == null) {
+          continue;
+        }
+        histogram.recordValue(Math.max(0, reader.getLatency(i)));
+        firstEndMicros = Math.min(firstEndMicros, end);
+        lastEndMicros = Math.max(lastEndMicros, end);
+      }
+    }
+  }
+
+  /**
+   * @return The histogram of the group, or null if the operation is filtered out.
+   */
+  private Histogram histogram(String op, String group) {
+    if (opFilter != null && !opFilter.contains(op)) {
+      return null;
+    }
+    Histogram histogram = histograms.get(group);
+    if (histogram == null) {
+      histogram = new Histogram(3);
+      histograms.put(group, histogram);
+    }
+    return histogram;
+  }
+
+  void export(MeasurementsExporter exporter) throws IOException {
+    long operations = 0;
+    for (Histogram histogram : histograms.values()) {
+      operations += histogram.getTotalCount();
+    }
+    double runtime = operations == 0 ? 0 : (lastEndMicros - firstEndMicros) / 1000.0;
+    exporter.write("OVERALL", "RunTime(ms)", runtime);
+    exporter.write("OVERALL", "Operations", operations);
+    if (runtime > 0) {
+      exporter.write("OVERALL", "Throughput(ops/sec)", operations * 1000.0 / runtime);
+    }
+
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      String name = entry.getKey();
+      Histogram histogram = entry.getValue();
+      exporter.write(name, "Operations", histogram.getTotalCount());
+      exporter.write(name, "AverageLatency(" + unit + ")", histogram.getMean());
+      exporter.write(name, "MinLatency(" + unit + ")", histogram.getMinValue());
+      exporter.write(name, "MaxLatency(" + unit + ")", histogram.getMaxValue());
+      for (double percentile : percentiles) {
+        exporter.write(name, percentileName(percentile) + "PercentileLatency(" + unit + ")",
+            histogram.getValueAtPercentile(percentile));
+      }
+    }
+  }
+
+  /**
+   * @return The ordinal of the percentile, e.g. 1st, 99th or 99.9th.
+   */
+  private static String percentileName(double percentile) {
+    if (percentile != Math.floor(percentile)) {
+      return percentile + "th";
+    }
+    int i = (int) percentile;
+    String[] suffixes = new String[] {"th", "st", "nd", "rd", "th", "th", "th", "th", "th", "th"};
+    if (i % 100 >= 11 && i % 100 <= 13) {
+      return i + "th";
+    }
+    return i + suffixes[i % 10];
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.tools;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+import com.yahoo.ycsb.workloads.ReplayTrace;
+import com.yahoo.ycsb.workloads.TraceReplayWorkload;
+
+/**
+ * Converts a text trace of operations, e.g. extracted from an access log, into the binary format
+ * replayed by {@link TraceReplayWorkload}. The input is read line by line and the output written record
+ * by record, so traces of any size can be converted.
+ * <p>
+ * Each line holds comma separated values: timestamp,operation,key[,fields[,size]].
+ * <ul>
+ * <li>timestamp: microseconds, from any origin; left empty if the trace has no timing
+ * <li>operation: read, update, insert, scan, delete or readmodifywrite, in any case
+ * <li>key: a key number, or a key like user1234 of which the number is used; any other key is hashed
+ * into a key number
+ * <li>fields: the indices of the fields accessed, separated by semicolons; empty or * for all fields
+ * <li>size: the size of each value written, or the length of a scan; empty or 0 for the default
+ * </ul>
+ * Empty lines and lines starting with # are skipped.
+ * </p>
+ */
+public class TraceConverter {
+
+  public static void usageMessage() {
+    System.out.println("Usage: java com.yahoo.ycsb.tools.TraceConverter input.csv output.trace");
+    System.out.println("Each input line is timestamp,operation,key[,fields[,size]], see the javadoc of "
+        + TraceConverter.class.getName());
+  }
+
+  public static void main(String[] args) {
+    if (args.length != 2 || args[0].startsWith("-")) {
+      usageMessage();
+      System.exit(0);
+    }
+    try {
+      long count = convert(args[0], args[1]);
+      System.out.println("Wrote " + count + " records to " + args[1]);
+    } catch (IOException e) {
+      System.err.println("Failed to convert " + args[0] + ": " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * @return The number of records written.
+   */
+  public static long convert(String input, String output) throws IOException {
+    BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(input),
+        Charset.forName("UTF-8")), 1 << 16);
+    try {
+      ReplayTrace.Writer out = new ReplayTrace.Writer(output);
+      try {
+        String line;
+        long lineno = 0;
+        while ((line = in.readLine()) != null) {
+          lineno++;
+          line = line.trim();
+          if (line.isEmpty() || line.startsWith("#")) {
+            continue;
+          }
+          try {
+            add(out, line);
+          } catch (IllegalArgumentException e) {
+            throw new IOException("Line " + lineno + ": " + e.getMessage());
+          }
+        }
+        return out.count();
+      } finally {
+        out.close();
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void add(ReplayTrace.Writer out, String line) throws IOException {
+    String[] values = line.split(",", -1);
+    if (values.length < 3 || values.length > 5) {
+      throw new IllegalArgumentException("expected timestamp,operation,key[,fields[,size]]");
+    }
+    String timestamp = values[0].trim();
+    long micros = timestamp.isEmpty() ? ReplayTrace.NO_TIMESTAMP : Long.parseLong(timestamp);
+    ReplayTrace.Op op;
+    try {
+      op = ReplayTrace.Op.valueOf(values[1].trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("unknown operation " + values[1]);
+    }
+    long key = keyNumber(values[2].trim());
+    long fieldmask = values.length > 3 ? fieldMask(values[3].trim()) : 0;
+    String size = values.length > 4 ? values[4].trim() : "";
+    out.add(micros, op, key, fieldmask, size.isEmpty() ? 0 : Integer.parseInt(size));
+  }
+
+  /**
+   * @return The number of the key: the key itself if it is a number, the number it ends with if it is
+   *         made of letters followed by a number, like the keys of the core workload, or else its
+   *         64 bit FNV-1a hash.
+   */
+  static long keyNumber(String key) {
+    if (key.isEmpty()) {
+      throw new IllegalArgumentException("empty key");
+    }
+    int digits = key.length();
+    while (digits > 0 && Character.isDigit(key.charAt(digits - 1))) {
+      digits--;
+    }
+    boolean letters = true;
+    for (int i = 0; i < digits; i++) {
+      letters &= Character.isLetter(key.charAt(i));
+    }
+    // at most 18 digits, so that the number fits into a long
+    if (letters && digits < key.length() && key.length() - digits <= 18) {
+      return Long.parseLong(key.substring(digits));
+    }
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash ^= key.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash & Long.MAX_VALUE;
+  }
+
+  static long fieldMask(String fields) {
+    if (fields.isEmpty() || fields.equals("*")) {
+      return 0;
+    }
+    long mask = 0;
+    for (String field : fields.split(";")) {
+      int index = Integer.parseInt(field.trim());
+      if (index < 0 || index > 63) {
+        throw new IllegalArgumentException("field index " + index + " out of range 0-63");
+      }
+      mask |= 1L << index;
+    }
+    return mask;
+  }
+}
@@ -18,11 +18,12 @@
 package com.yahoo.ycsb.workloads;
 
 import java.util.Properties;
+import java.util.Random;
 
 import com.yahoo.ycsb.*;
 import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
 import com.yahoo.ycsb.generator.CounterGenerator;
-import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.AliasDiscreteGenerator;
 import com.yahoo.ycsb.generator.ExponentialGenerator;
 import com.yahoo.ycsb.generator.Generator;
 import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
@@ -32,6 +33,7 @@ import com.yahoo.ycsb.generator.IntegerGenerator;
 import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.generator.Zeta;
 import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
@@ -52,6 +54,8 @@ import java.util.ArrayList;
  * <UL>
  * <LI><b>fieldcount</b>: the number of fields in a record (default: 10)
  * <LI><b>fieldlength</b>: the size of each field (default: 100)
+ * <LI><b>fieldcompressibility</b>: the fraction by which a compressor can shrink each field value, below 1 (default: 0)
+ * <LI><b>fieldentropy</b>: whether random field values are made of printable characters ("printable") or arbitrary bytes ("binary") (default: printable)
  * <LI><b>readallfields</b>: should reads read all fields (true) or just one (false) (default: true)
  * <LI><b>writeallfields</b>: should updates and read/modify/writes update all fields (true) or just one (false) (default: false)
  * <LI><b>readproportion</b>: what proportion of operations should be reads (default: 0.95)
@@ -107,6 +111,32 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT = "constant";
 
+	/**
+	 * The name of the property for the fraction by which a compressor can shrink the generated values,
+	 * from 0 (random values, the default) to below 1. See {@link CompressibleByteIterator}.
+	 */
+	public static final String FIELD_COMPRESSIBILITY_PROPERTY="fieldcompressibility";
+
+	/**
+	 * The default compressibility of the values.
+	 */
+	public static final String FIELD_COMPRESSIBILITY_PROPERTY_DEFAULT="0";
+
+	/**
+	 * The name of the property for the bytes random values are made of: "printable" characters (the
+	 * default) or arbitrary "binary" bytes, which do not compress at all but are not valid strings.
+	 */
+	public static final String FIELD_ENTROPY_PROPERTY="fieldentropy";
+
+	/**
+	 * The default bytes of the values.
+	 */
+	public static final String FIELD_ENTROPY_PROPERTY_DEFAULT="printable";
+
+	double fieldcompressibility;
+
+	boolean binaryvalues;
+
 	/**
 	 * The name of the property for the length of a field in bytes.
 	 */
@@ -172,6 +202,44 @@ public class CoreWorkload extends Workload
    */
   private boolean dataintegrity;
 
+  /**
+   * The name of the property for how values are built and verified when checking data integrity.
+   * "string" (the default) builds a string from the key, the field name and repeated hash codes, and
+   * needs a constant field length. "hash" fills the value with printable bytes from a generator seeded
+   * with a hash of the key and field name, which is cheaper, and verifies it as it streams the returned
+   * bytes; field lengths may then vary, as the length is drawn with the same seed and checked as well.
+   * Values must have been loaded with the same mode.
+   */
+  public static final String DATA_INTEGRITY_MODE_PROPERTY = "dataintegrity.mode";
+
+  /**
+   * The default value for the dataintegrity.mode property.
+   */
+  public static final String DATA_INTEGRITY_MODE_PROPERTY_DEFAULT = "string";
+
+  private boolean hashintegrity;
+
+  /** The field length if it is constant, or -1. */
+  private int constantfieldlength;
+
+  /**
+   * The name of the property for reusing the buffers of the generated values. Each client thread then
+   * builds its values into a buffer and field maps of its own instead of allocating them for every
+   * operation, which keeps the garbage collector out of the measurements at high throughput. The DB
+   * must not keep the values after an operation returned, so this cannot be used with asynchronous
+   * operations.
+   */
+  public static final String REUSE_VALUES_PROPERTY = "reusevalues";
+
+  /**
+   * The default value for the reusevalues property.
+   */
+  public static final String REUSE_VALUES_PROPERTY_DEFAULT = "false";
+
+  private boolean reusevalues;
+
+  private int maxfieldlength;
+
 	/**
 	 * The name of the property for the proportion of transactions that are reads.
 	 */
@@ -278,7 +346,9 @@ public class CoreWorkload extends Workload
   public static final String HOTSPOT_OPN_FRACTION = "hotspotopnfraction";
   
   /**
-	 * The name of the property for the batch size
+	 * The name of the property for the batch size. With a batch size above 1, inserts, reads and updates
+	 * are issued as batches of that many records through the multi* methods of the DB, each batch counting
+	 * as one operation.
 	 */
 	public static final String BATCH_SIZE_PROPERTY="batchsize";
 	
@@ -296,7 +366,15 @@ public class CoreWorkload extends Workload
 	
 	IntegerGenerator keysequence;
 
-	DiscreteGenerator operationchooser;
+	/**
+	 * The operations of the transaction phase.
+	 */
+	public enum Operation
+	{
+		READ, UPDATE, INSERT, SCAN, READMODIFYWRITE
+	}
+
+	AliasDiscreteGenerator<Operation> operationchooser;
 
 	IntegerGenerator keychooser;
 
@@ -308,10 +386,55 @@ public class CoreWorkload extends Workload
 	
 	boolean orderedinserts;
 
-	int recordcount;
+	long recordcount;
+
+	/** The key after the last one to be inserted in the load phase. */
+	long insertlimit;
+
+	/** The properties the workload was initialized with, for creating the generators of each thread. */
+	private Properties workloadproperties;
+
+	/** The shared generators, used by operations called without the state of a thread. */
+	private ThreadState sharedstate;
+
+	/**
+	 * The state of the thread running doTransaction(), read by the doTransaction*(DB) methods it
+	 * dispatches to, so that subclasses overriding those still get called.
+	 */
+	private final ThreadLocal<ThreadState> currentstate=new ThreadLocal<ThreadState>();
+
+	/**
+	 * The state of one client thread, returned by initThread(): generators of its own, so that the
+	 * threads do not contend on the last values and the internal state of shared generators, and the
+	 * value buffers of the thread if {@link #REUSE_VALUES_PROPERTY} is set. Only the counters of the
+	 * inserted keys stay shared.
+	 */
+	public static final class ThreadState
+	{
+		final AliasDiscreteGenerator<Operation> operationchooser;
+		final IntegerGenerator keychooser;
+		final Generator fieldchooser;
+		final IntegerGenerator scanlength;
+		final IntegerGenerator fieldlengthgenerator;
+		/** Null unless values are reused. */
+		final RecordBuilder builder;
+
+		ThreadState(AliasDiscreteGenerator<Operation> operationchooser, IntegerGenerator keychooser, Generator fieldchooser,
+				IntegerGenerator scanlength, IntegerGenerator fieldlengthgenerator, RecordBuilder builder)
+		{
+			this.operationchooser=operationchooser;
+			this.keychooser=keychooser;
+			this.fieldchooser=fieldchooser;
+			this.scanlength=scanlength;
+			this.fieldlengthgenerator=fieldlengthgenerator;
+			this.builder=builder;
+		}
+	}
 
     private Measurements _measurements = Measurements.getMeasurements();
-	
+    private final int _verifyIndex = _measurements.getOpIndex("VERIFY");
+    private final int _readModifyWriteIndex = _measurements.getOpIndex("READ-MODIFY-WRITE");
+
 	protected static IntegerGenerator getFieldLengthGenerator(Properties p) throws WorkloadException{
 		IntegerGenerator fieldlengthgenerator;
 		String fieldlengthdistribution = p.getProperty(FIELD_LENGTH_DISTRIBUTION_PROPERTY, FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
@@ -341,87 +464,137 @@ public class CoreWorkload extends Workload
 	 */
 	public void init(Properties p) throws WorkloadException
 	{
+		Zeta.configure(p);
 		table = p.getProperty(TABLENAME_PROPERTY,TABLENAME_PROPERTY_DEFAULT);
 		
 		fieldcount=Integer.parseInt(p.getProperty(FIELD_COUNT_PROPERTY,FIELD_COUNT_PROPERTY_DEFAULT));
 		batchsize = Integer.parseInt(p.getProperty(BATCH_SIZE_PROPERTY, BATCH_SIZE_PROPERTY_DEFAULT));
     fieldnames = new ArrayList<String>();
-    for (int i = 0; i < fieldcount * batchsize; i++) {
+    for (int i = 0; i < fieldcount; i++) {
         fieldnames.add("field" + i);
     }
 		fieldlengthgenerator = CoreWorkload.getFieldLengthGenerator(p);
+		fieldcompressibility=Double.parseDouble(p.getProperty(FIELD_COMPRESSIBILITY_PROPERTY,FIELD_COMPRESSIBILITY_PROPERTY_DEFAULT));
+		if (!(fieldcompressibility>=0 && fieldcompressibility<1))
+		{
+			throw new WorkloadException("Invalid "+FIELD_COMPRESSIBILITY_PROPERTY+" "+fieldcompressibility+", must be at least 0 and below 1");
+		}
+		String fieldentropy=p.getProperty(FIELD_ENTROPY_PROPERTY,FIELD_ENTROPY_PROPERTY_DEFAULT);
+		if (fieldentropy.equals("binary"))
+		{
+			binaryvalues=true;
+		}
+		else if (!fieldentropy.equals("printable"))
+		{
+			throw new WorkloadException("Unknown "+FIELD_ENTROPY_PROPERTY+" \""+fieldentropy+"\"");
+		}
 		
-		double readproportion=Double.parseDouble(p.getProperty(READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
-		double updateproportion=Double.parseDouble(p.getProperty(UPDATE_PROPORTION_PROPERTY,UPDATE_PROPORTION_PROPERTY_DEFAULT));
-		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
-		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
-		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
-		recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+		recordcount=Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
 		if(recordcount == 0)
-		    recordcount = Integer.MAX_VALUE;
-		String requestdistrib=p.getProperty(REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
-		int maxscanlength=Integer.parseInt(p.getProperty(MAX_SCAN_LENGTH_PROPERTY,MAX_SCAN_LENGTH_PROPERTY_DEFAULT));
-		String scanlengthdistrib=p.getProperty(SCAN_LENGTH_DISTRIBUTION_PROPERTY,SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
-		
-		int insertstart=Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
-		
+		    recordcount = Long.MAX_VALUE;
+		long insertstart=Long.parseLong(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
+		insertlimit=insertstart+Long.parseLong(p.getProperty(Client.INSERT_COUNT_PROPERTY,
+				String.valueOf(recordcount-insertstart)));
+
 		readallfields=Boolean.parseBoolean(p.getProperty(READ_ALL_FIELDS_PROPERTY,READ_ALL_FIELDS_PROPERTY_DEFAULT));
 		writeallfields=Boolean.parseBoolean(p.getProperty(WRITE_ALL_FIELDS_PROPERTY,WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
 		
     dataintegrity = Boolean.parseBoolean(p.getProperty(DATA_INTEGRITY_PROPERTY, DATA_INTEGRITY_PROPERTY_DEFAULT));
-    //Confirm that fieldlengthgenerator returns a constant if data
+    String dataintegritymode = p.getProperty(DATA_INTEGRITY_MODE_PROPERTY, DATA_INTEGRITY_MODE_PROPERTY_DEFAULT);
+    if (dataintegritymode.equals("hash"))
+    {
+      hashintegrity = true;
+    }
+    else if (!dataintegritymode.equals("string"))
+    {
+      throw new WorkloadException("Unknown " + DATA_INTEGRITY_MODE_PROPERTY + " \"" + dataintegritymode + "\"");
+    }
+    boolean constantlength = p.getProperty(FIELD_LENGTH_DISTRIBUTION_PROPERTY, FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT).equals("constant");
+    constantfieldlength = constantlength
+        ? Integer.parseInt(p.getProperty(FIELD_LENGTH_PROPERTY, FIELD_LENGTH_PROPERTY_DEFAULT)) : -1;
+    //Confirm that fieldlengthgenerator returns a constant if string-based data
     //integrity check requested.
-    if (dataintegrity && !(p.getProperty(FIELD_LENGTH_DISTRIBUTION_PROPERTY, FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT)).equals("constant"))
+    if (dataintegrity && !hashintegrity && !constantlength)
     {
       System.err.println("Must have constant field size to check data integrity.");
       System.exit(-1);
     }
+    if (dataintegrity && Integer.parseInt(p.getProperty(AsyncDB.INFLIGHT_PROPERTY, AsyncDB.INFLIGHT_PROPERTY_DEFAULT)) > 0)
+    {
+      throw new WorkloadException("Data integrity checks need the read results and cannot be used with "
+          + AsyncDB.INFLIGHT_PROPERTY);
+    }
 
-		if (p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed")==0)
-		{
-			orderedinserts=false;
-		}
-		else if (requestdistrib.compareTo("exponential")==0)
-		{
-                    double percentile = Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_PERCENTILE_PROPERTY,
-                                                                         ExponentialGenerator.EXPONENTIAL_PERCENTILE_DEFAULT));
-                    double frac       = Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_FRAC_PROPERTY,
-                                                                         ExponentialGenerator.EXPONENTIAL_FRAC_DEFAULT));
-                    keychooser = new ExponentialGenerator(percentile, recordcount*frac);
-		}
-		else
-		{
-			orderedinserts=true;
-		}
+    reusevalues = Boolean.parseBoolean(p.getProperty(REUSE_VALUES_PROPERTY, REUSE_VALUES_PROPERTY_DEFAULT));
+    if (reusevalues && Integer.parseInt(p.getProperty(AsyncDB.INFLIGHT_PROPERTY, AsyncDB.INFLIGHT_PROPERTY_DEFAULT)) > 0)
+    {
+      throw new WorkloadException("Reused values are overwritten by the next operation and cannot be used with "
+          + AsyncDB.INFLIGHT_PROPERTY);
+    }
+    maxfieldlength = Integer.parseInt(p.getProperty(FIELD_LENGTH_PROPERTY, FIELD_LENGTH_PROPERTY_DEFAULT));
+    if (Integer.parseInt(p.getProperty(AsyncDB.INFLIGHT_PROPERTY, AsyncDB.INFLIGHT_PROPERTY_DEFAULT)) > 0
+        && Boolean.parseBoolean(p.getProperty(Client.DO_TRANSACTIONS_PROPERTY, "true"))
+        && Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY, READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT)) > 0)
+    {
+      throw new WorkloadException("Read-modify-write updates after the read completed and cannot be used with "
+          + AsyncDB.INFLIGHT_PROPERTY);
+    }
+
+		orderedinserts=p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed")!=0;
 
 		keysequence=new CounterGenerator(insertstart);
-		operationchooser=new DiscreteGenerator();
+		transactioninsertkeysequence=new AcknowledgedCounterGenerator(recordcount);
+
+		workloadproperties=p;
+		operationchooser=createOperationChooser();
+		keychooser=createKeyChooser();
+		fieldchooser=new UniformIntegerGenerator(0,fieldcount-1);
+		scanlength=createScanLengthGenerator();
+		sharedstate=new ThreadState(operationchooser,keychooser,fieldchooser,scanlength,fieldlengthgenerator,null);
+	}
+
+	private AliasDiscreteGenerator<Operation> createOperationChooser()
+	{
+		Properties p=workloadproperties;
+		double readproportion=Double.parseDouble(p.getProperty(READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
+		double updateproportion=Double.parseDouble(p.getProperty(UPDATE_PROPORTION_PROPERTY,UPDATE_PROPORTION_PROPERTY_DEFAULT));
+		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
+		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
+		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
+
+		AliasDiscreteGenerator<Operation> operationchooser=new AliasDiscreteGenerator<Operation>();
 		if (readproportion>0)
 		{
-			operationchooser.addValue(readproportion,"READ");
+			operationchooser.addValue(readproportion,Operation.READ);
 		}
 
 		if (updateproportion>0)
 		{
-			operationchooser.addValue(updateproportion,"UPDATE");
+			operationchooser.addValue(updateproportion,Operation.UPDATE);
 		}
 
 		if (insertproportion>0)
 		{
-			operationchooser.addValue(insertproportion,"INSERT");
+			operationchooser.addValue(insertproportion,Operation.INSERT);
 		}
 		
 		if (scanproportion>0)
 		{
-			operationchooser.addValue(scanproportion,"SCAN");
+			operationchooser.addValue(scanproportion,Operation.SCAN);
 		}
 		
 		if (readmodifywriteproportion>0)
 		{
-			operationchooser.addValue(readmodifywriteproportion,"READMODIFYWRITE");
+			operationchooser.addValue(readmodifywriteproportion,Operation.READMODIFYWRITE);
 		}
+		return operationchooser;
+	}
 
-		transactioninsertkeysequence=new AcknowledgedCounterGenerator(recordcount);
+	private IntegerGenerator createKeyChooser() throws WorkloadException
+	{
+		Properties p=workloadproperties;
+		String requestdistrib=p.getProperty(REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
+		IntegerGenerator keychooser;
 		if (requestdistrib.compareTo("uniform")==0)
 		{
 			keychooser=new UniformIntegerGenerator(0,recordcount-1);
@@ -435,10 +608,21 @@ public class CoreWorkload extends Workload
 			//plus the number of predicted keys as the total keyspace. then, if the generator picks a key that hasn't been inserted yet, will
 			//just ignore it and pick another key. this way, the size of the keyspace doesn't change from the perspective of the scrambled zipfian generator
 			
-			int opcount=Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-			int expectednewkeys=(int)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
+			double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
+			long opcount=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+			long expectednewkeys=(long)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
 			
-			keychooser=new ScrambledZipfianGenerator(recordcount+expectednewkeys);
+			// an unbounded record count already spans the whole keyspace
+			long keyspace=recordcount>Long.MAX_VALUE-expectednewkeys ? Long.MAX_VALUE : recordcount+expectednewkeys;
+			keychooser=new ScrambledZipfianGenerator(keyspace);
+		}
+		else if (requestdistrib.compareTo("exponential")==0)
+		{
+			double percentile=Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_PERCENTILE_PROPERTY,
+					ExponentialGenerator.EXPONENTIAL_PERCENTILE_DEFAULT));
+			double frac=Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_FRAC_PROPERTY,
+					ExponentialGenerator.EXPONENTIAL_FRAC_DEFAULT));
+			keychooser=new ExponentialGenerator(percentile,recordcount*frac);
 		}
 		else if (requestdistrib.compareTo("latest")==0)
 		{
@@ -457,9 +641,15 @@ public class CoreWorkload extends Workload
 		{
 			throw new WorkloadException("Unknown request distribution \""+requestdistrib+"\"");
 		}
+		return keychooser;
+	}
 
-		fieldchooser=new UniformIntegerGenerator(0,fieldcount-1);
-		
+	private IntegerGenerator createScanLengthGenerator() throws WorkloadException
+	{
+		Properties p=workloadproperties;
+		int maxscanlength=Integer.parseInt(p.getProperty(MAX_SCAN_LENGTH_PROPERTY,MAX_SCAN_LENGTH_PROPERTY_DEFAULT));
+		String scanlengthdistrib=p.getProperty(SCAN_LENGTH_DISTRIBUTION_PROPERTY,SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
+		IntegerGenerator scanlength;
 		if (scanlengthdistrib.compareTo("uniform")==0)
 		{
 			scanlength=new UniformIntegerGenerator(1,maxscanlength);
@@ -476,6 +666,7 @@ public class CoreWorkload extends Workload
 		{
 			throw new WorkloadException("Distribution \""+scanlengthdistrib+"\" not allowed for scan length");
 		}
+		return scanlength;
 	}
 
 	public String buildKeyName(long keynum) {
@@ -486,19 +677,78 @@ public class CoreWorkload extends Workload
 		return "user"+keynum;
 	}
 	
+	/**
+	 * Creates the generators of a client thread, and its value buffers if {@link #REUSE_VALUES_PROPERTY}
+	 * is set.
+	 *
+	 * @return The thread's {@link ThreadState}.
+	 */
+	@Override
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		RecordBuilder builder=null;
+		if (reusevalues)
+		{
+			// room for the largest values of a batch; values of a histogram may still not fit, and are then allocated
+			long slabsize=(long)Math.max(batchsize,1)*fieldcount*maxfieldlength;
+			builder=new RecordBuilder((int)Math.min(Math.max(slabsize,1<<16),Integer.MAX_VALUE-8));
+		}
+		return new ThreadState(createOperationChooser(),createKeyChooser(),new UniformIntegerGenerator(0,fieldcount-1),
+				createScanLengthGenerator(),createFieldLengthGenerator(),builder);
+	}
+
+	/**
+	 * @return A field length generator for a client thread. A histogram file is only read by init(); the
+	 * generators of the threads share its buckets.
+	 */
+	private IntegerGenerator createFieldLengthGenerator() throws WorkloadException
+	{
+		if (fieldlengthgenerator instanceof HistogramGenerator)
+		{
+			return new HistogramGenerator((HistogramGenerator)fieldlengthgenerator);
+		}
+		return getFieldLengthGenerator(workloadproperties);
+	}
+
+	/**
+	 * @return The state of the thread, ready for the next operation, or the shared generators if there is none.
+	 */
+	private ThreadState state(Object threadstate)
+	{
+		if (threadstate instanceof ThreadState)
+		{
+			ThreadState state=(ThreadState)threadstate;
+			if (state.builder!=null)
+			{
+				state.builder.begin();
+			}
+			return state;
+		}
+		return sharedstate;
+	}
+
+	/**
+	 * @return The state of the thread running doTransaction(), or the shared generators outside of it.
+	 */
+	private ThreadState currentState()
+	{
+		ThreadState state=currentstate.get();
+		return state==null ? sharedstate : state;
+	}
+
   /**
    * Builds a value for a randomly chosen field.
    */
-  private HashMap<String, ByteIterator> buildSingleValue(String key) {
-    HashMap<String,ByteIterator> value = new HashMap<String,ByteIterator>();
+  private HashMap<String, ByteIterator> buildSingleValue(String key, ThreadState state) {
+    HashMap<String,ByteIterator> value = state.builder == null ? new HashMap<String,ByteIterator>() : state.builder.newValues();
 
-    String fieldkey = fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
+    String fieldkey = fieldnames.get(Integer.parseInt(state.fieldchooser.nextString()));
     ByteIterator data;
     if (dataintegrity) {
-      data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
+      data = deterministicValue(key, fieldkey, state);
     } else {
       //fill with random data
-      data = new RandomByteIterator(fieldlengthgenerator.nextInt());
+      data = randomValue(state);
     }
     value.put(fieldkey,data);
 
@@ -508,22 +758,114 @@ public class CoreWorkload extends Workload
   /**
    * Builds values for all fields.
    */
-  protected HashMap<String, ByteIterator> buildValues(String key) {        
-    HashMap<String,ByteIterator> values = new HashMap<String,ByteIterator>();
+  protected HashMap<String, ByteIterator> buildValues(String key) {
+    return buildValues(key, sharedstate);
+  }
+
+  /**
+   * Builds values for all fields, with the generators and value buffers of a thread.
+   */
+  protected HashMap<String, ByteIterator> buildValues(String key, ThreadState state) {
+    HashMap<String,ByteIterator> values = state.builder == null ? new HashMap<String,ByteIterator>() : state.builder.newValues();
 
     for (String fieldkey : fieldnames) {
       ByteIterator data;
       if (dataintegrity) {
-        data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
+        data = deterministicValue(key, fieldkey, state);
       } else {
         //fill with random data
-        data = new RandomByteIterator(fieldlengthgenerator.nextInt());
+        data = randomValue(state);
       }
       values.put(fieldkey,data);
     }
     return values;
   }
 
+  private ByteIterator randomValue(ThreadState state) {
+    int length = state.fieldlengthgenerator.nextInt();
+    RecordBuilder builder = state.builder;
+    if (fieldcompressibility > 0 || binaryvalues) {
+      return builder == null ? new CompressibleByteIterator(length, fieldcompressibility, binaryvalues)
+          : builder.compressibleValue(length, fieldcompressibility, binaryvalues);
+    }
+    return builder == null ? new RandomByteIterator(length) : builder.randomValue(length);
+  }
+
+  private ByteIterator deterministicValue(String key, String fieldkey, ThreadState state) {
+    if (!hashintegrity) {
+      return new StringByteIterator(buildDeterministicValue(key, fieldkey));
+    }
+    long seed = valueSeed(key, fieldkey);
+    int length = seededLength(seed, state.fieldlengthgenerator);
+    if (state.builder != null) {
+      return state.builder.seededValue(length, seed);
+    }
+    byte[] value = new byte[length];
+    new XorShiftRandom(seed).nextPrintable(value, 0, length);
+    return new ByteArrayByteIterator(value);
+  }
+
+  /**
+   * The seed of the bytes of a field in the hash data integrity mode: a 64 bit FNV-1a hash of the key
+   * and the field name.
+   */
+  static long valueSeed(String key, String fieldkey) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    hash = (hash ^ ':') * 0x100000001b3L;
+    for (int i = 0; i < fieldkey.length(); i++) {
+      hash = (hash ^ fieldkey.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * The length of a field in the hash data integrity mode: a draw of the field length generator with
+   * the random generator of the thread seeded with the seed of the value, so that the length can be
+   * drawn again when the value is verified. The random generator then continues from a seed it drew
+   * beforehand, which keeps the other draws of the thread random.
+   */
+  private int seededLength(long seed, IntegerGenerator lengthgenerator) {
+    if (constantfieldlength >= 0) {
+      return constantfieldlength;
+    }
+    Random random = Utils.random();
+    long resume = random.nextLong();
+    random.setSeed(seed);
+    int length = lengthgenerator.nextInt();
+    random.setSeed(resume);
+    return length;
+  }
+
+  /**
+   * Compares a returned value with the bytes generated for it in the hash data integrity mode, a block
+   * at a time, without materializing either.
+   */
+  boolean verifyHashedValue(String key, String fieldkey, ByteIterator value) {
+    long seed = valueSeed(key, fieldkey);
+    XorShiftRandom expected = new XorShiftRandom(seed);
+    // blocks are multiples of 8 bytes, so the expected bytes come out as they were generated
+    byte[] actualblock = new byte[256];
+    byte[] expectedblock = new byte[256];
+    long length = 0;
+    while (value.hasNext()) {
+      int filled = 0;
+      while (filled < actualblock.length && value.hasNext()) {
+        filled = value.nextBuf(actualblock, filled);
+      }
+      expected.nextPrintable(expectedblock, 0, filled);
+      for (int i = 0; i < filled; i++) {
+        if (actualblock[i] != expectedblock[i]) {
+          return false;
+        }
+      }
+      length += filled;
+    }
+    return length == seededLength(seed, fieldlengthgenerator);
+  }
+
   /**
    * Build a deterministic value given the key information.
    */
@@ -550,44 +892,110 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doInsert(DB db, Object threadstate)
 	{
-		int keynum=keysequence.nextInt();
+		ThreadState state=state(threadstate);
+		if (batchsize>1)
+		{
+			return doMultiInsert(db,state);
+		}
+
+		long keynum=keysequence.nextLong();
 		String dbkey = buildKeyName(keynum);
-		HashMap<String, ByteIterator> values = buildValues(dbkey);
-		if (db.insert(table,dbkey,values).equals(Status.OK))
+		HashMap<String, ByteIterator> values = buildValues(dbkey,state);
+		if (db.insert(table,dbkey,values).isOk())
 			return true;
 		else
 			return false;
 	}
 
 	/**
-	 * Do one transaction operation. Because it will be called concurrently from multiple client threads, this 
-	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
-	 * other, and it will be difficult to reach the target throughput. Ideally, this function would have no side
-	 * effects other than DB operations.
+	 * Insert the next batch of records of the load phase. Batches are cut short at the end of the records
+	 * to insert, as the client counts each batch as a single operation.
+	 *
+	 * @return false if there was nothing left to insert or the insert failed.
 	 */
-	public boolean doTransaction(DB db, Object threadstate)
+	boolean doMultiInsert(DB db)
 	{
-		String op=operationchooser.nextString();
+		return doMultiInsert(db,sharedstate);
+	}
 
-		if (op.compareTo("READ")==0)
-		{
-			doTransactionRead(db);
-		}
-		else if (op.compareTo("UPDATE")==0)
+	boolean doMultiInsert(DB db, ThreadState state)
+	{
+		List<String> keys=new ArrayList<String>(batchsize);
+		List<HashMap<String,ByteIterator>> values=new ArrayList<HashMap<String,ByteIterator>>(batchsize);
+		for (int i=0; i<batchsize; i++)
 		{
-			doTransactionUpdate(db);
+			long keynum=keysequence.nextLong();
+			if (keynum>=insertlimit)
+			{
+				break;
+			}
+			String dbkey = buildKeyName(keynum);
+			keys.add(dbkey);
+			values.add(buildValues(dbkey,state));
 		}
-		else if (op.compareTo("INSERT")==0)
+		if (keys.isEmpty())
 		{
-			doTransactionInsert(db);
+			return false;
 		}
-		else if (op.compareTo("SCAN")==0)
+		return db.multiInsert(table,keys,values).isOk();
+	}
+
+	/**
+	 * Do one transaction operation. Because it will be called concurrently from multiple client threads, this 
+	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
+	 * other, and it will be difficult to reach the target throughput. Ideally, this function would have no side
+	 * effects other than DB operations.
+	 */
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		ThreadState state=state(threadstate);
+		// the operations are dispatched to the methods without a state, which subclasses may override
+		currentstate.set(state);
+		try
 		{
-			doTransactionScan(db);
+			switch (state.operationchooser.nextValue())
+			{
+			case READ:
+				if (batchsize>1)
+				{
+					doTransactionMultiRead(db);
+				}
+				else
+				{
+					doTransactionRead(db);
+				}
+				break;
+			case UPDATE:
+				if (batchsize>1)
+				{
+					doTransactionMultiUpdate(db);
+				}
+				else
+				{
+					doTransactionUpdate(db);
+				}
+				break;
+			case INSERT:
+				if (batchsize>1)
+				{
+					doTransactionMultiInsert(db);
+				}
+				else
+				{
+					doTransactionInsert(db);
+				}
+				break;
+			case SCAN:
+				doTransactionScan(db);
+				break;
+			default:
+				doTransactionReadModifyWrite(db);
+				break;
+			}
 		}
-		else
+		finally
 		{
-			doTransactionReadModifyWrite(db);
+			currentstate.set(null);
 		}
 		
 		return true;
@@ -605,8 +1013,10 @@ public class CoreWorkload extends Workload
     long startTime = System.nanoTime();
     if (!cells.isEmpty()) {
       for (Map.Entry<String, ByteIterator> entry : cells.entrySet()) {
-        if (!entry.getValue().toString().equals(
-            buildDeterministicValue(key, entry.getKey()))) {
+        boolean valid = hashintegrity
+            ? verifyHashedValue(key, entry.getKey(), entry.getValue())
+            : entry.getValue().toString().equals(buildDeterministicValue(key, entry.getKey()));
+        if (!valid) {
           verifyStatus = Status.UNEXPECTED_STATE;
           break;
         }
@@ -616,32 +1026,42 @@ public class CoreWorkload extends Workload
       verifyStatus = Status.ERROR;
     }
     long endTime = System.nanoTime();
-    _measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
-    _measurements.reportStatus("VERIFY",verifyStatus);
+    _measurements.measure(_verifyIndex, endTime - startTime);
+    _measurements.reportStatus(_verifyIndex,verifyStatus);
   }
 
-    int nextKeynum() {
-        int keynum;
+    long nextKeynum() {
+        return nextKeynum(sharedstate);
+    }
+
+    long nextKeynum(ThreadState state) {
+        IntegerGenerator keychooser = state.keychooser;
+        long keynum;
         if(keychooser instanceof ExponentialGenerator) {
             do
                 {
-                    keynum=transactioninsertkeysequence.lastInt() - keychooser.nextInt();
+                    keynum=transactioninsertkeysequence.lastLong() - keychooser.nextLong();
                 }
             while(keynum < 0);
         } else {
             do
                 {
-                    keynum=keychooser.nextInt();
+                    keynum=keychooser.nextLong();
                 }
-            while (keynum > transactioninsertkeysequence.lastInt());
+            while (keynum > transactioninsertkeysequence.lastLong());
         }
         return keynum;
     }
 
 	public void doTransactionRead(DB db)
+	{
+		doTransactionRead(db,currentState());
+	}
+
+	public void doTransactionRead(DB db, ThreadState state)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum(state);
 		
 		String keyname = buildKeyName(keynum);
 		
@@ -650,7 +1070,7 @@ public class CoreWorkload extends Workload
 		if (!readallfields)
 		{
 			//read a random field  
-			String fieldname=fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
+			String fieldname=fieldnames.get(Integer.parseInt(state.fieldchooser.nextString()));
 
 			fields=new HashSet<String>();
 			fields.add(fieldname);
@@ -668,10 +1088,53 @@ public class CoreWorkload extends Workload
     }
 	}
 	
+	public void doTransactionMultiRead(DB db)
+	{
+		doTransactionMultiRead(db,currentState());
+	}
+
+	public void doTransactionMultiRead(DB db, ThreadState state)
+	{
+		List<String> keynames=new ArrayList<String>(batchsize);
+		for (int i=0; i<batchsize; i++)
+		{
+			keynames.add(buildKeyName(nextKeynum(state)));
+		}
+
+		HashSet<String> fields=null;
+
+		if (!readallfields)
+		{
+			//read a random field
+			String fieldname=fieldnames.get(Integer.parseInt(state.fieldchooser.nextString()));
+
+			fields=new HashSet<String>();
+			fields.add(fieldname);
+		} else if (dataintegrity) {
+      // pass the full field list if dataintegrity is on for verification
+      fields = new HashSet<String>(fieldnames);
+    }
+
+		List<HashMap<String,ByteIterator>> results=new ArrayList<HashMap<String,ByteIterator>>(batchsize);
+		db.multiRead(table,keynames,fields,results);
+
+    if (dataintegrity) {
+      for (int i = 0; i < keynames.size(); i++) {
+        verifyRow(keynames.get(i),
+            i < results.size() ? results.get(i) : new HashMap<String,ByteIterator>());
+      }
+    }
+	}
+
 	public void doTransactionReadModifyWrite(DB db)
+	{
+		doTransactionReadModifyWrite(db,currentState());
+	}
+
+	public void doTransactionReadModifyWrite(DB db, ThreadState state)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum(state);
 
 		String keyname = buildKeyName(keynum);
 
@@ -680,7 +1143,7 @@ public class CoreWorkload extends Workload
 		if (!readallfields)
 		{
 			//read a random field  
-			String fieldname=fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
+			String fieldname=fieldnames.get(Integer.parseInt(state.fieldchooser.nextString()));
 
 			fields=new HashSet<String>();
 			fields.add(fieldname);
@@ -691,12 +1154,12 @@ public class CoreWorkload extends Workload
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues(keyname);
+		   values = buildValues(keyname,state);
 		}
 		else
 		{
 		   //update a random field
-		   values = buildSingleValue(keyname);
+		   values = buildSingleValue(keyname,state);
 		}
 
 		//do the transaction
@@ -717,26 +1180,31 @@ public class CoreWorkload extends Workload
       verifyRow(keyname, cells);
     }
 
-		_measurements .measure("READ-MODIFY-WRITE", (int)((en-st)/1000));
-		_measurements .measureIntended("READ-MODIFY-WRITE", (int)((en-ist)/1000));
+		_measurements .measure(_readModifyWriteIndex, en-st);
+		_measurements .measureIntended(_readModifyWriteIndex, en-ist);
 	}
 	
 	public void doTransactionScan(DB db)
+	{
+		doTransactionScan(db,currentState());
+	}
+
+	public void doTransactionScan(DB db, ThreadState state)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum(state);
 
 		String startkeyname = buildKeyName(keynum);
 		
 		//choose a random scan length
-		int len=scanlength.nextInt();
+		int len=state.scanlength.nextInt();
 
 		HashSet<String> fields=null;
 
 		if (!readallfields)
 		{
 			//read a random field  
-			String fieldname=fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
+			String fieldname=fieldnames.get(Integer.parseInt(state.fieldchooser.nextString()));
 
 			fields=new HashSet<String>();
 			fields.add(fieldname);
@@ -746,9 +1214,14 @@ public class CoreWorkload extends Workload
 	}
 
 	public void doTransactionUpdate(DB db)
+	{
+		doTransactionUpdate(db,currentState());
+	}
+
+	public void doTransactionUpdate(DB db, ThreadState state)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum(state);
 
 		String keyname=buildKeyName(keynum);
 
@@ -757,29 +1230,107 @@ public class CoreWorkload extends Workload
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues(keyname);
+		   values = buildValues(keyname,state);
 		}
 		else
 		{
 		   //update a random field
-		   values = buildSingleValue(keyname);
+		   values = buildSingleValue(keyname,state);
 		}
 
 		db.update(table,keyname,values);
 	}
 
+	public void doTransactionMultiUpdate(DB db)
+	{
+		doTransactionMultiUpdate(db,currentState());
+	}
+
+	public void doTransactionMultiUpdate(DB db, ThreadState state)
+	{
+		List<String> keynames=new ArrayList<String>(batchsize);
+		List<HashMap<String,ByteIterator>> values=new ArrayList<HashMap<String,ByteIterator>>(batchsize);
+		for (int i=0; i<batchsize; i++)
+		{
+			String keyname=buildKeyName(nextKeynum(state));
+			keynames.add(keyname);
+			if (writeallfields)
+			{
+			   //new data for all the fields
+			   values.add(buildValues(keyname,state));
+			}
+			else
+			{
+			   //update a random field
+			   values.add(buildSingleValue(keyname,state));
+			}
+		}
+
+		db.multiUpdate(table,keynames,values);
+	}
+
+	public void doTransactionMultiInsert(DB db)
+	{
+		doTransactionMultiInsert(db,currentState());
+	}
+
+	public void doTransactionMultiInsert(DB db, ThreadState state)
+	{
+		//choose the next keys
+		long[] keynums=new long[batchsize];
+		for (int i=0; i<batchsize; i++)
+		{
+			keynums[i]=transactioninsertkeysequence.nextLong();
+		}
+
+		try {
+			List<String> dbkeys=new ArrayList<String>(batchsize);
+			List<HashMap<String,ByteIterator>> values=new ArrayList<HashMap<String,ByteIterator>>(batchsize);
+			for (long keynum : keynums)
+			{
+				String dbkey = buildKeyName(keynum);
+				dbkeys.add(dbkey);
+				values.add(buildValues(dbkey,state));
+			}
+			// batches are not issued asynchronously, so the records are stored once this returns
+			db.multiInsert(table,dbkeys,values);
+		} finally {
+			for (long keynum : keynums)
+			{
+				transactioninsertkeysequence.acknowledge(keynum);
+			}
+		}
+	}
+
 	public void doTransactionInsert(DB db)
+	{
+		doTransactionInsert(db,currentState());
+	}
+
+	public void doTransactionInsert(DB db, ThreadState state)
 	{
 		//choose the next key
-		int keynum=transactioninsertkeysequence.nextInt();
+		final long keynum=transactioninsertkeysequence.nextLong();
 
+		// the key may only be chosen by reads once it is stored, which is later if the insert is asynchronous
+		boolean issued=false;
 		try {
 			String dbkey = buildKeyName(keynum);
 
-			HashMap<String, ByteIterator> values = buildValues(dbkey);
-			db.insert(table,dbkey,values);
+			HashMap<String, ByteIterator> values = buildValues(dbkey,state);
+			db.insert(table,dbkey,values,new StatusFuture.Callback()
+			{
+				public void completed(Status status)
+				{
+					transactioninsertkeysequence.acknowledge(keynum);
+				}
+			});
+			issued=true;
 		} finally {
-			transactioninsertkeysequence.acknowledge(keynum);
+			if (!issued)
+			{
+				transactioninsertkeysequence.acknowledge(keynum);
+			}
 		}
 	}
 }
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.CompressibleByteIterator;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.XorShiftRandom;
+
+/**
+ * Builds the values of one client thread without allocating, for {@link CoreWorkload#REUSE_VALUES_PROPERTY}.
+ * <p>
+ * The values are views into a slab of random printable bytes, served one after the other, and the field
+ * maps and iterators holding them are pooled. {@link #begin()} starts the next operation: everything handed
+ * out before becomes invalid, and the bytes that were used are replaced by new random bytes so that no two
+ * values are alike. The values therefore must not be kept by the DB once the operation returned, which is
+ * why asynchronous operations cannot reuse them. A value that does not fit into what is left of the slab
+ * falls back to a {@link RandomByteIterator}.
+ * </p>
+ */
+public final class RecordBuilder
+{
+	private final byte[] _slab;
+	private int _cursor;
+
+	private final List<HashMap<String,ByteIterator>> _maps=new ArrayList<HashMap<String,ByteIterator>>();
+	private int _mapsused;
+
+	private final List<ByteArrayByteIterator> _iterators=new ArrayList<ByteArrayByteIterator>();
+	private int _iteratorsused;
+
+	/**
+	 * @param slabsize The number of bytes the values of one operation take at most.
+	 */
+	public RecordBuilder(int slabsize)
+	{
+		_slab=new byte[slabsize];
+		RandomByteIterator.randomBytes(_slab,0,slabsize);
+	}
+
+	/**
+	 * Starts building the values of a new operation, reclaiming all maps and values handed out so far.
+	 */
+	public void begin()
+	{
+		RandomByteIterator.randomBytes(_slab,0,_cursor);
+		_cursor=0;
+		_mapsused=0;
+		_iteratorsused=0;
+	}
+
+	/**
+	 * @return An empty map for the fields of one record.
+	 */
+	public HashMap<String,ByteIterator> newValues()
+	{
+		if (_mapsused==_maps.size())
+		{
+			_maps.add(new HashMap<String,ByteIterator>());
+		}
+		HashMap<String,ByteIterator> values=_maps.get(_mapsused++);
+		values.clear();
+		return values;
+	}
+
+	/**
+	 * @return A random value of the given length.
+	 */
+	public ByteIterator randomValue(int length)
+	{
+		if (length>_slab.length-_cursor)
+		{
+			return new RandomByteIterator(length);
+		}
+		return view(length);
+	}
+
+	/**
+	 * @return A random value of the given length that compresses by the given fraction, see
+	 *         {@link CompressibleByteIterator}.
+	 */
+	public ByteIterator compressibleValue(int length, double compressibility, boolean binary)
+	{
+		if (length>_slab.length-_cursor)
+		{
+			return new CompressibleByteIterator(length,compressibility,binary);
+		}
+		CompressibleByteIterator.fill(_slab,_cursor,length,compressibility,binary);
+		return view(length);
+	}
+
+	/**
+	 * @return A value of the given length holding the printable bytes of a {@link XorShiftRandom} with
+	 *         the given seed.
+	 */
+	public ByteIterator seededValue(int length, long seed)
+	{
+		if (length>_slab.length-_cursor)
+		{
+			byte[] value=new byte[length];
+			new XorShiftRandom(seed).nextPrintable(value,0,length);
+			return new ByteArrayByteIterator(value);
+		}
+		new XorShiftRandom(seed).nextPrintable(_slab,_cursor,length);
+		return view(length);
+	}
+
+	private ByteIterator view(int length)
+	{
+		if (_iteratorsused==_iterators.size())
+		{
+			_iterators.add(new ByteArrayByteIterator(_slab,0,0));
+		}
+		ByteArrayByteIterator value=_iterators.get(_iteratorsused++).reset(_slab,_cursor,length);
+		_cursor+=length;
+		return value;
+	}
+}
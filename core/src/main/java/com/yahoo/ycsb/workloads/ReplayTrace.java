@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A memory-mapped trace of operations to replay, see {@link TraceReplayWorkload}.
+ * <p>
+ * The file starts with the 8 byte magic "YCSBRPL1", the record size (int) and flags (int), of which
+ * {@link #FLAG_TIMESTAMPS} tells whether every record has a timestamp. Fixed width records of
+ * {@link #RECORD_SIZE} bytes follow, all big endian: the timestamp in microseconds (long), the key
+ * number (long), the mask of the fields accessed (long, bit i for field i, 0 for all fields), the value
+ * size in bytes or the scan length (int), the operation (byte, the ordinal of {@link Op}) and 3 reserved
+ * bytes. Record i can thus be found without reading the records before it, and any number of threads
+ * can read the mapping at the same time.
+ * </p>
+ * <p>
+ * Traces larger than 2 GB are mapped in segments of 1 GB. Java cannot unmap a file explicitly, so the
+ * mapping stays until the trace is garbage collected.
+ * </p>
+ */
+public final class ReplayTrace implements Closeable
+{
+	static final byte[] MAGIC="YCSBRPL1".getBytes(Charset.forName("US-ASCII"));
+
+	static final int HEADER_SIZE=16;
+
+	public static final int RECORD_SIZE=32;
+
+	public static final int FLAG_TIMESTAMPS=1;
+
+	/** Marks a record without timestamp when writing a trace. */
+	public static final long NO_TIMESTAMP=Long.MIN_VALUE;
+
+	/** 1 GB, a multiple of the record size, so that no record spans two segments. */
+	private static final int SEGMENT_SHIFT=30;
+	private static final long SEGMENT_MASK=(1L<<SEGMENT_SHIFT)-1;
+
+	/**
+	 * The operations of a trace, stored by ordinal.
+	 */
+	public enum Op
+	{
+		READ, UPDATE, INSERT, SCAN, DELETE, READMODIFYWRITE
+	}
+
+	private static final Op[] OPS=Op.values();
+
+	private final RandomAccessFile _file;
+	private final MappedByteBuffer[] _segments;
+	private final long _size;
+	private final boolean _timestamps;
+
+	private ReplayTrace(RandomAccessFile file) throws IOException
+	{
+		_file=file;
+		FileChannel channel=file.getChannel();
+		ByteBuffer header=ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining())
+		{
+			if (channel.read(header,header.position())<0)
+			{
+				throw new IOException("Not a replay trace: too short");
+			}
+		}
+		byte[] magic=new byte[MAGIC.length];
+		header.flip();
+		header.get(magic);
+		if (!Arrays.equals(magic,MAGIC))
+		{
+			throw new IOException("Not a replay trace: bad magic");
+		}
+		int recordsize=header.getInt();
+		if (recordsize!=RECORD_SIZE)
+		{
+			throw new IOException("Unsupported record size "+recordsize);
+		}
+		_timestamps=(header.getInt()&FLAG_TIMESTAMPS)!=0;
+
+		long bytes=channel.size()-HEADER_SIZE;
+		_size=bytes/RECORD_SIZE;
+		bytes=_size*RECORD_SIZE;
+		_segments=new MappedByteBuffer[(int)((bytes+SEGMENT_MASK)>>>SEGMENT_SHIFT)];
+		for (int i=0; i<_segments.length; i++)
+		{
+			long start=(long)i<<SEGMENT_SHIFT;
+			_segments[i]=channel.map(FileChannel.MapMode.READ_ONLY,HEADER_SIZE+start,Math.min(bytes-start,1L<<SEGMENT_SHIFT));
+		}
+	}
+
+	/**
+	 * Maps a trace into memory.
+	 */
+	public static ReplayTrace open(String path) throws IOException
+	{
+		RandomAccessFile file=new RandomAccessFile(path,"r");
+		try
+		{
+			return new ReplayTrace(file);
+		}
+		catch (IOException e)
+		{
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return The number of records.
+	 */
+	public long size()
+	{
+		return _size;
+	}
+
+	/**
+	 * @return Whether every record has a timestamp.
+	 */
+	public boolean hasTimestamps()
+	{
+		return _timestamps;
+	}
+
+	private ByteBuffer segment(long record)
+	{
+		return _segments[(int)((record*RECORD_SIZE)>>>SEGMENT_SHIFT)];
+	}
+
+	private static int offset(long record)
+	{
+		return (int)((record*RECORD_SIZE)&SEGMENT_MASK);
+	}
+
+	public long micros(long record)
+	{
+		return segment(record).getLong(offset(record));
+	}
+
+	public long key(long record)
+	{
+		return segment(record).getLong(offset(record)+8);
+	}
+
+	public long fieldMask(long record)
+	{
+		return segment(record).getLong(offset(record)+16);
+	}
+
+	public int valueSize(long record)
+	{
+		return segment(record).getInt(offset(record)+24);
+	}
+
+	public Op op(long record)
+	{
+		int op=segment(record).get(offset(record)+28);
+		if (op<0 || op>=OPS.length)
+		{
+			throw new IllegalStateException("Corrupt trace: unknown operation "+op+" in record "+record);
+		}
+		return OPS[op];
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		_file.close();
+	}
+
+	/**
+	 * Writes a trace record by record.
+	 */
+	public static final class Writer implements Closeable
+	{
+		private final String _path;
+		private final DataOutputStream _out;
+		private boolean _timestamps=true;
+		private long _count=0;
+
+		public Writer(String path) throws IOException
+		{
+			_path=path;
+			_out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path),1<<16));
+			_out.write(MAGIC);
+			_out.writeInt(RECORD_SIZE);
+			// the flags are set once all records are known, see close()
+			_out.writeInt(0);
+		}
+
+		/**
+		 * @param micros The timestamp, or {@link ReplayTrace#NO_TIMESTAMP}.
+		 * @param fieldmask The fields accessed, bit i for field i, or 0 for all fields.
+		 * @param valuesize The size of each value written, the scan length for scans, or 0 for the default.
+		 */
+		public void add(long micros, Op op, long key, long fieldmask, int valuesize) throws IOException
+		{
+			if (micros==NO_TIMESTAMP)
+			{
+				_timestamps=false;
+				micros=0;
+			}
+			_out.writeLong(micros);
+			_out.writeLong(key);
+			_out.writeLong(fieldmask);
+			_out.writeInt(valuesize);
+			_out.writeByte(op.ordinal());
+			_out.writeByte(0);
+			_out.writeShort(0);
+			_count++;
+		}
+
+		/**
+		 * @return The number of records written so far.
+		 */
+		public long count()
+		{
+			return _count;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			_out.close();
+			if (_timestamps && _count>0)
+			{
+				RandomAccessFile file=new RandomAccessFile(_path,"rw");
+				try
+				{
+					file.seek(MAGIC.length+4);
+					file.writeInt(FLAG_TIMESTAMPS);
+				}
+				finally
+				{
+					file.close();
+				}
+			}
+		}
+	}
+}
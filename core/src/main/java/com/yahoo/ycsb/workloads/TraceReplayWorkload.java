@@ -0,0 +1,327 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Replays the operations of a {@link ReplayTrace}, e.g. one converted from an access log with
+ * {@link com.yahoo.ycsb.tools.TraceConverter}.
+ * <p>
+ * The trace is memory-mapped and shared by the client threads without locking: thread t of n replays
+ * records t, t+n, t+2n and so on, so the threads together follow the order of the trace. A thread is
+ * done at the end of the trace, unless the trace is replayed in a loop; the operation count still
+ * limits the run. Keys are named like the keys of {@link CoreWorkload} with ordered inserts, the
+ * prefix followed by the key number, so a trace can be replayed against data loaded by the core
+ * workload, or loaded by running the trace with -load, which inserts the key of every record.
+ * </p>
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>replay.file</b>: the trace to replay (required)
+ * <LI><b>replay.timing</b>: whether to issue each operation at the time it has in the trace, relative to
+ * the start of the replay (default: false)
+ * <LI><b>replay.speedup</b>: how much faster than recorded to replay with replay.timing (default: 1)
+ * <LI><b>replay.loop</b>: whether to start over at the end of the trace (default: false)
+ * <LI><b>replay.keyprefix</b>: the prefix of the key names (default: user)
+ * <LI><b>table</b>, <b>fieldcount</b> and <b>fieldlength</b> as for {@link CoreWorkload}; fieldlength is
+ * the size of the values of records without one
+ * </ul>
+ */
+public class TraceReplayWorkload extends Workload
+{
+	public static final String FILE_PROPERTY="replay.file";
+
+	public static final String TIMING_PROPERTY="replay.timing";
+	public static final String TIMING_PROPERTY_DEFAULT="false";
+
+	public static final String SPEEDUP_PROPERTY="replay.speedup";
+	public static final String SPEEDUP_PROPERTY_DEFAULT="1";
+
+	public static final String LOOP_PROPERTY="replay.loop";
+	public static final String LOOP_PROPERTY_DEFAULT="false";
+
+	public static final String KEY_PREFIX_PROPERTY="replay.keyprefix";
+	public static final String KEY_PREFIX_PROPERTY_DEFAULT="user";
+
+	private ReplayTrace trace;
+	private String table;
+	private String keyprefix;
+	private List<String> fieldnames;
+	private int fieldlength;
+	private boolean timing;
+	private double speedup;
+	private boolean loop;
+
+	/** The timestamp of the first record and the time the trace spans, for replay.timing. */
+	private long firstmicros;
+	private long spanmicros;
+
+	/** The time the replay started, set by the first operation, or 0. */
+	private final AtomicLong startnanos=new AtomicLong();
+
+	private final Measurements _measurements=Measurements.getMeasurements();
+	private final int _readModifyWriteIndex=_measurements.getOpIndex("READ-MODIFY-WRITE");
+
+	/**
+	 * The position of a thread in the trace.
+	 */
+	private static final class Cursor
+	{
+		long next;
+		final int stride;
+
+		Cursor(long first, int stride)
+		{
+			this.next=first;
+			this.stride=stride;
+		}
+	}
+
+	@Override
+	public void init(Properties p) throws WorkloadException
+	{
+		String file=p.getProperty(FILE_PROPERTY);
+		if (file==null)
+		{
+			throw new WorkloadException("Missing property "+FILE_PROPERTY);
+		}
+		try
+		{
+			trace=ReplayTrace.open(file);
+		}
+		catch (IOException e)
+		{
+			throw new WorkloadException("Could not open the trace "+file,e);
+		}
+
+		table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+		keyprefix=p.getProperty(KEY_PREFIX_PROPERTY,KEY_PREFIX_PROPERTY_DEFAULT);
+		int fieldcount=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,CoreWorkload.FIELD_COUNT_PROPERTY_DEFAULT));
+		fieldnames=new ArrayList<String>();
+		for (int i=0; i<fieldcount; i++)
+		{
+			fieldnames.add("field"+i);
+		}
+		fieldlength=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,CoreWorkload.FIELD_LENGTH_PROPERTY_DEFAULT));
+		loop=Boolean.parseBoolean(p.getProperty(LOOP_PROPERTY,LOOP_PROPERTY_DEFAULT));
+		timing=Boolean.parseBoolean(p.getProperty(TIMING_PROPERTY,TIMING_PROPERTY_DEFAULT));
+		speedup=Double.parseDouble(p.getProperty(SPEEDUP_PROPERTY,SPEEDUP_PROPERTY_DEFAULT));
+		if (timing)
+		{
+			if (!trace.hasTimestamps())
+			{
+				throw new WorkloadException(TIMING_PROPERTY+" needs a trace with timestamps, "+file+" has none");
+			}
+			if (!(speedup>0))
+			{
+				throw new WorkloadException("Invalid "+SPEEDUP_PROPERTY+" "+speedup);
+			}
+			if (trace.size()>0)
+			{
+				firstmicros=trace.micros(0);
+				// a loop lasts one average interval longer than the trace, so that laps do not overlap
+				long last=trace.micros(trace.size()-1)-firstmicros;
+				spanmicros=trace.size()>1 ? last+last/(trace.size()-1) : 1;
+			}
+		}
+	}
+
+	@Override
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		return new Cursor(mythreadid,threadcount);
+	}
+
+	@Override
+	public void cleanup() throws WorkloadException
+	{
+		try
+		{
+			trace.close();
+		}
+		catch (IOException e)
+		{
+			throw new WorkloadException("Could not close the trace",e);
+		}
+	}
+
+	/**
+	 * @return The next record of the thread, counting laps when looping, or -1 at the end of the trace.
+	 */
+	private long next(Object threadstate)
+	{
+		Cursor cursor=(Cursor)threadstate;
+		long position=cursor.next;
+		if (trace.size()==0 || (position>=trace.size() && !loop))
+		{
+			return -1;
+		}
+		cursor.next+=cursor.stride;
+		return position;
+	}
+
+	/**
+	 * Inserts the key of the next record of the thread, so that a load phase creates the keys the trace uses.
+	 */
+	@Override
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		long position=next(threadstate);
+		if (position<0)
+		{
+			return false;
+		}
+		long record=position%trace.size();
+		db.insert(table,keyName(record),values(record,true));
+		return true;
+	}
+
+	@Override
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		long position=next(threadstate);
+		if (position<0)
+		{
+			return false;
+		}
+		long record=position%trace.size();
+		if (timing)
+		{
+			waitFor(position/trace.size(),record);
+		}
+
+		String key=keyName(record);
+		ReplayTrace.Op op=trace.op(record);
+		switch (op)
+		{
+		case READ:
+			db.read(table,key,fields(record),new HashMap<String,ByteIterator>());
+			break;
+		case UPDATE:
+			db.update(table,key,values(record,false));
+			break;
+		case INSERT:
+			db.insert(table,key,values(record,true));
+			break;
+		case SCAN:
+			db.scan(table,key,Math.max(1,trace.valueSize(record)),fields(record),new Vector<HashMap<String,ByteIterator>>());
+			break;
+		case DELETE:
+			db.delete(table,key);
+			break;
+		case READMODIFYWRITE:
+			long ist=_measurements.getIntendedtartTimeNs();
+			long st=System.nanoTime();
+			db.read(table,key,fields(record),new HashMap<String,ByteIterator>());
+			db.update(table,key,values(record,false));
+			long en=System.nanoTime();
+			_measurements.measure(_readModifyWriteIndex,en-st);
+			_measurements.measureIntended(_readModifyWriteIndex,en-ist);
+			break;
+		default:
+			throw new IllegalStateException("Operation "+op+" cannot be replayed");
+		}
+		return true;
+	}
+
+	/**
+	 * Waits until the time of the record, and makes it the intended start time of the operation, so that
+	 * operations delayed by a slow database are measured from when they should have started.
+	 */
+	private void waitFor(long lap, long record)
+	{
+		long start=startnanos.get();
+		if (start==0)
+		{
+			startnanos.compareAndSet(0,System.nanoTime());
+			start=startnanos.get();
+		}
+		long offsetmicros=lap*spanmicros+(trace.micros(record)-firstmicros);
+		long scheduled=start+(long)(offsetmicros*1000/speedup);
+		long now;
+		while ((now=System.nanoTime())<scheduled)
+		{
+			LockSupport.parkNanos(scheduled-now);
+		}
+		_measurements.setIntendedStartTimeNs(scheduled);
+	}
+
+	private String keyName(long record)
+	{
+		return keyprefix+trace.key(record);
+	}
+
+	/**
+	 * @return The fields of the record, or null for all fields.
+	 */
+	private Set<String> fields(long record)
+	{
+		long mask=trace.fieldMask(record);
+		if (mask==0)
+		{
+			return null;
+		}
+		Set<String> fields=new HashSet<String>();
+		for (int i=0; i<fieldnames.size() && i<64; i++)
+		{
+			if ((mask&(1L<<i))!=0)
+			{
+				fields.add(fieldnames.get(i));
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * @param all Whether to write all fields whatever the mask, as inserts create whole records.
+	 */
+	private HashMap<String,ByteIterator> values(long record, boolean all)
+	{
+		long mask=all ? 0 : trace.fieldMask(record);
+		int size=trace.valueSize(record);
+		if (size<=0)
+		{
+			size=fieldlength;
+		}
+		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+		for (int i=0; i<fieldnames.size(); i++)
+		{
+			if (mask==0 || (i<64 && (mask&(1L<<i))!=0))
+			{
+				values.put(fieldnames.get(i),new RandomByteIterator(size));
+			}
+		}
+		return values;
+	}
+}
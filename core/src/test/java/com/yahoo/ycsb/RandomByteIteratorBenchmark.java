@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how many megabytes of random values per second {@link RandomByteIterator} generates, against
+ * the previous implementation drawing 6 bytes per call from {@link Utils#random()}, for values of 100
+ * bytes and 1 KB and from 1 to 8 threads. Each value is consumed with toArray(), as most bindings do.
+ * Not run as part of the test suite; start it with
+ * {@code java -cp ... com.yahoo.ycsb.RandomByteIteratorBenchmark [seconds per run]}.
+ */
+public class RandomByteIteratorBenchmark {
+
+    /** The previous implementation. */
+    static class SixBytesIterator extends ByteIterator {
+        private long len;
+        private long off;
+        private int bufOff;
+        private byte[] buf;
+
+        SixBytesIterator(long len) {
+            this.len = len;
+            this.buf = new byte[6];
+            this.bufOff = buf.length;
+            fillBytes();
+            this.off = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (off + bufOff) < len;
+        }
+
+        private void fillBytesImpl(byte[] buffer, int base) {
+            int bytes = Utils.random().nextInt();
+            try {
+                buffer[base + 0] = (byte) (((bytes) & 31) + ' ');
+                buffer[base + 1] = (byte) (((bytes >> 5) & 63) + ' ');
+                buffer[base + 2] = (byte) (((bytes >> 10) & 95) + ' ');
+                buffer[base + 3] = (byte) (((bytes >> 15) & 31) + ' ');
+                buffer[base + 4] = (byte) (((bytes >> 20) & 63) + ' ');
+                buffer[base + 5] = (byte) (((bytes >> 25) & 95) + ' ');
+            } catch (ArrayIndexOutOfBoundsException e) { /* ignore it */ }
+        }
+
+        private void fillBytes() {
+            if (bufOff == buf.length) {
+                fillBytesImpl(buf, 0);
+                bufOff = 0;
+                off += buf.length;
+            }
+        }
+
+        public byte nextByte() {
+            fillBytes();
+            bufOff++;
+            return buf[bufOff - 1];
+        }
+
+        @Override
+        public int nextBuf(byte[] buffer, int bufferOffset) {
+            int ret;
+            if (len - off < buffer.length - bufferOffset) {
+                ret = (int) (len - off);
+            } else {
+                ret = buffer.length - bufferOffset;
+            }
+            for (int i = 0; i < ret; i += 6) {
+                fillBytesImpl(buffer, i + bufferOffset);
+            }
+            off += ret;
+            return ret + bufferOffset;
+        }
+
+        @Override
+        public long bytesLeft() {
+            return len - off - bufOff;
+        }
+    }
+
+    interface Values {
+        ByteIterator create(int length);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) * 1000 : 2000;
+        Values previous = new Values() {
+            public ByteIterator create(int length) {
+                return new SixBytesIterator(length);
+            }
+        };
+        Values current = new Values() {
+            public ByteIterator create(int length) {
+                return new RandomByteIterator(length);
+            }
+        };
+        System.out.println("value bytes, threads, previous MB/sec, current MB/sec");
+        for (int length : new int[] {100, 1024}) {
+            for (int threads = 1; threads <= 8; threads *= 2) {
+                double before = run(threads, millis, length, previous);
+                double after = run(threads, millis, length, current);
+                System.out.println(length + ", " + threads + ", " + String.format("%.0f, %.0f", before, after));
+            }
+        }
+    }
+
+    /**
+     * @return The aggregate number of megabytes per second generated by the threads.
+     */
+    static double run(int threads, final long millis, final int length, final Values values)
+            throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong sink = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long deadline = System.nanoTime() + millis * 1000000L;
+                    long bytes = 0;
+                    int check = 0;
+                    while ((bytes & 0xffff) != 0 || System.nanoTime() < deadline) {
+                        byte[] value = values.create(length).toArray();
+                        check += value[value.length - 1];
+                        bytes += 1024;
+                    }
+                    total.addAndGet(bytes / 1024 * length);
+                    // keeps the values from being optimized away
+                    sink.addAndGet(check);
+                }
+            };
+            workers[t].start();
+        }
+        long st = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long en = System.nanoTime();
+        return total.get() / (1024.0 * 1024.0) * 1e9 / (en - st);
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestAsyncDBWrapper {
+    /** Leaves every operation pending until the test completes it. */
+    static class PendingDB extends AsyncDB {
+        final List<StatusFuture> pending = new ArrayList<StatusFuture>();
+
+        private StatusFuture issue() {
+            StatusFuture future = new StatusFuture();
+            synchronized (pending) {
+                pending.add(future);
+            }
+            return future;
+        }
+
+        public StatusFuture readAsync(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+            return issue();
+        }
+
+        public StatusFuture scanAsync(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+            return issue();
+        }
+
+        public StatusFuture updateAsync(String table, String key, HashMap<String, ByteIterator> values) {
+            return issue();
+        }
+
+        public StatusFuture insertAsync(String table, String key, HashMap<String, ByteIterator> values) {
+            return issue();
+        }
+
+        public StatusFuture deleteAsync(String table, String key) {
+            return issue();
+        }
+    }
+
+    @BeforeClass
+    public static void setUpMeasurements() {
+        Measurements.setProperties(new Properties());
+    }
+
+    @Test
+    public void testInflightWindow() throws Exception {
+        PendingDB db = new PendingDB();
+        Properties props = new Properties();
+        props.setProperty(AsyncDB.INFLIGHT_PROPERTY, "2");
+        DBWrapper wrapper = new DBWrapper(db);
+        wrapper.setProperties(props);
+        wrapper.init();
+
+        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        assertEquals(Status.QUEUED, wrapper.update("usertable", "user1", values));
+        assertEquals(Status.QUEUED, wrapper.delete("usertable", "user2"));
+        assertEquals(0, wrapper._inflight.availablePermits());
+
+        db.pending.get(0).complete(Status.OK);
+        assertEquals(1, wrapper._inflight.availablePermits());
+        assertEquals(Status.QUEUED, wrapper.read("usertable", "user3", null, new HashMap<String, ByteIterator>()));
+        assertEquals(0, wrapper._inflight.availablePermits());
+
+        db.pending.get(1).complete(Status.OK);
+        db.pending.get(2).complete(Status.ERROR);
+        assertEquals(2, wrapper._inflight.availablePermits());
+    }
+
+    @Test
+    public void testInsertCompletion() throws Exception {
+        PendingDB db = new PendingDB();
+        Properties props = new Properties();
+        props.setProperty(AsyncDB.INFLIGHT_PROPERTY, "2");
+        DBWrapper wrapper = new DBWrapper(db);
+        wrapper.setProperties(props);
+        wrapper.init();
+
+        final List<Status> completed = new ArrayList<Status>();
+        StatusFuture.Callback callback = new StatusFuture.Callback() {
+            public void completed(Status status) {
+                completed.add(status);
+            }
+        };
+        assertEquals(Status.QUEUED, wrapper.insert("usertable", "user1", new HashMap<String, ByteIterator>(), callback));
+        assertTrue(completed.isEmpty());
+
+        db.pending.get(0).complete(Status.OK);
+        assertEquals(1, completed.size());
+        assertEquals(Status.OK, completed.get(0));
+        assertEquals(2, wrapper._inflight.availablePermits());
+    }
+
+    @Test
+    public void testCompletionMeasuredUnderIssuingPhase() throws Exception {
+        final PendingDB db = new PendingDB();
+        Properties props = new Properties();
+        props.setProperty(AsyncDB.INFLIGHT_PROPERTY, "1");
+        DBWrapper wrapper = new DBWrapper(db);
+        wrapper.setProperties(props);
+        wrapper.init();
+
+        Measurements measurements = Measurements.getMeasurements();
+        measurements.setPhase("async-phase");
+        try {
+            assertEquals(Status.QUEUED, wrapper.delete("usertable", "user1"));
+        } finally {
+            measurements.setPhase(null);
+        }
+
+        Thread completer = new Thread() {
+            public void run() {
+                db.pending.get(0).complete(Status.OK);
+            }
+        };
+        completer.start();
+        completer.join();
+        assertEquals(Long.valueOf(1), measurements.getStatusCounts("async-phase:DELETE").get(Status.OK));
+    }
+
+    @Test
+    public void testSynchronousByDefault() throws Exception {
+        final PendingDB db = new PendingDB();
+        DBWrapper wrapper = new DBWrapper(db);
+        wrapper.setProperties(new Properties());
+        wrapper.init();
+
+        StatusFuture done = StatusFuture.completed(Status.NOT_FOUND);
+        assertTrue(done.isDone());
+        assertEquals(Status.NOT_FOUND, done.get());
+
+        // A synchronous call blocks on the future, so complete it from another thread.
+        Thread completer = new Thread() {
+            public void run() {
+                while (true) {
+                    synchronized (db.pending) {
+                        if (!db.pending.isEmpty()) {
+                            break;
+                        }
+                    }
+                    Thread.yield();
+                }
+                synchronized (db.pending) {
+                    db.pending.get(0).complete(Status.OK);
+                }
+            }
+        };
+        completer.start();
+        assertEquals(Status.OK, wrapper.insert("usertable", "user1", new HashMap<String, ByteIterator>()));
+        completer.join();
+        assertTrue(wrapper._async == null);
+    }
+}
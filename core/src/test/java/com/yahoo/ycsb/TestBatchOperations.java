@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestBatchOperations {
+  /** Keeps the records in memory and only implements the single record operations. */
+  static class MapDB extends DB {
+    final Map<String, HashMap<String, ByteIterator>> records = new HashMap<String, HashMap<String, ByteIterator>>();
+
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      HashMap<String, ByteIterator> record = records.get(key);
+      if (record == null) {
+        return Status.NOT_FOUND;
+      }
+      result.putAll(record);
+      return Status.OK;
+    }
+
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      HashMap<String, ByteIterator> record = records.get(key);
+      if (record == null) {
+        return Status.NOT_FOUND;
+      }
+      record.putAll(values);
+      return Status.OK;
+    }
+
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      records.put(key, new HashMap<String, ByteIterator>(values));
+      return Status.OK;
+    }
+
+    public Status delete(String table, String key) {
+      return records.remove(key) == null ? Status.NOT_FOUND : Status.OK;
+    }
+  }
+
+  private static HashMap<String, ByteIterator> record(String value) {
+    HashMap<String, ByteIterator> record = new HashMap<String, ByteIterator>();
+    record.put("field0", new StringByteIterator(value));
+    return record;
+  }
+
+  private static String field(HashMap<String, ByteIterator> record) {
+    return record.get("field0").toString();
+  }
+
+  @BeforeClass
+  public static void setUpMeasurements() {
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test
+  public void testDefaultsLoopOverRecords() {
+    MapDB db = new MapDB();
+    List<HashMap<String, ByteIterator>> values = new ArrayList<HashMap<String, ByteIterator>>();
+    values.add(record("a"));
+    values.add(record("b"));
+    assertEquals(Status.OK, db.multiInsert("usertable", Arrays.asList("user1", "user2"), values));
+    assertEquals(2, db.records.size());
+
+    // a missing record fails the batch, but the others are still updated and read in key order
+    values = new ArrayList<HashMap<String, ByteIterator>>();
+    values.add(record("c"));
+    values.add(record("x"));
+    values.add(record("d"));
+    assertEquals(Status.NOT_FOUND,
+        db.multiUpdate("usertable", Arrays.asList("user1", "user3", "user2"), values));
+    assertEquals(2, db.records.size());
+
+    List<HashMap<String, ByteIterator>> results = new ArrayList<HashMap<String, ByteIterator>>();
+    assertEquals(Status.NOT_FOUND,
+        db.multiRead("usertable", Arrays.asList("user2", "user3", "user1"), null, results));
+    assertEquals(3, results.size());
+    assertEquals("d", field(results.get(0)));
+    assertTrue(results.get(1).isEmpty());
+    assertEquals("c", field(results.get(2)));
+  }
+
+  @Test
+  public void testWrapperMeasuresBatchAndRecords() throws Exception {
+    final long batchMicros = 30000;
+    MapDB db = new MapDB() {
+      @Override
+      public Status multiInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        try {
+          Thread.sleep(batchMicros / 1000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.multiInsert(table, keys, values);
+      }
+    };
+    DBWrapper wrapper = new DBWrapper(db);
+    wrapper.setProperties(new Properties());
+    wrapper.init();
+
+    Measurements measurements = Measurements.getMeasurements();
+    Histogram batchesBefore = measurements.getHistogram("BATCH-INSERT");
+    Histogram recordsBefore = measurements.getHistogram("INSERT");
+    Long okBefore = measurements.getStatusCounts("INSERT").get(Status.OK);
+    Long batchOkBefore = measurements.getStatusCounts("BATCH-INSERT").get(Status.OK);
+
+    List<HashMap<String, ByteIterator>> values = new ArrayList<HashMap<String, ByteIterator>>();
+    values.add(record("a"));
+    values.add(record("b"));
+    values.add(record("c"));
+    assertEquals(Status.OK, wrapper.multiInsert("usertable", Arrays.asList("user1", "user2", "user3"), values));
+
+    Histogram batches = measurements.getHistogram("BATCH-INSERT");
+    if (batchesBefore != null) {
+      batches.subtract(batchesBefore);
+    }
+    assertEquals(1, batches.getTotalCount());
+    assertTrue(batches.getMinValue() >= batchMicros * 0.99);
+
+    // each record is measured with its share of the batch latency
+    Histogram records = measurements.getHistogram("INSERT");
+    if (recordsBefore != null) {
+      records.subtract(recordsBefore);
+    }
+    assertEquals(3, records.getTotalCount());
+    assertTrue(records.getMinValue() >= batchMicros / 3 * 0.99);
+    assertTrue(records.getMaxValue() < batchMicros * 0.99);
+    long ok = measurements.getStatusCounts("INSERT").get(Status.OK);
+    assertEquals(3, ok - (okBefore == null ? 0 : okBefore));
+    long batchOk = measurements.getStatusCounts("BATCH-INSERT").get(Status.OK);
+    assertEquals(1, batchOk - (batchOkBefore == null ? 0 : batchOkBefore));
+  }
+}
@@ -17,6 +17,10 @@
 
 package com.yahoo.ycsb;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import org.testng.annotations.Test;
 import static org.testng.AssertJUnit.*;
 
@@ -35,5 +39,46 @@ public class TestByteIterator {
     assertEquals(size, itor.toArray().length);
     assertFalse(itor.hasNext());
     assertEquals(0, itor.bytesLeft());
+
+    itor = new RandomByteIterator(size);
+    itor.nextByte();
+    itor.nextByte();
+    assertEquals(size - 2, itor.bytesLeft());
+    byte[] buf = new byte[size];
+    assertEquals(size - 2, itor.nextBuf(buf, 0));
+    assertFalse(itor.hasNext());
+  }
+
+  @Test
+  public void testByteArrayByteIteratorViews() throws IOException {
+    byte[] bytes = "0123456789".getBytes("UTF-8");
+    ByteArrayByteIterator itor = new ByteArrayByteIterator(bytes, 2, 5);
+    assertEquals("23456", new String(itor.toArray(), "UTF-8"));
+    assertEquals("23456", itor.toString());
+    assertFalse(itor.hasNext());
+
+    itor.reset(bytes, 4, 3);
+    ByteBuffer buffer = itor.toByteBuffer();
+    assertEquals(3, buffer.remaining());
+    assertEquals('4', buffer.get());
+    assertEquals(0, itor.bytesLeft());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    itor.reset(bytes, 7, 3).writeTo(out);
+    new StringByteIterator("abc").writeTo(out);
+    assertEquals("789abc", out.toString("UTF-8"));
+  }
+
+  @Test
+  public void testRandomBytesArePrintable() {
+    byte[] buffer = new byte[20];
+    RandomByteIterator.randomBytes(buffer, 3, 13);
+    for (int i = 0; i < buffer.length; i++) {
+      if (i < 3 || i >= 16) {
+        assertEquals(0, buffer[i]);
+      } else {
+        assertTrue(buffer[i] >= ' ' && buffer[i] < ' ' + 95);
+      }
+    }
   }
 }
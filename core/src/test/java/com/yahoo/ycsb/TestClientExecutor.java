@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestClientExecutor {
+  private static final long MILLISECOND = 1000000L;
+
+  /** Records when each of its operations ran. */
+  static class RecordingDB extends DB {
+    final List<Long> operations = new ArrayList<Long>();
+    volatile boolean failInit;
+    volatile boolean cleanedUp;
+
+    @Override
+    public void init() throws DBException {
+      if (failInit) {
+        throw new DBException("init failed");
+      }
+    }
+
+    @Override
+    public void cleanup() {
+      cleanedUp = true;
+    }
+
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  static class RecordingWorkload extends Workload {
+    volatile int transactions;
+
+    public boolean doInsert(DB db, Object threadstate) {
+      return doTransaction(db, threadstate);
+    }
+
+    public boolean doTransaction(DB db, Object threadstate) {
+      ((RecordingDB) db).operations.add(System.nanoTime());
+      synchronized (this) {
+        transactions++;
+      }
+      return true;
+    }
+  }
+
+  @BeforeClass
+  public static void setUpMeasurements() {
+    Measurements.setProperties(new Properties());
+  }
+
+  private static List<ClientThread> clients(List<RecordingDB> dbs, Workload workload, long opcount,
+      double targetperthreadperms, CountDownLatch latch) {
+    List<ClientThread> clients = new ArrayList<ClientThread>();
+    for (int i = 0; i < dbs.size(); i++) {
+      clients.add(new ClientThread(dbs.get(i), true, workload, new Properties(), opcount, targetperthreadperms,
+          latch, null, null, null, i, dbs.size()));
+    }
+    return clients;
+  }
+
+  private static List<RecordingDB> dbs(int count) {
+    List<RecordingDB> dbs = new ArrayList<RecordingDB>();
+    for (int i = 0; i < count; i++) {
+      dbs.add(new RecordingDB());
+    }
+    return dbs;
+  }
+
+  @Test
+  public void testPoolReschedulesByDeadline() throws Exception {
+    // 20 throttled clients on one carrier: sleeping on the carrier would take 20 times as long
+    int count = 20;
+    int opcount = 10;
+    long tick = 20 * MILLISECOND;
+    List<RecordingDB> dbs = dbs(count);
+    CountDownLatch latch = new CountDownLatch(count);
+    ClientExecutor executor = new ClientExecutor.CarrierPool(1);
+    long start = System.nanoTime();
+    executor.start(clients(dbs, new RecordingWorkload(), opcount, 0.05, latch));
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    long elapsed = System.nanoTime() - start;
+    executor.shutdown();
+
+    assertTrue("took " + elapsed / MILLISECOND + "ms", elapsed < count * (opcount - 1) * tick / 2);
+    for (RecordingDB db : dbs) {
+      assertEquals(opcount, db.operations.size());
+      // no operation ran before its deadline, and the first one was not held back for long
+      long span = db.operations.get(opcount - 1) - db.operations.get(0);
+      assertTrue("span " + span, span >= (opcount - 1) * tick - 5 * MILLISECOND);
+      assertTrue(db.cleanedUp);
+    }
+  }
+
+  @Test
+  public void testPoolInitFailureCountsDown() throws Exception {
+    List<RecordingDB> dbs = dbs(3);
+    dbs.get(1).failInit = true;
+    RecordingWorkload workload = new RecordingWorkload();
+    CountDownLatch latch = new CountDownLatch(3);
+    ClientExecutor executor = new ClientExecutor.CarrierPool(2);
+    executor.start(clients(dbs, workload, 5, 0, latch));
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+
+    assertTrue(dbs.get(1).operations.isEmpty());
+    assertFalse(dbs.get(1).cleanedUp);
+    assertEquals(5, dbs.get(0).operations.size());
+    assertEquals(5, dbs.get(2).operations.size());
+    assertEquals(10, workload.transactions);
+  }
+
+  @Test
+  public void testPoolStopCleansUp() throws Exception {
+    List<RecordingDB> dbs = dbs(4);
+    RecordingWorkload workload = new RecordingWorkload();
+    CountDownLatch latch = new CountDownLatch(4);
+    ClientExecutor executor = new ClientExecutor.CarrierPool(2);
+    // no operation limit, so only the stop ends the clients
+    executor.start(clients(dbs, workload, 0, 1, latch));
+    Thread.sleep(50);
+    assertFalse(latch.await(0, TimeUnit.SECONDS));
+
+    workload.requestStop();
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+    for (RecordingDB db : dbs) {
+      assertTrue(db.cleanedUp);
+      assertFalse(db.operations.isEmpty());
+    }
+  }
+
+  @Test
+  public void testVirtualRunsClients() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(ClientExecutor.EXECUTOR_PROPERTY, "virtual");
+    ClientExecutor executor = ClientExecutor.create(props);
+    // falls back to platform threads on JVMs without virtual threads
+    assertEquals(ClientExecutor.VirtualThreads.isSupported(), executor instanceof ClientExecutor.VirtualThreads);
+
+    List<RecordingDB> dbs = dbs(3);
+    dbs.get(2).failInit = true;
+    CountDownLatch latch = new CountDownLatch(3);
+    executor.start(clients(dbs, new RecordingWorkload(), 5, 0, latch));
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+
+    assertEquals(5, dbs.get(0).operations.size());
+    assertTrue(dbs.get(0).cleanedUp);
+    assertTrue(dbs.get(2).operations.isEmpty());
+  }
+}
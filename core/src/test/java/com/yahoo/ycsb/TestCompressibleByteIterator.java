@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.zip.Deflater;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCompressibleByteIterator {
+  /** The zlib header and trailer and the header of the stored block an incompressible value ends up in. */
+  private static final int STORED_OVERHEAD = 11;
+  /** The zlib header and trailer and the header and Huffman tables of a compressed block, about. */
+  private static final int COMPRESSED_OVERHEAD = 72;
+  /** How far the Huffman tables of compressed blocks vary with the random bytes, in bytes. */
+  private static final int COMPRESSED_TOLERANCE = 24;
+
+  @Test
+  public void testBinaryValuesCompressToTarget() {
+    byte[] value = new CompressibleByteIterator(4096, 0, true).toArray();
+    assertEquals(4096, value.length);
+    assertEquals(value.length + STORED_OVERHEAD, deflatedLength(value));
+    for (double compressibility : new double[] {0.25, 0.5, 0.9}) {
+      value = new CompressibleByteIterator(4096, compressibility, true).toArray();
+      assertEquals(4096, value.length);
+      assertEquals(Math.round(value.length * (1 - compressibility)) + COMPRESSED_OVERHEAD,
+          deflatedLength(value), COMPRESSED_TOLERANCE);
+    }
+  }
+
+  @Test
+  public void testFillMatchesIterator() {
+    byte[] buffer = new byte[1010];
+    CompressibleByteIterator.fill(buffer, 5, 1000, 0.5, false);
+    assertEquals(0, buffer[4]);
+    assertEquals(0, buffer[1005]);
+    for (int i = 5; i < 1005; i++) {
+      assertTrue(buffer[i] >= ' ' && buffer[i] <= '~');
+      if (i >= 505) {
+        assertEquals(buffer[i - 500], buffer[i]);
+      }
+    }
+
+    ByteIterator itor = new CompressibleByteIterator(1000, 0.5, false);
+    byte first = itor.nextByte();
+    byte[] rest = new byte[999];
+    assertEquals(999, itor.nextBuf(rest, 0));
+    assertFalse(itor.hasNext());
+    assertEquals(first, rest[499]);
+  }
+
+  private static int deflatedLength(byte[] value) {
+    Deflater deflater = new Deflater();
+    deflater.setInput(value);
+    deflater.finish();
+    byte[] out = new byte[value.length * 2];
+    int length = 0;
+    while (!deflater.finished()) {
+      length += deflater.deflate(out);
+    }
+    deflater.end();
+    return length;
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestLoadProfile {
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    public void testPhases() {
+        List<LoadProfile.Phase> phases =
+            LoadProfile.parse("ramp:10:0:1000,step:5:100:300:3,spike:10:100:1000:2,sine:60:500:250:20").getPhases();
+        assertEquals(8, phases.size());
+        assertEquals("phase1-ramp-0-1000", phases.get(0).getName());
+        assertEquals("phase3-step-200", phases.get(2).getName());
+        assertEquals("phase6-spike-1000", phases.get(5).getName());
+        assertEquals("phase8-sine-500", phases.get(7).getName());
+    }
+
+    @Test
+    public void testOperationsFollowTheRate() {
+        LoadProfile profile = LoadProfile.parse("ramp:10:0:1000,constant:5:200,sine:20:500:250:10");
+        // a ramp from 0 to 1000 ops/sec over 10 seconds is due 5000 operations, 1250 of them in the first half
+        assertEquals(5 * SECOND, profile.timeOfOpNs(1250), 1000);
+        assertEquals(10 * SECOND, profile.timeOfOpNs(5000), 1000);
+        assertEquals(12 * SECOND, profile.timeOfOpNs(5400), 1000);
+        // whole periods of the sine average to its mean
+        assertEquals(25 * SECOND, profile.timeOfOpNs(6000 + 5000), 1000);
+        long previous = -1;
+        for (int n = 0; n < 16000; n += 7) {
+            long time = profile.timeOfOpNs(n);
+            assertTrue(time >= previous);
+            previous = time;
+        }
+        assertEquals(-1, profile.timeOfOpNs(16000.5));
+    }
+
+    @Test
+    public void testPhaseAt() {
+        LoadProfile profile = LoadProfile.parse("constant:1:100,constant:2:200");
+        long start = profile.getStartNanos();
+        assertEquals("phase1-constant-100", profile.phaseAt(start).getName());
+        assertEquals("phase2-constant-200", profile.phaseAt(start + 2 * SECOND).getName());
+        assertEquals(200, profile.rateAt(start + 2 * SECOND), 0);
+        assertNull(profile.phaseAt(start + 3 * SECOND));
+    }
+
+    @Test
+    public void testContinueForgivesMissedOperations() throws InterruptedException {
+        LoadProfile profile = LoadProfile.constant("slow", 1000);
+        long start = profile.getStartNanos();
+        Thread.sleep(50);
+        // only 10 of the operations due at 1000 ops/sec were done, the rest are not made up
+        profile.continueWith("fast", 2000, 10);
+        List<LoadProfile.Phase> phases = profile.getPhases();
+        assertEquals(2, phases.size());
+        long continued = profile.timeOfOpNs(10);
+        assertTrue(continued >= 10 * SECOND / 1000);
+        assertTrue(start + continued <= System.nanoTime());
+        assertEquals(continued + SECOND, profile.timeOfOpNs(2010), 1000);
+        assertEquals("fast", profile.phaseAt(start + continued + 1).getName());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRateMustNotBeNegative() {
+        LoadProfile.parse("sine:60:100:200:10");
+    }
+}
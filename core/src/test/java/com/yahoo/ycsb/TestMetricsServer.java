@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestMetricsServer {
+  /** An operation name that needs escaping in Prometheus labels. */
+  private static final String OPERATION = "TEST \"quoted\\op\"";
+  private static final String LABEL = "operation=\"TEST \\\"quoted\\\\op\\\"\"";
+  private static final long MILLISECOND = 1000000L;
+
+  private MetricsServer server;
+
+  @BeforeClass
+  public void setUp() throws IOException, InterruptedException {
+    Measurements.setProperties(new Properties());
+    Measurements measurements = Measurements.getMeasurements();
+    int index = measurements.getOpIndex(OPERATION);
+    // below 2048 microseconds the histogram keeps the latencies exactly
+    measurements.measure(index, 1 * MILLISECOND);
+    measurements.reportStatus(index, Status.OK);
+    measurements.measure(index, 2 * MILLISECOND);
+    measurements.reportStatus(index, Status.OK);
+
+    Properties props = new Properties();
+    props.setProperty(MetricsServer.PORT_PROPERTY, "0");
+    props.setProperty(MetricsServer.INTERVAL_PROPERTY, "0.05");
+    props.setProperty(MetricsServer.PERCENTILES_PROPERTY, "50,99");
+    List<ClientThread> clients = Collections.singletonList(new ClientThread(new BasicDB(), true, null, props, 100, -1,
+        new CountDownLatch(1), null, null, null, 0, 1));
+    server = new MetricsServer(props, clients);
+    server.start();
+    // the sampler takes its first snapshot as it starts
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!get("/metrics").contains(LABEL) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  public void testPrometheus() throws IOException {
+    List<String> lines = Arrays.asList(get("/metrics").split("\n"));
+    assertTrue(lines.toString(), lines.contains("# TYPE ycsb_operations_total counter"));
+    assertTrue(lines.toString(), lines.contains("ycsb_operations_total{" + LABEL + "} 2"));
+    // latencies are in seconds
+    assertTrue(lines.toString(),
+        lines.contains("ycsb_latency_seconds{" + LABEL + ",window=\"cumulative\",quantile=\"0.5\"} 0.001"));
+    assertTrue(lines.toString(),
+        lines.contains("ycsb_latency_seconds{" + LABEL + ",window=\"cumulative\",quantile=\"0.99\"} 0.002"));
+    assertTrue(lines.toString(), lines.contains("ycsb_status_total{" + LABEL + ",status=\"OK\"} 2"));
+    assertTrue(lines.toString(), lines.contains("ycsb_client_operations_done{thread=\"0\"} 0"));
+    assertTrue(lines.toString(), lines.contains("ycsb_client_operations_todo{thread=\"0\"} 100"));
+  }
+
+  @Test
+  public void testJson() throws IOException {
+    JsonNode json = new ObjectMapper().readTree(get("/metrics.json"));
+    assertEquals("us", json.get("unit").asText());
+    JsonNode operation = json.get("operations").get(OPERATION);
+    assertEquals(2, operation.get("count").asLong());
+    assertEquals(1000, operation.get("cumulative").get("min").asLong());
+    assertEquals(2000, operation.get("cumulative").get("max").asLong());
+    assertEquals(1000, operation.get("cumulative").get("p50").asLong());
+    assertEquals(2000, operation.get("cumulative").get("p99").asLong());
+    assertEquals(2, operation.get("status").get("OK").asLong());
+    assertEquals(100, json.get("threads").get(0).get("todo").asLong());
+  }
+
+  @Test
+  public void testUnknownPath() throws IOException {
+    HttpURLConnection connection = open("/metrics/unknown");
+    try {
+      assertEquals(404, connection.getResponseCode());
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private HttpURLConnection open(String path) throws IOException {
+    return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+  }
+
+  private String get(String path) throws IOException {
+    HttpURLConnection connection = open(path);
+    try {
+      assertEquals(200, connection.getResponseCode());
+      InputStream in = connection.getInputStream();
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        body.write(buffer, 0, n);
+      }
+      in.close();
+      return body.toString("UTF-8");
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
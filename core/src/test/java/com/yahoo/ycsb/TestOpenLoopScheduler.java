@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestOpenLoopScheduler {
+  private static final long MICROSECOND = 1000L;
+
+  static class IdleWorkload extends Workload {
+    public boolean doInsert(DB db, Object threadstate) {
+      return true;
+    }
+
+    public boolean doTransaction(DB db, Object threadstate) {
+      return true;
+    }
+  }
+
+  @Test
+  public void testArrivalsFollowTheTarget() throws Exception {
+    LoadProfile profile = LoadProfile.constant(10000);
+    OpenLoopScheduler scheduler = new OpenLoopScheduler(new IdleWorkload(), 50, 1, profile, false, 8);
+    scheduler.start();
+
+    long start = profile.getStartNanos();
+    for (int i = 0; i < 50; i++) {
+      // evenly spaced at 100us and in order, even though the queue holds fewer than opcount
+      assertEquals(start + i * 100 * MICROSECOND, scheduler.take(), 1);
+    }
+    assertTrue(scheduler.take() < 0);
+    scheduler.join(10000);
+    assertFalse(scheduler.isAlive());
+  }
+
+  @Test
+  public void testEachWorkerGetsOneMarker() throws Exception {
+    final int workers = 4;
+    final int opcount = 1000;
+    final OpenLoopScheduler scheduler =
+        new OpenLoopScheduler(new IdleWorkload(), opcount, workers, LoadProfile.constant(100000), false, 16);
+    final List<Long> arrivals = Collections.synchronizedList(new ArrayList<Long>());
+    final int[] markers = new int[workers];
+    Thread[] threads = new Thread[workers];
+    for (int t = 0; t < workers; t++) {
+      final int id = t;
+      threads[t] = new Thread() {
+        public void run() {
+          try {
+            long arrival;
+            while ((arrival = scheduler.take()) >= 0) {
+              arrivals.add(arrival);
+            }
+            markers[id]++;
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      };
+      threads[t].start();
+    }
+    scheduler.start();
+    for (Thread thread : threads) {
+      thread.join(10000);
+      assertFalse(thread.isAlive());
+    }
+
+    // every worker stopped at its own marker, having consumed exactly opcount arrivals between them
+    for (int t = 0; t < workers; t++) {
+      assertEquals(1, markers[t]);
+    }
+    assertEquals(opcount, arrivals.size());
+    scheduler.join(10000);
+    assertFalse(scheduler.isAlive());
+  }
+
+  @Test
+  public void testTakeAfterStop() throws Exception {
+    Workload workload = new IdleWorkload();
+    // no operation limit, so only the stop ends the schedule
+    OpenLoopScheduler scheduler = new OpenLoopScheduler(workload, 0, 1, LoadProfile.constant(10), false, 4);
+    scheduler.start();
+    assertTrue(scheduler.take() >= 0);
+
+    workload.requestStop();
+    assertTrue(scheduler.take() < 0);
+    assertTrue(scheduler.take() < 0);
+    scheduler.join(10000);
+    assertFalse(scheduler.isAlive());
+  }
+}
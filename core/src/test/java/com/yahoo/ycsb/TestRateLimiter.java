@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestRateLimiter {
+  private static final long MILLISECOND = 1000000L;
+
+  @Test
+  public void testSlotsFollowTheTarget() {
+    LoadProfile profile = LoadProfile.constant(1000);
+    RateLimiter limiter = new RateLimiter(profile, 0);
+    long start = profile.getStartNanos();
+    for (int i = 0; i < 100; i++) {
+      assertEquals(start + i * MILLISECOND, limiter.acquire(), 10);
+    }
+    assertEquals(0, limiter.getSkipped());
+  }
+
+  @Test
+  public void testBurstIsBounded() {
+    LoadProfile profile = LoadProfile.constant(1000);
+    final long start = profile.getStartNanos();
+    RateLimiter limiter = new RateLimiter(profile, 10) {
+      @Override
+      long nanoTime() {
+        // the clients fell 200 operations behind
+        return start + 200 * MILLISECOND;
+      }
+    };
+    // slots 0 to 189 are skipped, leaving the 10 operations up to now due
+    assertEquals(start + 190 * MILLISECOND, limiter.acquire(), 10);
+    assertEquals(190, limiter.getSkipped());
+    // the slots that follow are the next ones of the schedule
+    assertEquals(start + 191 * MILLISECOND, limiter.acquire(), 10);
+    assertEquals(190, limiter.getSkipped());
+  }
+}
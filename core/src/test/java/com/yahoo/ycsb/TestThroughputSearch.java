@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestThroughputSearch {
+    private static final List<String> OPERATIONS = Arrays.asList("READ", "UPDATE", "READ-MODIFY-WRITE");
+
+    private static ThroughputSearch search(String slos) {
+        Properties props = new Properties();
+        props.setProperty(ThroughputSearch.SLO_PROPERTY, slos);
+        return new ThroughputSearch(props);
+    }
+
+    @Test
+    public void testKnownOperationsAreAccepted() {
+        search("READ:99:5000,READ-MODIFY-WRITE:99.9:20000").checkOperations(OPERATIONS);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownOperationIsRejected() {
+        search("READ:99:5000,REED:99.9:20000").checkOperations(OPERATIONS);
+    }
+}
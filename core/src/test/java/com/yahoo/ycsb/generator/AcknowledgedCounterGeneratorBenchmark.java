@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Measures how the throughput of generating and acknowledging insert keys with
+ * {@link AcknowledgedCounterGenerator} scales from 1 to 64 threads, against the lock and boolean window
+ * it used to have. Each thread acknowledges its keys in batches of 16 in reverse order, so the limit
+ * regularly waits for other threads. Runs in which an acknowledgement failed, as the old window does
+ * under contention, are reported as failed. Not run as part of the test suite; start it with
+ * {@code java -cp ... com.yahoo.ycsb.generator.AcknowledgedCounterGeneratorBenchmark [seconds per run]}.
+ */
+public class AcknowledgedCounterGeneratorBenchmark {
+
+  private static final int BATCH = 16;
+
+  /** The previous implementation, a fixed window of 2^20 flags drained by whoever gets the lock. */
+  static class LockedWindowGenerator extends CounterGenerator {
+    static final int WINDOW_SIZE = 1 << 20;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] window = new boolean[WINDOW_SIZE];
+    private volatile long limit;
+
+    LockedWindowGenerator(long countstart) {
+      super(countstart);
+      limit = countstart - 1;
+    }
+
+    @Override
+    public long lastLong() {
+      return limit;
+    }
+
+    void acknowledge(long value) {
+      final int currentSlot = (int) (value & WINDOW_MASK);
+      if (window[currentSlot]) {
+        throw new RuntimeException("Too many unacknowledged insertion keys.");
+      }
+      window[currentSlot] = true;
+      if (lock.tryLock()) {
+        try {
+          long index;
+          for (index = limit + 1; index <= limit + WINDOW_SIZE; ++index) {
+            int slot = (int) (index & WINDOW_MASK);
+            if (!window[slot]) {
+              break;
+            }
+            window[slot] = false;
+          }
+          limit = index - 1;
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  interface Acknowledger {
+    long next();
+
+    void acknowledge(long value);
+  }
+
+  public static void main(String[] args) throws Exception {
+    long millis = args.length > 0 ? Long.parseLong(args[0]) * 1000 : 2000;
+    System.out.println("threads, locked window ops/sec, lock-free ops/sec");
+    for (int threads = 1; threads <= 64; threads *= 2) {
+      final LockedWindowGenerator locked = new LockedWindowGenerator(0);
+      double lockedRate = run(threads, millis, new Acknowledger() {
+        public long next() {
+          return locked.nextLong();
+        }
+
+        public void acknowledge(long value) {
+          locked.acknowledge(value);
+        }
+      });
+      final AcknowledgedCounterGenerator lockFree = new AcknowledgedCounterGenerator(0);
+      double lockFreeRate = run(threads, millis, new Acknowledger() {
+        public long next() {
+          return lockFree.nextLong();
+        }
+
+        public void acknowledge(long value) {
+          lockFree.acknowledge(value);
+        }
+      });
+      System.out.println(threads + ", " + format(lockedRate) + ", " + format(lockFreeRate));
+    }
+  }
+
+  static String format(double rate) {
+    return rate < 0 ? "failed" : String.format("%.0f", rate);
+  }
+
+  /**
+   * @return The aggregate number of keys per second generated and acknowledged by the threads, or -1
+   *         if an acknowledgement failed.
+   */
+  static double run(int threads, final long millis, final Acknowledger acknowledger) throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicLong total = new AtomicLong();
+    final AtomicBoolean failed = new AtomicBoolean();
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      workers[t] = new Thread() {
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          long deadline = System.nanoTime() + millis * 1000000L;
+          long count = 0;
+          long[] batch = new long[BATCH];
+          try {
+            while ((count & 1023) != 0 || System.nanoTime() < deadline) {
+              for (int i = 0; i < BATCH; i++) {
+                batch[i] = acknowledger.next();
+              }
+              for (int i = BATCH - 1; i >= 0; i--) {
+                acknowledger.acknowledge(batch[i]);
+              }
+              count += BATCH;
+            }
+          } catch (RuntimeException e) {
+            failed.set(true);
+          }
+          total.addAndGet(count);
+        }
+      };
+      workers[t].start();
+    }
+    long st = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long en = System.nanoTime();
+    return failed.get() ? -1 : total.get() * 1e9 / (en - st);
+  }
+}
@@ -22,6 +22,9 @@ import java.util.concurrent.BlockingQueue;
 
 import org.testng.annotations.Test;
 
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
 /**
  * Tests for the AcknowledgedCounterGenerator class.
  */
@@ -32,30 +35,64 @@ public class AcknowledgedCounterGeneratorTest {
    */
   @Test
   public void testIncrementPastIntegerMaxValue() {
-    final long toTry = AcknowledgedCounterGenerator.WINDOW_SIZE * 3;
+    final long toTry = 3 << 20;
 
     AcknowledgedCounterGenerator generator =
         new AcknowledgedCounterGenerator(Integer.MAX_VALUE - 1000);
 
     Random rand = new Random(System.currentTimeMillis());
-    BlockingQueue<Integer> pending = new ArrayBlockingQueue<Integer>(1000);
+    BlockingQueue<Long> pending = new ArrayBlockingQueue<Long>(1000);
     for (long i = 0; i < toTry; ++i) {
-      int value = generator.nextInt();
+      long value = generator.nextLong();
 
       while (!pending.offer(value)) {
 
-        Integer first = pending.poll();
+        Long first = pending.poll();
 
         // Don't always advance by one.
         if (rand.nextBoolean()) {
           generator.acknowledge(first);
         } else {
-          Integer second = pending.poll();
+          Long second = pending.poll();
           pending.add(first);
           generator.acknowledge(second);
         }
       }
     }
 
+    // the acknowledged keys carry on past the int range instead of wrapping around
+    assertTrue(generator.lastLong() > Integer.MAX_VALUE);
+  }
+
+  /**
+   * Test that threads acknowledging out of order, with more keys in flight than the old fixed
+   * window of 2^20 allowed, end up with every key acknowledged.
+   */
+  @Test
+  public void testConcurrentAcknowledgements() throws Exception {
+    final int threads = 4;
+    final int perThread = 1 << 19;
+    final AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0);
+
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      workers[t] = new Thread() {
+        public void run() {
+          // acknowledge in reverse, so that nothing is acknowledged until the last key is generated
+          long[] values = new long[perThread];
+          for (int i = 0; i < perThread; i++) {
+            values[i] = generator.nextLong();
+          }
+          for (int i = perThread - 1; i >= 0; i--) {
+            generator.acknowledge(values[i]);
+          }
+        }
+      };
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertEquals((long) threads * perThread - 1, generator.lastLong());
   }
 }
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+
+public class TestAliasDiscreteGenerator {
+    @Test
+    public void testFrequenciesFollowWeights() {
+        double[] weights = {0.5, 0.3, 0.0, 0.15, 0.05};
+        AliasDiscreteGenerator<Integer> generator = new AliasDiscreteGenerator<Integer>();
+        for (int i = 0; i < weights.length; i++) {
+            generator.addValue(weights[i], i);
+        }
+
+        int draws = 200000;
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < draws; i++) {
+            counts[generator.nextValue()]++;
+        }
+        assertEquals(0, counts[2]);
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i], (double) counts[i] / draws, 0.01);
+        }
+    }
+
+    @Test
+    public void testManyValuesAndLastString() {
+        int n = 1000;
+        DiscreteGenerator generator = new DiscreteGenerator();
+        for (int i = 0; i < n; i++) {
+            generator.addValue(i % 2 == 0 ? 1 : 3, Integer.toString(i));
+        }
+
+        int odd = 0;
+        int draws = 100000;
+        for (int i = 0; i < draws; i++) {
+            String value = generator.nextString();
+            assertEquals(value, generator.lastString());
+            int index = Integer.parseInt(value);
+            assertTrue(index >= 0 && index < n);
+            odd += index % 2;
+        }
+        assertEquals(0.75, (double) odd / draws, 0.01);
+    }
+}
@@ -19,6 +19,7 @@ package com.yahoo.ycsb.generator;
 
 import org.testng.annotations.Test;
 
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 
 
@@ -36,4 +37,16 @@ public class TestZipfianGenerator {
         }
 
     }
+
+    @Test
+    public void testApproximateZetaMatchesExactSum() {
+        long n = 5000000;
+        for (double theta : new double[] {0.5, 0.99, 1.2}) {
+            double exact = Zeta.exact(0, n, theta);
+            assertEquals(exact, Zeta.zeta(n, theta), exact * 1e-12);
+            // growing incrementally past the exact terms gives the same value
+            double half = Zeta.zeta(n / 2, theta);
+            assertEquals(exact, Zeta.zeta(n / 2, n, theta, half), exact * 1e-12);
+        }
+    }
 }
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how the throughput of {@link OneMeasurementHistogram#measure(int)} scales from 1 to 64
+ * threads, against a single monitor histogram as the previous implementation used.
+ * Not run as part of the test suite; start it with
+ * {@code java -cp ... com.yahoo.ycsb.measurements.OneMeasurementHistogramBenchmark [seconds per run]}.
+ */
+public class OneMeasurementHistogramBenchmark {
+
+    /** A histogram serialized on a single monitor, as OneMeasurementHistogram used to be. */
+    static class SynchronizedHistogram {
+        final int[] histogram = new int[1000];
+        int overflow;
+        int operations;
+        long totallatency;
+        int min = -1;
+        int max = -1;
+
+        synchronized void measure(int latency) {
+            if (latency / 1000 >= histogram.length) {
+                overflow++;
+            } else {
+                histogram[latency / 1000]++;
+            }
+            operations++;
+            totallatency += latency;
+            if ((min < 0) || (latency < min)) {
+                min = latency;
+            }
+            if ((max < 0) || (latency > max)) {
+                max = latency;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) * 1000 : 2000;
+        System.out.println("threads, synchronized ops/sec, striped ops/sec");
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            final SynchronizedHistogram single = new SynchronizedHistogram();
+            double singleRate = run(threads, millis, new Recorder() {
+                public void record(int latency) {
+                    single.measure(latency);
+                }
+            });
+            final OneMeasurementHistogram striped = new OneMeasurementHistogram("READ", new Properties());
+            double stripedRate = run(threads, millis, new Recorder() {
+                public void record(int latency) {
+                    striped.measure(latency * 1000L, null);
+                }
+            });
+            System.out.printf("%d, %.0f, %.0f%n", threads, singleRate, stripedRate);
+        }
+    }
+
+    interface Recorder {
+        void record(int latency);
+    }
+
+    /**
+     * @return The aggregate number of measurements per second recorded by the threads.
+     */
+    static double run(int threads, final long millis, final Recorder recorder) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicLong total = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long deadline = System.nanoTime() + millis * 1000000L;
+                    long count = 0;
+                    int latency = 1;
+                    while ((count & 1023) != 0 || System.nanoTime() < deadline) {
+                        // cheap pseudo random latencies spread over the first few buckets
+                        latency = (latency * 1103515245 + 12345) & 0x3fff;
+                        recorder.record(latency);
+                        count++;
+                    }
+                    total.addAndGet(count);
+                }
+            };
+            workers[t].start();
+        }
+        long st = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long en = System.nanoTime();
+        return total.get() * 1e9 / (en - st);
+    }
+}
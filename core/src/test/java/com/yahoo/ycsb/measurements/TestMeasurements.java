@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestMeasurements {
+    @Test
+    public void testConcurrentMeasurementsAreMerged() throws Exception {
+        checkConcurrentMeasurements(new Properties());
+    }
+
+    @Test
+    public void testConcurrentHistogramMeasurementsAreMerged() throws Exception {
+        Properties props = new Properties();
+        props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "histogram");
+        String text = checkConcurrentMeasurements(props);
+        // latencies 0..99us all fall into the first 1ms bucket
+        assertTrue(text, text.contains("[READ], 0, 80000"));
+        assertTrue(text, text.contains("[READ], MaxLatency(us), 99"));
+    }
+
+    @Test
+    public void testConcurrentTimeSeriesMeasurementsAreMerged() throws Exception {
+        Properties props = new Properties();
+        props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "timeseries");
+        // short units so that the threads hand over buckets while measuring
+        props.put(OneMeasurementTimeSeries.GRANULARITY, "1");
+        props.put(OneMeasurementTimeSeries.PERCENTILES, "99");
+        String text = checkConcurrentMeasurements(props);
+        assertTrue(text, text.contains("[READ], AverageLatency(us), 49.5"));
+        assertTrue(text, text.contains("[READ], MaxLatency(us), 99"));
+
+        // in a single unit, the percentile is that of all the latencies
+        props.put(OneMeasurementTimeSeries.GRANULARITY, "3600000");
+        text = checkConcurrentMeasurements(props);
+        assertTrue(text, hasLine(text, "[READ], 0_p99, 98.0"));
+    }
+
+    @Test
+    public void testTimeSeriesExtremesAreExact() throws Exception {
+        Properties props = new Properties();
+        props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "timeseries");
+        props.put(Measurements.MEASUREMENT_UNIT, "ns");
+        Measurements mm = new Measurements(props);
+        int readIndex = mm.getOpIndex("READ");
+        // more significant digits than the histogram keeps
+        mm.measure(readIndex, 123456L);
+        mm.measure(readIndex, 987654321L);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TextMeasurementsExporter export = new TextMeasurementsExporter(out);
+        mm.exportMeasurements(export);
+        export.close();
+        String text = out.toString("UTF-8");
+        assertTrue(text, hasLine(text, "[READ], MinLatency(ns), 123456"));
+        assertTrue(text, hasLine(text, "[READ], MaxLatency(ns), 987654321"));
+    }
+
+    @Test
+    public void testNanosecondReportingUnit() throws Exception {
+        Properties props = new Properties();
+        props.put(Measurements.MEASUREMENT_UNIT, "ns");
+        Measurements mm = new Measurements(props);
+        int readIndex = mm.getOpIndex("READ");
+        mm.measure(readIndex, 250L);
+        mm.measure(readIndex, 350L);
+        // a stall longer than an int of microseconds can hold
+        long stall = 3000L * 1000 * 1000 * 1000;
+        mm.measure(mm.getOpIndex("UPDATE"), stall);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TextMeasurementsExporter export = new TextMeasurementsExporter(out);
+        mm.exportMeasurements(export);
+        export.close();
+        String text = out.toString("UTF-8");
+        assertTrue(text, hasLine(text, "[READ], AverageLatency(ns), 300.0"));
+        // the histogram values are exported as doubles, like they always were
+        assertTrue(text, hasLine(text, "[READ], Operations, 2.0"));
+        assertTrue(text, hasLine(text, "[READ], MinLatency(ns), 250.0"));
+        // the histogram keeps three significant digits of the stall
+        long max = new Histogram(3).highestEquivalentValue(stall);
+        assertTrue(text, hasLine(text, "[UPDATE], MaxLatency(ns), " + (double) max));
+    }
+
+    @Test
+    public void testWarmupIsNotExported() throws Exception {
+        Measurements mm = new Measurements(new Properties());
+        int readIndex = mm.getOpIndex("READ");
+        mm.startWarmup();
+        mm.measure(readIndex, 5000L * 1000);
+        mm.reportStatus(readIndex, Status.ERROR);
+        mm.endWarmup();
+        mm.measure(readIndex, 7000L);
+        mm.reportStatus(readIndex, Status.OK);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TextMeasurementsExporter export = new TextMeasurementsExporter(out);
+        mm.exportMeasurements(export);
+        export.close();
+        String text = out.toString("UTF-8");
+        assertTrue(text, text.contains("[READ], Operations, 1"));
+        assertTrue(text, text.contains("[READ], MaxLatency(us), 7"));
+        assertTrue(text, !text.contains("WARMUP") && !text.contains("Return=ERROR"));
+        assertTrue(mm.getSummary(), mm.getSummary().contains("WARMUP-READ"));
+    }
+
+    @Test
+    public void testHistogramCopiesLeaveTheSummaryIntact() throws Exception {
+        OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", new Properties());
+        m.measure(1000L, null);
+        assertEquals(1, m.getHistogram().getTotalCount());
+        m.measure(2000L, null);
+        assertEquals(2, m.getHistogram().getTotalCount());
+        // the status summary still sees both latencies in its interval, and the total counts them once
+        String summary = m.getSummary();
+        assertTrue(summary, summary.contains("Count=2,"));
+        m.measure(3000L, null);
+        summary = m.getSummary();
+        assertTrue(summary, summary.contains("Count=1,"));
+        assertEquals(3, m.getHistogram().getTotalCount());
+    }
+
+    private String checkConcurrentMeasurements(Properties props) throws Exception {
+        final Measurements mm = new Measurements(props);
+        final int readIndex = mm.getOpIndex("READ");
+        assertEquals(readIndex, mm.getOpIndex("READ"));
+        assertTrue(readIndex != mm.getOpIndex("UPDATE"));
+
+        final int threads = 8;
+        final int ops = 10000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < ops; i++) {
+                        mm.measure(readIndex, (i % 100) * 1000L);
+                        mm.reportStatus(readIndex, Status.OK);
+                    }
+                    mm.measure(mm.getOpIndex("UPDATE"), 5000L);
+                    mm.reportStatus("UPDATE", Status.ERROR);
+                }
+            };
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TextMeasurementsExporter export = new TextMeasurementsExporter(out);
+        mm.exportMeasurements(export);
+        export.close();
+
+        String text = out.toString("UTF-8");
+        assertTrue(text, text.contains("[READ], Operations, " + (threads * ops)));
+        assertTrue(text, hasLine(text, "[READ], Return=OK, " + (threads * ops)));
+        assertTrue(text, text.contains("[UPDATE], Operations, " + threads));
+        assertTrue(text, hasLine(text, "[UPDATE], Return=ERROR, " + threads));
+        return text;
+    }
+
+    private static boolean hasLine(String text, String line) {
+        return Arrays.asList(text.split("\\r?\\n")).contains(line);
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.testng.annotations.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestRawStream {
+    @Test
+    public void testAllRecordsAreStreamed() throws Exception {
+        File file = File.createTempFile("rawstream", ".bin");
+        file.deleteOnExit();
+        new File(file.getPath() + ".names").deleteOnExit();
+
+        Properties props = new Properties();
+        props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "rawstream");
+        props.put(RawStream.OUTPUT_FILE_PATH, file.getPath());
+        // tiny buffers so that the threads hand many of them to the flusher
+        props.put(RawStream.BUFFER_RECORDS, "16");
+        final Measurements mm = new Measurements(props);
+        final int readIndex = mm.getOpIndex("READ");
+
+        final int threads = 4;
+        final int ops = 5000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < ops; i++) {
+                        mm.measure(readIndex, i * 1000L, Status.OK);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TextMeasurementsExporter export = new TextMeasurementsExporter(out);
+        mm.exportMeasurements(export);
+        export.close();
+        String text = out.toString("UTF-8");
+        assertTrue(text, text.contains("[READ], Total Operations, " + (threads * ops)));
+        assertTrue(text, text.contains("[READ], Max, " + (ops - 1)));
+
+        assertEquals(threads * ops * RawStream.RECORD_SIZE, file.length());
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        long latencySum = 0;
+        try {
+            while (true) {
+                long endMicros = in.readLong();
+                assertTrue(endMicros > 0);
+                latencySum += in.readLong();
+                assertEquals(0, in.readShort());
+                assertEquals(1, in.readShort());
+            }
+        } catch (EOFException e) {
+            // end of the trace
+        } finally {
+            in.close();
+        }
+        assertEquals((long) threads * ops * (ops - 1) / 2, latencySum);
+    }
+
+    @Test
+    public void testColumnarTraceRoundTrip() throws Exception {
+        File file = File.createTempFile("rawstream", ".trc");
+        file.deleteOnExit();
+
+        Properties props = new Properties();
+        props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "rawstream");
+        props.put(RawStream.OUTPUT_FILE_PATH, file.getPath());
+        props.put(RawStream.FORMAT, "columnar");
+        props.put(RawStream.BUFFER_RECORDS, "100");
+        Measurements mm = new Measurements(props);
+        int readIndex = mm.getOpIndex("READ");
+        int updateIndex = mm.getOpIndex("UPDATE");
+
+        final int ops = 1000;
+        for (int i = 0; i < ops; i++) {
+            mm.measure(readIndex, i * 1000L, Status.OK);
+            mm.measure(updateIndex, (100000 + i) * 1000L, i % 10 == 0 ? Status.ERROR : Status.OK);
+        }
+        TextMeasurementsExporter export = new TextMeasurementsExporter(new ByteArrayOutputStream());
+        mm.exportMeasurements(export);
+        export.close();
+
+        // 2 * ops records would take 2 * ops * RECORD_SIZE bytes in the fixed format
+        assertTrue("columnar trace takes less than half the space",
+                file.length() < ops * RawStream.RECORD_SIZE);
+        TraceReader reader = TraceReader.open(file.getPath());
+        long readSum = 0;
+        int updates = 0;
+        int errors = 0;
+        long previous = 0;
+        try {
+            assertTrue(reader.getStartMicros() > 0);
+            while (reader.nextBlock(Long.MIN_VALUE, Long.MAX_VALUE)) {
+                for (int i = 0; i < reader.getCount(); i++) {
+                    // a single thread appends the records in order
+                    assertTrue(reader.getEndMicros(i) >= previous);
+                    previous = reader.getEndMicros(i);
+                    String op = reader.getOpName(reader.getOp(i));
+                    if (op.equals("READ")) {
+                        readSum += reader.getLatency(i);
+                    } else {
+                        assertEquals("UPDATE", op);
+                        assertEquals(100000 + updates, reader.getLatency(i));
+                        updates++;
+                        if (reader.getStatusName(reader.getStatus(i)).equals("ERROR")) {
+                            errors++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals((long) ops * (ops - 1) / 2, readSum);
+        assertEquals(ops, updates);
+        assertEquals(ops / 10, errors);
+
+        // blocks entirely outside of the window are skipped
+        reader = TraceReader.open(file.getPath());
+        try {
+            assertTrue(!reader.nextBlock(Long.MIN_VALUE, reader.getStartMicros() - 1));
+        } finally {
+            reader.close();
+        }
+    }
+    @Test
+    public void testCloseWhileAppending() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            File file = File.createTempFile("rawstream", ".bin");
+            file.deleteOnExit();
+            new File(file.getPath() + ".names").deleteOnExit();
+
+            Properties props = new Properties();
+            props.put(RawStream.OUTPUT_FILE_PATH, file.getPath());
+            // every append hands a buffer to the flusher, so closing races with the hand-over
+            props.put(RawStream.BUFFER_RECORDS, "1");
+            final RawStream stream = new RawStream(props);
+            final short op = stream.registerOp("READ");
+            final AtomicBoolean running = new AtomicBoolean(true);
+            Thread[] workers = new Thread[4];
+            for (int t = 0; t < workers.length; t++) {
+                workers[t] = new Thread() {
+                    public void run() {
+                        while (running.get()) {
+                            stream.record(op, 1, Status.OK);
+                        }
+                    }
+                };
+                workers[t].start();
+            }
+
+            Thread.sleep(5);
+            Thread closer = new Thread() {
+                public void run() {
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            closer.start();
+            closer.join(10000);
+            assertFalse("close() did not return", closer.isAlive());
+            running.set(false);
+            for (Thread worker : workers) {
+                worker.join(10000);
+                assertFalse("an append blocked after close()", worker.isAlive());
+            }
+            assertEquals(0, file.length() % RawStream.RECORD_SIZE);
+        }
+    }
+
+    @Test
+    public void testLatenciesBeyondIntRange() throws Exception {
+        for (String format : new String[] {"fixed", "columnar"}) {
+            File file = File.createTempFile("rawstream", ".trc");
+            file.deleteOnExit();
+            new File(file.getPath() + ".names").deleteOnExit();
+
+            Properties props = new Properties();
+            props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "rawstream");
+            props.put(Measurements.MEASUREMENT_UNIT, "ns");
+            props.put(RawStream.OUTPUT_FILE_PATH, file.getPath());
+            props.put(RawStream.FORMAT, format);
+            Measurements mm = new Measurements(props);
+            // a 5 second stall does not fit an int of nanoseconds
+            long stall = 5L * 1000 * 1000 * 1000;
+            mm.measure(mm.getOpIndex("READ"), stall, Status.OK);
+            TextMeasurementsExporter export = new TextMeasurementsExporter(new ByteArrayOutputStream());
+            mm.exportMeasurements(export);
+            export.close();
+
+            TraceReader reader = TraceReader.open(file.getPath());
+            try {
+                assertEquals("ns", reader.getUnitLabel());
+                assertTrue(format, reader.nextBlock(Long.MIN_VALUE, Long.MAX_VALUE));
+                assertEquals(format, 1, reader.getCount());
+                assertEquals(format, stall, reader.getLatency(0));
+            } finally {
+                reader.close();
+            }
+        }
+    }
+}
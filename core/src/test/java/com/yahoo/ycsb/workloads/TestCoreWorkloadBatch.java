@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import com.yahoo.ycsb.BasicDB;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.Status;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCoreWorkloadBatch {
+  /** Records the size and keys of each batch inserted. */
+  static class BatchDB extends BasicDB {
+    final List<Integer> batches = new ArrayList<Integer>();
+    final Set<String> keys = new HashSet<String>();
+
+    @Override
+    public Status multiInsert(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+      batches.add(keys.size());
+      this.keys.addAll(keys);
+      assertEquals(keys.size(), values.size());
+      return Status.OK;
+    }
+  }
+
+  @Test
+  public void testLoadBatchesStopAtInsertLimit() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "20");
+    p.setProperty(CoreWorkload.INSERT_START_PROPERTY, "3");
+    p.setProperty(Client.INSERT_COUNT_PROPERTY, "10");
+    p.setProperty(CoreWorkload.BATCH_SIZE_PROPERTY, "4");
+    p.setProperty(BasicDB.VERBOSE, "false");
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    BatchDB db = new BatchDB();
+    db.setProperties(p);
+
+    Object state = workload.initThread(p, 0, 1);
+    assertTrue(workload.doInsert(db, state));
+    assertTrue(workload.doInsert(db, state));
+    // the last batch is cut short at the insert limit, and nothing is left after it
+    assertTrue(workload.doInsert(db, state));
+    assertFalse(workload.doInsert(db, state));
+
+    List<Integer> expected = new ArrayList<Integer>();
+    expected.add(4);
+    expected.add(4);
+    expected.add(2);
+    assertEquals(expected, db.batches);
+    Set<String> keys = new HashSet<String>();
+    for (long keynum = 3; keynum < 13; keynum++) {
+      keys.add(workload.buildKeyName(keynum));
+    }
+    assertEquals(keys, db.keys);
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.WorkloadException;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCoreWorkloadDataIntegrity {
+    private static final Properties p = new Properties();
+
+    private static CoreWorkload workload(String fieldlengthdistribution) throws WorkloadException {
+        p.clear();
+        p.setProperty(CoreWorkload.REUSE_VALUES_PROPERTY, "true");
+        p.setProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY, "true");
+        p.setProperty(CoreWorkload.DATA_INTEGRITY_MODE_PROPERTY, "hash");
+        p.setProperty(CoreWorkload.FIELD_LENGTH_DISTRIBUTION_PROPERTY, fieldlengthdistribution);
+        p.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "300");
+        CoreWorkload workload = new CoreWorkload();
+        workload.init(p);
+        return workload;
+    }
+
+    @Test
+    public void testVariableLengthValuesVerify() throws WorkloadException {
+        CoreWorkload workload = workload("uniform");
+        HashMap<String, ByteIterator> values = workload.buildValues("user42");
+        // built once more with the generators and value buffers of a thread
+        CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(p, 0, 1);
+        HashMap<String, ByteIterator> reused = workload.buildValues("user42", state);
+        for (String field : values.keySet()) {
+            byte[] value = values.get(field).toArray();
+            assertTrue(workload.verifyHashedValue("user42", field, new ByteArrayByteIterator(value)));
+            assertTrue(workload.verifyHashedValue("user42", field, reused.get(field)));
+            assertFalse(workload.verifyHashedValue("user43", field, new ByteArrayByteIterator(value)));
+
+            byte[] corrupt = Arrays.copyOf(value, value.length);
+            corrupt[corrupt.length - 1] ^= 1;
+            assertFalse(workload.verifyHashedValue("user42", field, new ByteArrayByteIterator(corrupt)));
+            // a value cut short is still a prefix of the generated bytes, but not of the right length
+            assertFalse(workload.verifyHashedValue("user42", field,
+                new ByteArrayByteIterator(Arrays.copyOf(value, value.length - 1))));
+        }
+    }
+
+    @Test
+    public void testVariableLengthsFollowTheKey() throws WorkloadException {
+        // the run phase draws the same lengths as the load phase did
+        HashMap<String, ByteIterator> loaded = workload("zipfian").buildValues("user42");
+        CoreWorkload workload = workload("zipfian");
+        HashMap<String, ByteIterator> again = workload.buildValues("user42");
+        Set<Integer> lengths = new HashSet<Integer>();
+        for (String field : loaded.keySet()) {
+            int length = loaded.get(field).toArray().length;
+            assertEquals(length, again.get(field).toArray().length);
+            lengths.add(length);
+        }
+        // while the fields of the key still get lengths of their own
+        assertTrue(lengths.size() > 1);
+    }
+
+    @Test
+    public void testConstantLengthIsChecked() throws WorkloadException {
+        CoreWorkload workload = workload("constant");
+        for (Map.Entry<String, ByteIterator> entry : workload.buildValues("user7").entrySet()) {
+            byte[] value = entry.getValue().toArray();
+            assertEquals(300, value.length);
+            assertTrue(workload.verifyHashedValue("user7", entry.getKey(), new ByteArrayByteIterator(value)));
+            assertFalse(workload.verifyHashedValue("user7", entry.getKey(),
+                new ByteArrayByteIterator(Arrays.copyOf(value, 299))));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Properties;
+
+import com.yahoo.ycsb.BasicDB;
+import com.yahoo.ycsb.DB;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCoreWorkloadThreadState {
+    @Test
+    public void testOverriddenOperationsAreCalled() throws Exception {
+        Properties p = new Properties();
+        p.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0");
+        p.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "1");
+        p.setProperty(BasicDB.VERBOSE, "false");
+        final int[] updates = new int[1];
+        CoreWorkload workload = new CoreWorkload() {
+            @Override
+            public void doTransactionUpdate(DB db) {
+                updates[0]++;
+                super.doTransactionUpdate(db);
+            }
+        };
+        workload.init(p);
+        DB db = new BasicDB();
+        db.setProperties(p);
+        db.init();
+
+        Object state = workload.initThread(p, 0, 1);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(workload.doTransaction(db, state));
+        }
+        assertEquals(10, updates[0]);
+    }
+
+    @Test
+    public void testHistogramIsReadOnce() throws Exception {
+        File histogram = File.createTempFile("fieldlength", ".txt");
+        FileWriter out = new FileWriter(histogram);
+        out.write("BlockSize\t10\n0\t0\n1\t5\n2\t5\n");
+        out.close();
+
+        Properties p = new Properties();
+        p.setProperty(CoreWorkload.FIELD_LENGTH_DISTRIBUTION_PROPERTY, "histogram");
+        p.setProperty(CoreWorkload.FIELD_LENGTH_HISTOGRAM_FILE_PROPERTY, histogram.getPath());
+        CoreWorkload workload = new CoreWorkload();
+        workload.init(p);
+        // the threads draw from the histogram read by init()
+        assertTrue(histogram.delete());
+        CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(p, 0, 1);
+        for (int i = 0; i < 100; i++) {
+            int length = state.fieldlengthgenerator.nextInt();
+            assertTrue(String.valueOf(length), length == 10 || length == 20);
+        }
+    }
+}
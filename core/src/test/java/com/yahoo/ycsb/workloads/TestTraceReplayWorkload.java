@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.tools.TraceConverter;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestTraceReplayWorkload {
+  private static final String CSV =
+    "# timestamp,operation,key,fields,size\n"
+    + "1000,read,user17,,\n"
+    + "1500,UPDATE,user18,1;3,64\n"
+    + "2000,insert,42\n"
+    + "2500,scan,user5,*,10\n"
+    + "\n"
+    + "3000,delete,session-abc\n"
+    + "3500,readmodifywrite,user9,0,8\n";
+
+  /** Records the operations it is asked to do. */
+  private static class RecordingDB extends DB {
+    final List<String> ops = new ArrayList<String>();
+
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      ops.add("read " + key + " " + (fields == null ? "*" : fields.size()));
+      return Status.OK;
+    }
+
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      ops.add("scan " + startkey + " " + recordcount);
+      return Status.OK;
+    }
+
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      ops.add("update " + key + " " + values.keySet().size() + "x" + values.values().iterator().next().bytesLeft());
+      return Status.OK;
+    }
+
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      ops.add("insert " + key + " " + values.size());
+      return Status.OK;
+    }
+
+    public Status delete(String table, String key) {
+      ops.add("delete " + key);
+      return Status.OK;
+    }
+  }
+
+  private static String convert() throws IOException {
+    File csv = File.createTempFile("trace", ".csv");
+    File trace = File.createTempFile("trace", ".bin");
+    csv.deleteOnExit();
+    trace.deleteOnExit();
+    Writer out = new OutputStreamWriter(new FileOutputStream(csv), "UTF-8");
+    try {
+      out.write(CSV);
+    } finally {
+      out.close();
+    }
+    assertEquals(6, TraceConverter.convert(csv.getPath(), trace.getPath()));
+    return trace.getPath();
+  }
+
+  @Test
+  public void testConvertedTrace() throws IOException {
+    ReplayTrace trace = ReplayTrace.open(convert());
+    try {
+      assertEquals(6, trace.size());
+      assertTrue(trace.hasTimestamps());
+      assertEquals(1500, trace.micros(1));
+      assertEquals(ReplayTrace.Op.UPDATE, trace.op(1));
+      assertEquals(18, trace.key(1));
+      assertEquals((1L << 1) | (1L << 3), trace.fieldMask(1));
+      assertEquals(64, trace.valueSize(1));
+      assertEquals(42, trace.key(2));
+      assertEquals(0, trace.fieldMask(3));
+      assertTrue(trace.key(4) >= 0);
+      assertEquals(ReplayTrace.Op.READMODIFYWRITE, trace.op(5));
+    } finally {
+      trace.close();
+    }
+  }
+
+  @Test
+  public void testThreadsReplayEveryRecordOnce() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(TraceReplayWorkload.FILE_PROPERTY, convert());
+    p.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "4");
+    TraceReplayWorkload workload = new TraceReplayWorkload();
+    workload.init(p);
+    RecordingDB db = new RecordingDB();
+    try {
+      Object first = workload.initThread(p, 0, 2);
+      Object second = workload.initThread(p, 1, 2);
+      while (workload.doTransaction(db, first)) {
+      }
+      while (workload.doTransaction(db, second)) {
+      }
+    } finally {
+      workload.cleanup();
+    }
+    List<String> ops = db.ops;
+    assertEquals(7, ops.size());
+    assertTrue(ops.contains("read user17 *"));
+    assertTrue(ops.contains("update user18 2x64"));
+    assertTrue(ops.contains("insert user42 4"));
+    assertTrue(ops.contains("scan user5 10"));
+    assertTrue(ops.contains("read user9 1"));
+    assertTrue(ops.contains("update user9 1x8"));
+    // the first thread replays records 0, 2 and 4; keys that are not numbered are hashed
+    assertEquals("insert user42 4", ops.get(1));
+    assertTrue(ops.get(2).matches("delete user[0-9]+"));
+  }
+}
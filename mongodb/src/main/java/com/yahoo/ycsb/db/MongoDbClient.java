@@ -272,18 +272,7 @@ public class MongoDbClient extends DB {
       } else {
         bulkInserts.add(toInsert);
         if (bulkInserts.size() == batchSize) {
-          if (useUpsert) {
-            List<UpdateOneModel<Document>> updates = 
-                new ArrayList<UpdateOneModel<Document>>(bulkInserts.size());
-            for (Document doc : bulkInserts) {
-              updates.add(new UpdateOneModel<Document>(
-                  new Document("_id", doc.get("_id")),
-                  doc, UPDATE_WITH_UPSERT));
-            }
-            collection.bulkWrite(updates);
-          } else {
-            collection.insertMany(bulkInserts, INSERT_UNORDERED);
-          }
+          bulkInsert(collection, bulkInserts);
           bulkInserts.clear();
         }
       }
@@ -297,6 +286,62 @@ public class MongoDbClient extends DB {
 
   }
 
+  /**
+   * Insert a batch of records in the database with a single bulk write,
+   * independent of the "batchsize" buffering of
+   * {@link #insert(String, String, HashMap)}.
+   * 
+   * @param table
+   *          The name of the table
+   * @param keys
+   *          The record keys of the records to insert.
+   * @param values
+   *          The field/value pairs to insert for each record
+   * @return Zero on success, a non-zero error code on error. See the {@link DB}
+   *         class's description for a discussion of error codes.
+   */
+  @Override
+  public Status multiInsert(String table, List<String> keys,
+      List<HashMap<String, ByteIterator>> values) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+      List<Document> toInsert = new ArrayList<Document>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        Document doc = new Document("_id", keys.get(i));
+        for (Map.Entry<String, ByteIterator> entry : values.get(i).entrySet()) {
+          doc.put(entry.getKey(), entry.getValue().toArray());
+        }
+        toInsert.add(doc);
+      }
+      bulkInsert(collection, toInsert);
+      return Status.OK;
+    } catch (Exception e) {
+      System.err.println("Exception while trying bulk insert with "
+          + keys.size());
+      e.printStackTrace();
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Writes the documents with one bulk operation, as upserts if configured.
+   */
+  private static void bulkInsert(MongoCollection<Document> collection,
+      List<Document> docs) {
+    if (useUpsert) {
+      List<UpdateOneModel<Document>> updates =
+          new ArrayList<UpdateOneModel<Document>>(docs.size());
+      for (Document doc : docs) {
+        updates.add(new UpdateOneModel<Document>(
+            new Document("_id", doc.get("_id")),
+            doc, UPDATE_WITH_UPSERT));
+      }
+      collection.bulkWrite(updates);
+    } else {
+      collection.insertMany(docs, INSERT_UNORDERED);
+    }
+  }
+
   /**
    * Read a record from the database. Each field/value pair from the result will
    * be stored in a HashMap.